@@ -0,0 +1,157 @@
+package visualisingCellularAutomata;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorLifeKernel computes several words of a <code>PackedLifeEngine</code> at once, using the Vector API.
+ * Each lane of a vector holds one word (64 cells), so a 256-bit vector (AVX2) computes 256 cells at a time, and a 512-bit vector (AVX-512) computes 512.
+ * The neighbours are lined up and added with exactly the same shifts and full adders as <code>PackedLifeEngine.applyRule</code>, and the rules are applied
+ * in the same way, so the results are bit-for-bit the same as the scalar code for every rule.
+ *
+ * This class needs the <code>jdk.incubator.vector</code> module, so it is kept in its own source folder. <code>PackedLifeEngine</code> loads it by name,
+ * and uses its own scalar code if it is missing.
+ * @see visualisingCellularAutomata.PackedLifeEngine
+ */
+final class VectorLifeKernel implements PackedLifeEngine.VectorKernel {
+	/** The widest vector of words that the processor supports. */
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+	/** The number of words in each vector. */
+	private static final int LANES = SPECIES.length();
+
+	/**
+	 * Computes a run of active tiles in one row of tiles, a whole vector of words at a time, down every row of the tiles.
+	 * The words that are left over at the end of the run (fewer than a whole vector) are left to the scalar code.
+	 * @param engine The engine being stepped.
+	 * @param tileRow The row of tiles.
+	 * @param fromWord The first word (tile) of the run.
+	 * @param toWord The word after the last word of the run.
+	 * @param cur The current generation, which is only read.
+	 * @param next The next generation, which is written to.
+	 * @param rule The rule to apply.
+	 * @param trackAges Whether the births need to be recorded (see <code>PackedLifeEngine.recordBirths</code>).
+	 * @return The word after the last word that was computed (<code>fromWord</code> if none were, e.g. if vectors only hold one word).
+	 */
+	@Override
+	public int stepTiles(PackedLifeEngine engine, int tileRow, int fromWord, int toWord, long[] cur, long[] next, Rule rule, boolean trackAges) {
+		if(LANES < 2) {
+			return fromWord; // Vectors of one word are no faster than the scalar code.
+		}
+		long[] table = rule.table;
+		int[] counts = rule.counts;
+		int stride = engine.stride;
+		int firstRow = tileRow << PackedLifeEngine.TILE_SHIFT;
+		int lastRow = Math.min(engine.height, firstRow + (1 << PackedLifeEngine.TILE_SHIFT));
+		LongVector zero = LongVector.zero(SPECIES);
+
+		int w = fromWord;
+		for(; w + LANES <= toWord; w += LANES) {
+			// Cells past the right edge of the grid must always stay dead, which only affects the last word of each row.
+			LongVector mask = zero.not();
+			if(w + LANES == engine.wordsPerRow) {
+				mask = mask.withLane(LANES - 1, engine.lastWordMask);
+			}
+			LongVector difference = zero;
+			for(int y = firstRow; y < lastRow; y++) {
+				int index = engine.rowStart(y) + w;
+				LongVector alive = LongVector.fromArray(SPECIES, cur, index);
+				LongVector result = nextWords(cur, index, stride, alive, table, counts).and(mask);
+				result.intoArray(next, index);
+				difference = difference.or(result.lanewise(VectorOperators.XOR, alive));
+				if(trackAges) {
+					LongVector born = result.and(alive.not());
+					for(int lane = 0; lane < LANES; lane++) {
+						engine.recordBirths(y, w + lane, born.lane(lane));
+					}
+				}
+			}
+			for(int lane = 0; lane < LANES; lane++) {
+				engine.changed[tileRow * engine.tilesX + w + lane] = difference.lane(lane) != 0;
+			}
+		}
+		return w;
+	}
+
+	/**
+	 * Computes the next state of a vector of neighbouring words. This is <code>PackedLifeEngine.nextWord</code> and <code>applyRule</code>, one word per lane.
+	 * Loading the vectors one word to the left and one word to the right provides the bit that each word shifts in from its neighbours.
+	 * @param g The generation to read from.
+	 * @param index The index of the first word in <code>g</code>.
+	 * @param stride The number of words in each row of <code>g</code>.
+	 * @param alive The words themselves.
+	 * @param table The lookup table of the rule to apply.
+	 * @param counts The neighbour counts that appear in the rule.
+	 * @return The next state of the words. Bits past the right edge of the grid are not cleared.
+	 */
+	private static LongVector nextWords(long[] g, int index, int stride, LongVector alive, long[] table, int[] counts) {
+		int up = index - stride;
+		int down = index + stride;
+		LongVector n = LongVector.fromArray(SPECIES, g, up);
+		LongVector nw = shiftLeft(n, LongVector.fromArray(SPECIES, g, up - 1));
+		LongVector ne = shiftRight(n, LongVector.fromArray(SPECIES, g, up + 1));
+		LongVector s = LongVector.fromArray(SPECIES, g, down);
+		LongVector sw = shiftLeft(s, LongVector.fromArray(SPECIES, g, down - 1));
+		LongVector se = shiftRight(s, LongVector.fromArray(SPECIES, g, down + 1));
+		LongVector west = shiftLeft(alive, LongVector.fromArray(SPECIES, g, index - 1));
+		LongVector east = shiftRight(alive, LongVector.fromArray(SPECIES, g, index + 1));
+
+		// Row above (0-3 neighbours).
+		LongVector upSum = nw.lanewise(VectorOperators.XOR, n);
+		LongVector upCarry = nw.and(n).or(upSum.and(ne));
+		upSum = upSum.lanewise(VectorOperators.XOR, ne);
+		// Same row (0-2 neighbours).
+		LongVector midSum = west.lanewise(VectorOperators.XOR, east);
+		LongVector midCarry = west.and(east);
+		// Row below (0-3 neighbours).
+		LongVector downSum = sw.lanewise(VectorOperators.XOR, s);
+		LongVector downCarry = sw.and(s).or(downSum.and(se));
+		downSum = downSum.lanewise(VectorOperators.XOR, se);
+		// Ones.
+		LongVector bit0 = upSum.lanewise(VectorOperators.XOR, midSum);
+		LongVector onesCarry = upSum.and(midSum).or(bit0.and(downSum));
+		bit0 = bit0.lanewise(VectorOperators.XOR, downSum);
+		// Twos.
+		LongVector twos = upCarry.lanewise(VectorOperators.XOR, midCarry);
+		LongVector twosCarry = upCarry.and(midCarry).or(twos.and(downCarry));
+		twos = twos.lanewise(VectorOperators.XOR, downCarry);
+		LongVector bit1 = twos.lanewise(VectorOperators.XOR, onesCarry);
+		LongVector fours = twos.and(onesCarry);
+		// Fours and eights.
+		LongVector bit2 = twosCarry.lanewise(VectorOperators.XOR, fours);
+		LongVector bit3 = twosCarry.and(fours);
+
+		// Apply the rules to every cell in every word, exactly as applyRule does.
+		LongVector dead = alive.not();
+		LongVector result = LongVector.zero(SPECIES);
+		for(int i = 0; i < counts.length; i++) {
+			int count = counts[i];
+			LongVector matches = bit0.lanewise(VectorOperators.XOR, (count & 1) - 1L)
+					.and(bit1.lanewise(VectorOperators.XOR, (count >>> 1 & 1) - 1L))
+					.and(bit2.lanewise(VectorOperators.XOR, (count >>> 2 & 1) - 1L))
+					.and(bit3.lanewise(VectorOperators.XOR, (count >>> 3 & 1) - 1L));
+			result = result.or(matches.and(dead.and(table[count]).or(alive.and(table[9 + count]))));
+		}
+		return result;
+	}
+
+	/**
+	 * Shifts every word one cell to the left (towards higher bits), bringing in the highest bit of the word before it.
+	 * @param words The words to shift.
+	 * @param before The words one position before <code>words</code>.
+	 * @return The shifted words.
+	 */
+	private static LongVector shiftLeft(LongVector words, LongVector before) {
+		return words.lanewise(VectorOperators.LSHL, 1).or(before.lanewise(VectorOperators.LSHR, 63));
+	}
+
+	/**
+	 * Shifts every word one cell to the right (towards lower bits), bringing in the lowest bit of the word after it.
+	 * @param words The words to shift.
+	 * @param after The words one position after <code>words</code>.
+	 * @return The shifted words.
+	 */
+	private static LongVector shiftRight(LongVector words, LongVector after) {
+		return words.lanewise(VectorOperators.LSHR, 1).or(after.lanewise(VectorOperators.LSHL, 63));
+	}
+}
@@ -0,0 +1,218 @@
+package visualisingCellularAutomata;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The BatchRunner runs a saved automaton from the command line, without any window: it loads a save (in either format), computes a number of generations as fast as
+ * it can, then saves the final state and prints some statistics. It only uses <code>Simulation</code> and the engines and file formats beneath it, none of which
+ * touch AWT or Swing, so it runs on machines without a display.
+ *
+ * Usage: <code>java -cp bin visualisingCellularAutomata.BatchRunner save generations [options]</code>, where the options are:
+ * <ul>
+ * <li><code>-o file</code>: where to save the final state. Default is the name of the save with the number of generations added, e.g. "glider_guns_1000.cas".</li>
+ * <li><code>-stats file</code>: also write the statistics to a file, as "name=value" lines.</li>
+ * <li><code>-rule B3/S23</code>: the rules to use, replacing those in the save.</li>
+ * <li><code>-wrap</code> or <code>-nowrap</code>: turn grid wrapping on or off, replacing the setting in the save.</li>
+ * <li><code>-size WxH</code>: run on a grid of this size, rather than the size of the save. The save is put at the top left corner.</li>
+ * <li><code>-unbounded</code>: run on the unbounded plane. Only the part of the plane that the grid covers is saved at the end.</li>
+ * <li><code>-parallel</code>: compute each generation on every processor at once.</li>
+ * <li><code>-ages</code>: keep track of the ages of cells, so that they are saved too. Without this, every cell is saved with an age of 0, which is a little faster.</li>
+ * <li><code>-every N</code>: print the population every N generations while running.</li>
+ * </ul>
+ * @see visualisingCellularAutomata.Simulation
+ */
+public final class BatchRunner {
+	/**
+	 * Not used: everything is done by <code>main</code>.
+	 */
+	private BatchRunner() {
+	}
+
+	/**
+	 * Runs a save for a number of generations, saves the result and prints the statistics. The exit status is 1 if the arguments are wrong, and 2 if a file can not be read or written.
+	 * @param args The save, the number of generations, and any options (see above).
+	 */
+	public static void main(String[] args) {
+		if(args.length < 2) {
+			usage("");
+		}
+		Path input = Paths.get(args[0]);
+		long generations = 0;
+		Path output = null;
+		Path statsFile = null;
+		Rule rule = null;
+		Boolean wrap = null;
+		int width = 0;
+		int height = 0;
+		boolean unbounded = false;
+		boolean parallel = false;
+		boolean ages = false;
+		long every = 0;
+		try {
+			generations = Long.parseLong(args[1]);
+			if(generations < 0) {
+				usage("The number of generations can not be negative.");
+			}
+			for(int i = 2; i < args.length; i++) {
+				String option = args[i];
+				if(option.equals("-o")) {
+					output = Paths.get(value(args, ++i));
+				}
+				else if(option.equals("-stats")) {
+					statsFile = Paths.get(value(args, ++i));
+				}
+				else if(option.equals("-rule")) {
+					rule = Rule.parse(value(args, ++i));
+				}
+				else if(option.equals("-wrap") || option.equals("-nowrap")) {
+					wrap = option.equals("-wrap");
+				}
+				else if(option.equals("-size")) {
+					String[] size = value(args, ++i).toLowerCase().split("x");
+					if(size.length != 2) {
+						usage("The size must be given as WxH, e.g. 1024x768.");
+					}
+					width = Integer.parseInt(size[0]);
+					height = Integer.parseInt(size[1]);
+					if(width <= 0 || height <= 0) {
+						usage("The size must be at least 1x1.");
+					}
+				}
+				else if(option.equals("-unbounded")) {
+					unbounded = true;
+				}
+				else if(option.equals("-parallel")) {
+					parallel = true;
+				}
+				else if(option.equals("-ages")) {
+					ages = true;
+				}
+				else if(option.equals("-every")) {
+					every = Long.parseLong(value(args, ++i));
+				}
+				else {
+					usage("Unknown option " + option + ".");
+				}
+			}
+		}
+		catch(IllegalArgumentException e) { // Includes NumberFormatException.
+			usage(e.getMessage());
+		}
+		if(output == null) {
+			String name = input.getFileName().toString();
+			int dot = name.lastIndexOf('.');
+			output = input.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "_" + generations + ".cas");
+		}
+
+		try {
+			// Load the save, onto a grid of its own size unless another size was asked for.
+			Simulation simulation;
+			if(width > 0) {
+				simulation = new Simulation(width, height);
+				simulation.load(input);
+			}
+			else {
+				simulation = Simulation.open(input);
+			}
+			if(rule != null) {
+				simulation.setRule(rule);
+			}
+			if(wrap != null) {
+				simulation.setWrapping(wrap);
+			}
+			simulation.setUnbounded(unbounded);
+			simulation.setParallel(parallel);
+			simulation.setAgeTracking(ages);
+			if(!simulation.canStep()) {
+				usage("Rules with B0 can not be run on the unbounded plane.");
+			}
+			long initialPopulation = simulation.getPopulation();
+
+			long start = System.nanoTime();
+			if(every > 0) {
+				System.out.println("generation,population");
+				System.out.println("0," + initialPopulation);
+				for(long done = 0; done < generations; ) {
+					long batch = Math.min(every, generations - done);
+					simulation.step(batch);
+					done += batch;
+					System.out.println(done + "," + simulation.getPopulation());
+				}
+			}
+			else {
+				simulation.step(generations);
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			long size = simulation.save(output);
+			StringBuilder stats = new StringBuilder();
+			stats.append("save=").append(input).append('\n');
+			stats.append("grid=").append(simulation.width).append('x').append(simulation.height).append(unbounded ? " (unbounded)" : "").append('\n');
+			stats.append("rule=").append(simulation.getRule()).append('\n');
+			stats.append("wrap=").append(simulation.isWrapping()).append('\n');
+			stats.append("generations=").append(generations).append('\n');
+			stats.append("seconds=").append(String.format("%.3f", seconds)).append('\n');
+			stats.append("generationsPerSecond=").append(String.format("%.1f", generations / Math.max(seconds, 1e-9))).append('\n');
+			if(!unbounded) { // Cells on the unbounded plane are only computed where something is alive, so this would mean nothing.
+				stats.append("cellUpdatesPerSecond=").append(String.format("%.4g", (double) generations * simulation.width * simulation.height / Math.max(seconds, 1e-9))).append('\n');
+			}
+			stats.append("initialPopulation=").append(initialPopulation).append('\n');
+			stats.append("finalPopulation=").append(simulation.getPopulation()).append('\n');
+			stats.append("output=").append(output).append(" (").append(size).append(" bytes)").append('\n');
+			System.out.print(stats);
+			if(statsFile != null) {
+				Files.write(statsFile, stats.toString().getBytes("US-ASCII"));
+			}
+		}
+		catch(NoSuchFileException e) {
+			System.err.println(e.getMessage() + " does not exist.");
+			System.exit(2);
+		}
+		catch(IOException e) {
+			System.err.println(e.getMessage() != null ? e.getMessage() : e.toString());
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Returns the value that follows an option.
+	 * @param args The arguments.
+	 * @param i The index of the value.
+	 * @return The value.
+	 * @throws IllegalArgumentException If the option is the last argument, so it has no value.
+	 */
+	private static String value(String[] args, int i) {
+		if(i >= args.length) {
+			throw new IllegalArgumentException(args[i - 1] + " needs a value.");
+		}
+		return args[i];
+	}
+
+	/**
+	 * Prints what is wrong with the arguments (if anything) and how to use the runner, then exits with a status of 1.
+	 * @param problem What is wrong with the arguments, or an empty string.
+	 */
+	private static void usage(String problem) {
+		PrintStream err = System.err;
+		if(problem != null && !problem.isEmpty()) {
+			err.println(problem);
+		}
+		err.println("Usage: java visualisingCellularAutomata.BatchRunner save generations [options]");
+		err.println("  -o file       where to save the final state (default: save_GENERATIONS.cas)");
+		err.println("  -stats file   also write the statistics to a file");
+		err.println("  -rule B3/S23  the rules to use, instead of those in the save");
+		err.println("  -wrap         wrap around at the edges of the grid");
+		err.println("  -nowrap       do not wrap around at the edges of the grid");
+		err.println("  -size WxH     the size of the grid (default: the size of the save)");
+		err.println("  -unbounded    run on the unbounded plane");
+		err.println("  -parallel     compute each generation on every processor");
+		err.println("  -ages         track the ages of cells, so that they are saved too");
+		err.println("  -every N      print the population every N generations");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,426 @@
+package visualisingCellularAutomata;
+
+/**
+ * A Command is one request from the user (or from the file thread) to change the automaton or the view, such as pausing, loading a save or drawing cells.
+ * Commands are made on any thread (usually the Swing thread) and handed to <code>LifePanel.submit</code>, which queues them for the simulation thread.
+ * The simulation thread carries them out between generations, in exactly the order that they were submitted, so none is ever lost or overtaken by another,
+ * and a generation never sees a half-made change. Submitting a command also wakes the simulation thread, so it is carried out straight away rather than
+ * at the next generation, however long the delay between generations is.
+ *
+ * Each kind of command is made by one of the static methods below, which records everything that the command needs at the time it is made
+ * (e.g. the file to load, or the cells to draw), so nothing that changes afterwards can affect it.
+ * Commands are immutable, and should only be carried out once.
+ * @see visualisingCellularAutomata.LifePanel#submit
+ */
+abstract class Command {
+	/** The kind of command, e.g. "Load", for debugging. */
+	private final String name;
+
+	/**
+	 * @param name The kind of command, for debugging.
+	 */
+	private Command(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Carries out the command. This is only ever called by the simulation thread, between generations.
+	 * @param panel The panel whose automaton (and view) the command changes.
+	 */
+	abstract void apply(LifePanel panel);
+
+	/**
+	 * @return The kind of command, e.g. "Load current_save.cas", for debugging.
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * Starts (or carries on) simulating, at the speed chosen by the user.
+	 * @return The command.
+	 */
+	static Command run() {
+		return new Command("Run") {
+			/**
+			 * Un-pauses the panel.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.paused = false;
+			}
+		};
+	}
+
+	/**
+	 * Pauses the simulation. Any generation that is being computed is finished first.
+	 * @return The command.
+	 */
+	static Command pause() {
+		return new Command("Pause") {
+			/**
+			 * Pauses the panel.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.paused = true;
+			}
+		};
+	}
+
+	/**
+	 * Computes one generation straight away, whether or not the simulation is paused.
+	 * @return The command.
+	 */
+	static Command step() {
+		return new Command("Step") {
+			/**
+			 * Computes one generation, as the panel would.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.step();
+			}
+		};
+	}
+
+	/**
+	 * Saves the automaton (with its rules and grid wrapping) to <code>LifePanel.SAVE_FILE</code>.
+	 * @return The command.
+	 */
+	static Command save() {
+		return new Command("Save") {
+			/**
+			 * Takes a snapshot of the automaton, and saves it on the file thread.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.saveFile();
+			}
+		};
+	}
+
+	/**
+	 * Loads a save, replacing the whole automaton (and its rules, if the save has them). The save is read in the background, and the automaton is replaced
+	 * by a later command once it has been read. The commands submitted after this one wait until then, so none of them is lost when the automaton is replaced.
+	 * @param file The name of the save to load.
+	 * @return The command.
+	 */
+	static Command load(final String file) {
+		return new Command("Load " + file) {
+			/**
+			 * Starts reading the save on the file thread, and holds back later commands until it has been read.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.loadFile(file);
+			}
+		};
+	}
+
+	/**
+	 * Replaces the grid with one that has been loaded. This is submitted by the file thread once a save has been read.
+	 * @param loaded The grid that the save was read into.
+	 * @param save The header of the save.
+	 * @param file The name of the save, to tell the user.
+	 * @return The command.
+	 */
+	static Command loaded(final PackedLifeEngine loaded, final SaveFormat save, final String file) {
+		return new Command("Loaded " + file) {
+			/**
+			 * Swaps the loaded grid in, and lets the commands that were held back be carried out.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.swapIn(loaded, save, file);
+			}
+		};
+	}
+
+	/**
+	 * Gives up on a load or import, leaving the automaton as it is. This is submitted by the file thread if a save or pattern can not be read.
+	 * @param file The name of the file, for debugging.
+	 * @param message What went wrong, to tell the user.
+	 * @return The command.
+	 */
+	static Command readFailed(final String file, final String message) {
+		return new Command("Failed to read " + file) {
+			/**
+			 * Tells the user what went wrong, and lets the commands that were held back be carried out.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.readFailed(message);
+			}
+		};
+	}
+
+	/**
+	 * Imports a pattern file (RLE or Life 1.06) into the centre of the view. The pattern is read in the background, and stamped on by a later command once it has been read.
+	 * The commands submitted after this one wait until then, as they do for a load.
+	 * @param file The name of the pattern file.
+	 * @return The command.
+	 */
+	static Command importPattern(final String file) {
+		return new Command("Import " + file) {
+			/**
+			 * Starts reading the pattern on the file thread, and holds back later commands until it has been read.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.importPattern(file);
+			}
+		};
+	}
+
+	/**
+	 * Stamps a pattern that has been imported onto the automaton. This is submitted by the file thread once a pattern file has been read.
+	 * @param cells The cells of the pattern, centred on (0, 0). They must not be changed afterwards.
+	 * @param rule The rules that the pattern gives, or null if it does not give any.
+	 * @param centreX The column to put the centre of the pattern at.
+	 * @param centreY The row to put the centre of the pattern at.
+	 * @param file The name of the pattern file, for debugging.
+	 * @return The command.
+	 */
+	static Command imported(final SparseLifeEngine cells, final Rule rule, final int centreX, final int centreY, final String file) {
+		return new Command("Imported " + file) {
+			/**
+			 * Stamps the pattern, and lets the commands that were held back be carried out.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.stampImport(cells, rule, centreX, centreY);
+			}
+		};
+	}
+
+	/**
+	 * Exports the live cells as an RLE pattern to <code>LifePanel.EXPORT_FILE</code>.
+	 * @return The command.
+	 */
+	static Command exportPattern() {
+		return new Command("Export") {
+			/**
+			 * Takes a snapshot of the automaton, and exports it on the file thread.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.exportPattern();
+			}
+		};
+	}
+
+	/**
+	 * Kills every cell.
+	 * @return The command.
+	 */
+	static Command clear() {
+		return new Command("Clear") {
+			/**
+			 * Kills every cell of the panel's automaton.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.simulation.clear();
+			}
+		};
+	}
+
+	/**
+	 * Sets every cell in the grid to a random state. The same seed and density always give the same soup, so the seed is shown to the user.
+	 * @param seed The seed of the soup.
+	 * @param density The chance of each cell being alive (0-1).
+	 * @return The command.
+	 */
+	static Command randomize(final long seed, final double density) {
+		return new Command("Randomize " + seed) {
+			/**
+			 * Replaces the panel's automaton with a random soup, and tells the user its seed.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.randomize(seed, density);
+			}
+		};
+	}
+
+	/**
+	 * Changes the rules. The new rules are used from the next generation onwards.
+	 * @param rule The new rules.
+	 * @return The command.
+	 */
+	static Command setRule(final Rule rule) {
+		return new Command("Set rule " + rule) {
+			/**
+			 * Gives the panel's automaton the new rules.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.simulation.setRule(rule);
+			}
+		};
+	}
+
+	/**
+	 * Turns grid wrapping on or off.
+	 * @param wrap True to wrap around at the edges of the grid.
+	 * @return The command.
+	 */
+	static Command setWrapping(final boolean wrap) {
+		return new Command(wrap ? "Wrap" : "Don't wrap") {
+			/**
+			 * Turns grid wrapping on or off in the panel's automaton.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.simulation.setWrapping(wrap);
+			}
+		};
+	}
+
+	/**
+	 * Moves the automaton between the bounded grid and the unbounded plane (see <code>Simulation.setUnbounded</code>).
+	 * @param unbounded True to move onto the unbounded plane, false to move back onto the grid.
+	 * @return The command.
+	 */
+	static Command setUnbounded(final boolean unbounded) {
+		return new Command(unbounded ? "Unbounded" : "Bounded") {
+			/**
+			 * Moves the panel's automaton onto or off the unbounded plane.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.simulation.setUnbounded(unbounded);
+			}
+		};
+	}
+
+	/**
+	 * Chooses whether generations are computed on every processor at once. The results are the same either way.
+	 * @param parallel True to compute generations in parallel.
+	 * @return The command.
+	 */
+	static Command setParallel(final boolean parallel) {
+		return new Command(parallel ? "Parallel" : "Serial") {
+			/**
+			 * Tells the panel's automaton how to compute its generations.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.simulation.setParallel(parallel);
+			}
+		};
+	}
+
+	/**
+	 * Jumps forward by 2^<code>exponent</code> generations at once, using HashLife.
+	 * @param exponent The size of the jump, as a power of two.
+	 * @return The command.
+	 */
+	static Command fastForward(final int exponent) {
+		return new Command("Fast-forward 2^" + exponent) {
+			/**
+			 * Fast-forwards the panel's automaton, or tells the user why it could not be done.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.fastForward(exponent);
+			}
+		};
+	}
+
+	/**
+	 * Sets a batch of cells to the same state, e.g. every cell along one movement of the mouse. Cells outside of the grid are skipped.
+	 * @param cells The cells, as pairs of coordinates: x0, y0, x1, y1, ... The array must not be changed afterwards.
+	 * @param state The state to give them (0 for dead, 1 for alive).
+	 * @return The command.
+	 */
+	static Command paintCells(final int[] cells, final int state) {
+		return new Command("Paint " + cells.length / 2 + " cells") {
+			/**
+			 * Sets each cell in turn, skipping any that are outside of the grid.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				for(int i = 0; i + 1 < cells.length; i += 2) {
+					panel.paintCell(cells[i], cells[i + 1], state);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Stamps a pattern centred on a cell.
+	 * @param x The column of the cell.
+	 * @param y The row of the cell.
+	 * @param stamp The pattern to stamp (see <code>LifePanel.stampToUse</code>).
+	 * @param state The state to draw a single cell in when there is no pattern (1 for alive, 0 for dead), i.e. <code>1 - LifePanel.drawState</code> when the command is made.
+	 * @return The command.
+	 */
+	static Command stamp(final int x, final int y, final int stamp, final int state) {
+		return new Command("Stamp " + stamp) {
+			/**
+			 * Stamps the pattern (or the single cell).
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.stampPattern(x, y, stamp, state);
+			}
+		};
+	}
+
+	/**
+	 * Zooms the view in or out, keeping the cell under a point of the view in the same place.
+	 * @param steps The number of zoom levels to zoom in by (or out by, if negative).
+	 * @param px The x-coordinate of the point in the view (in pixels) to zoom about.
+	 * @param py The y-coordinate of the point in the view (in pixels) to zoom about.
+	 * @return The command.
+	 */
+	static Command zoom(final int steps, final int px, final int py) {
+		return new Command("Zoom " + steps) {
+			/**
+			 * Zooms the view about the point.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.zoom(steps, px, py);
+			}
+		};
+	}
+
+	/**
+	 * Zooms the view in or out about its centre.
+	 * @param steps The number of zoom levels to zoom in by (or out by, if negative).
+	 * @return The command.
+	 */
+	static Command zoom(final int steps) {
+		return new Command("Zoom " + steps) {
+			/**
+			 * Zooms the view about its centre.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.zoom(steps, panel.xSize / 2, panel.ySize / 2);
+			}
+		};
+	}
+
+	/**
+	 * Moves the view.
+	 * @param x The column of the grid to put at the left edge of the view.
+	 * @param y The row of the grid to put at the top edge of the view.
+	 * @return The command.
+	 */
+	static Command moveView(final int x, final int y) {
+		return new Command("Move view") {
+			/**
+			 * Moves the view.
+			 */
+			@Override
+			void apply(LifePanel panel) {
+				panel.moveView(x, y);
+			}
+		};
+	}
+}
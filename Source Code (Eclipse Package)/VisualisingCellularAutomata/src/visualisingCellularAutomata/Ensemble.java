@@ -0,0 +1,264 @@
+package visualisingCellularAutomata;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The Ensemble runs thousands of random soups under one rule, in parallel and without any window, and sums up how long they lived, how many cells they
+ * ended with, and what periods they settled into. It is a <code>RuleExplorer</code> with a single rule, so the soups are shared out between the same worker threads
+ * and end with the same outcomes, but the generation that each soup settled in (its lifespan) is found exactly, rather than when the repeat was noticed.
+ *
+ * Soup i has the seed <code>seed + i</code>, and depends on nothing else (see <code>Simulation.soup</code>), so any soup can be run again on its own, e.g. the
+ * longest-lived one, which is printed with the statistics. The results of each soup are kept by its index rather than in the order that they finish in,
+ * so the statistics are exactly the same whatever the number of threads.
+ *
+ * Usage: <code>java visualisingCellularAutomata.Ensemble rule soups [options]</code>, where the options are:
+ * <ul>
+ * <li><code>-o file</code>: also write the result of each soup to a CSV file, in the order that they finish in.</li>
+ * <li><code>-seed S</code>: the seed of the first soup (default 1).</li>
+ * <li><code>-size N</code>: the width and height of the grid, which wraps around at its edges (default 128).</li>
+ * <li><code>-soup N</code>: the width and height of the soup, in the middle of the grid (default: the whole grid).</li>
+ * <li><code>-density D</code>: the fraction of the soup's cells that start alive (default 0.3, as in the "Randomise Grid" button).</li>
+ * <li><code>-generations N</code>: the most generations to run each soup for (default 20000). Soups that have not settled by then are counted as chaotic.</li>
+ * <li><code>-explode F</code>: the fraction of the grid that must be alive for a soup to count as exploding (default 1, i.e. never).</li>
+ * <li><code>-threads N</code>: the number of worker threads (default: one per processor).</li>
+ * </ul>
+ * @see visualisingCellularAutomata.RuleExplorer
+ */
+public final class Ensemble extends RuleExplorer {
+	/** The rule that every soup runs under. */
+	private final Rule rule;
+	/** The outcome of each soup, as an index into <code>OUTCOMES</code>. */
+	private final byte[] outcomes;
+	/** The lifespan of each soup (see <code>Result.lifespan</code>). */
+	private final int[] lifespans;
+	/** The period that each soup settled into, or 0. */
+	private final int[] periods;
+	/** The number of live cells that each soup ended with. */
+	private final long[] populations;
+
+	/**
+	 * This constructor sets up an ensemble. Nothing is run until <code>run</code> is called.
+	 * @param rule The rule that every soup runs under.
+	 * @param soups The number of soups.
+	 * @param firstSeed The seed of the first soup.
+	 * @param size The width and height of the grid.
+	 * @param soupSize The width and height of the soup. It is made smaller if it does not fit on the grid.
+	 * @param density The fraction of the soup's cells that start alive.
+	 * @param maxGenerations The most generations to run each soup for.
+	 * @param explodeFraction The fraction of the grid that must be alive for a soup to count as exploding.
+	 */
+	Ensemble(Rule rule, int soups, long firstSeed, int size, int soupSize, double density, int maxGenerations, double explodeFraction) {
+		super(new Rule[] {rule}, soups, firstSeed, size, soupSize, density, maxGenerations, explodeFraction);
+		this.rule = rule;
+		this.outcomes = new byte[soups];
+		this.lifespans = new int[soups];
+		this.periods = new int[soups];
+		this.populations = new long[soups];
+		findLifespans = true;
+	}
+
+	@Override
+	String header() {
+		return "seed,outcome,lifespan,period,population\n";
+	}
+
+	/**
+	 * Keeps the result of a soup for the statistics, and writes it as a line of CSV. Each soup is only finished by one worker, and the statistics are only
+	 * read once every worker has been joined, so the arrays need no locking.
+	 */
+	@Override
+	void finished(long run, Rule rule, long seed, Result result) {
+		int i = (int) run;
+		outcomes[i] = (byte) result.outcome;
+		lifespans[i] = result.lifespan;
+		periods[i] = result.period;
+		populations[i] = result.population;
+		if(results != null) {
+			report(seed + "," + OUTCOMES[result.outcome] + "," + result.lifespan + "," + result.period + "," + result.population + "\n");
+		}
+	}
+
+	/**
+	 * Sums up the soups, as "name=value" lines. This must only be called once <code>run</code> has returned.
+	 * Lifespans only count the soups that settled (i.e. not the chaotic ones, whose lifespans are not known), and periods only count the ones that repeat.
+	 * @return The statistics.
+	 */
+	String statistics() {
+		int soups = outcomes.length;
+		StringBuilder out = new StringBuilder();
+		out.append("rule=").append(rule).append('\n');
+		out.append("soups=").append(soups).append('\n');
+		out.append("seeds=").append(firstSeed).append('-').append(firstSeed + soups - 1).append('\n');
+		int[] counts = new int[OUTCOMES.length];
+		long[] settled = new long[soups];
+		int settledCount = 0;
+		int longest = -1;
+		Map<Integer, Integer> periodCounts = new TreeMap<Integer, Integer>();
+		for(int i = 0; i < soups; i++) {
+			counts[outcomes[i]]++;
+			if(outcomes[i] != CHAOTIC) {
+				settled[settledCount++] = lifespans[i];
+				if(longest < 0 || lifespans[i] > lifespans[longest]) {
+					longest = i;
+				}
+			}
+			if(periods[i] > 0) {
+				Integer count = periodCounts.get(periods[i]);
+				periodCounts.put(periods[i], count == null ? 1 : count + 1);
+			}
+		}
+		for(int i = 0; i < OUTCOMES.length; i++) {
+			out.append(OUTCOMES[i]).append('=').append(counts[i]).append('\n');
+		}
+		appendStatistics(out, "lifespan", Arrays.copyOf(settled, settledCount));
+		if(longest >= 0) {
+			out.append("lifespan.longestSeed=").append(firstSeed + longest).append('\n');
+		}
+		appendStatistics(out, "population", populations.clone());
+		for(Map.Entry<Integer, Integer> entry : periodCounts.entrySet()) {
+			out.append("period.").append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Writes the smallest, mean, median and largest of some values, as "name.min=value" lines. Nothing is written if there are no values.
+	 * @param out Where to write them.
+	 * @param name The name of the values.
+	 * @param values The values. They are sorted.
+	 */
+	private static void appendStatistics(StringBuilder out, String name, long[] values) {
+		if(values.length == 0) {
+			return;
+		}
+		Arrays.sort(values);
+		long total = 0;
+		for(long value : values) {
+			total += value;
+		}
+		int middle = values.length / 2;
+		double median = values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2.0;
+		out.append(name).append(".min=").append(values[0]).append('\n');
+		out.append(name).append(".mean=").append(String.format("%.2f", (double) total / values.length)).append('\n');
+		out.append(name).append(".median=").append(String.format("%.1f", median)).append('\n');
+		out.append(name).append(".max=").append(values[values.length - 1]).append('\n');
+	}
+
+	/**
+	 * Runs an ensemble from the command line (see above), and prints its statistics.
+	 * The exit status is 1 if the arguments are wrong, and 2 if the results can not be written.
+	 * @param args The rule, the number of soups, and any options.
+	 */
+	public static void main(String[] args) {
+		if(args.length < 2) {
+			usage("");
+		}
+		Rule rule = null;
+		int soups = 0;
+		String output = null;
+		long seed = 1;
+		int size = 128;
+		int soupSize = 0;
+		double density = Simulation.DEFAULT_DENSITY;
+		int generations = 20000;
+		double explode = 1;
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			rule = Rule.parse(args[0]);
+			soups = Integer.parseInt(args[1]);
+			for(int i = 2; i < args.length; i++) {
+				String option = args[i];
+				String value = i + 1 < args.length ? args[++i] : null;
+				if(value == null) {
+					usage(option + " needs a value.");
+				}
+				else if(option.equals("-o")) {
+					output = value;
+				}
+				else if(option.equals("-seed")) {
+					seed = Long.parseLong(value);
+				}
+				else if(option.equals("-size")) {
+					size = Integer.parseInt(value);
+				}
+				else if(option.equals("-soup")) {
+					soupSize = Integer.parseInt(value);
+				}
+				else if(option.equals("-density")) {
+					density = Double.parseDouble(value);
+					PackedLifeEngine.densityThreshold(density);
+				}
+				else if(option.equals("-generations")) {
+					generations = Integer.parseInt(value);
+				}
+				else if(option.equals("-explode")) {
+					explode = Double.parseDouble(value);
+				}
+				else if(option.equals("-threads")) {
+					threads = Integer.parseInt(value);
+				}
+				else {
+					usage("Unknown option " + option + ".");
+				}
+			}
+			if(soups < 1 || size < 1 || soupSize < 0 || generations < 0 || threads < 1) {
+				usage("Counts and sizes must be at least 1.");
+			}
+		}
+		catch(IllegalArgumentException e) { // Includes NumberFormatException.
+			usage(e.getMessage());
+		}
+
+		Ensemble ensemble = new Ensemble(rule, soups, seed, size, soupSize > 0 ? soupSize : size, density, generations, explode);
+		long start = System.nanoTime();
+		try {
+			if(output != null) {
+				try(BufferedWriter out = Files.newBufferedWriter(Paths.get(output), StandardCharsets.US_ASCII)) {
+					ensemble.run(out, threads);
+				}
+			}
+			else {
+				ensemble.run(null, threads);
+			}
+		}
+		catch(IOException e) {
+			System.err.println("Could not write the results: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+			System.exit(2);
+		}
+		catch(InterruptedException e) {
+			System.exit(2);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.print(ensemble.statistics());
+		System.out.println("generations=" + ensemble.generationsComputed.get());
+		System.out.println("seconds=" + String.format("%.3f", seconds));
+		System.out.println("generationsPerSecond=" + String.format("%.1f", ensemble.generationsComputed.get() / Math.max(seconds, 1e-9)));
+	}
+
+	/**
+	 * Prints what is wrong with the arguments (if anything) and how to use the ensemble, then exits with a status of 1.
+	 * @param problem What is wrong with the arguments, or an empty string.
+	 */
+	private static void usage(String problem) {
+		if(problem != null && !problem.isEmpty()) {
+			System.err.println(problem);
+		}
+		System.err.println("Usage: java visualisingCellularAutomata.Ensemble rule soups [options]");
+		System.err.println("  -o file         also write the result of each soup to a CSV file");
+		System.err.println("  -seed S         seed of the first soup (default 1)");
+		System.err.println("  -size N         width and height of the grid (default 128)");
+		System.err.println("  -soup N         width and height of the soup (default: the whole grid)");
+		System.err.println("  -density D      fraction of the soup that starts alive (default 0.3)");
+		System.err.println("  -generations N  most generations to run each soup for (default 20000)");
+		System.err.println("  -explode F      fraction of the grid alive that counts as exploding (default 1, i.e. never)");
+		System.err.println("  -threads N      worker threads (default: one per processor)");
+		System.exit(1);
+	}
+}
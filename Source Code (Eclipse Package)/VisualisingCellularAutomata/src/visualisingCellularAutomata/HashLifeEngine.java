@@ -0,0 +1,700 @@
+package visualisingCellularAutomata;
+
+import java.util.ArrayDeque;
+
+/**
+ * HashLifeEngine advances an automaton by huge numbers of generations at once, using Gosper's HashLife algorithm.
+ *
+ * The universe is stored as a quadtree: a square of 2^k by 2^k cells is a node made of four squares of 2^(k-1) by 2^(k-1) cells, down to single cells.
+ * Every node is canonical - there is only ever one node for any given arrangement of cells - so patterns that repeat in space (such as the gliders from a gun)
+ * are stored once, no matter how many copies of them there are.
+ * Each node also remembers its result: the centre of the node, 2^j generations in the future. Because nodes are canonical, this result is computed once and then reused
+ * everywhere (and every time) that the same square appears again. This is what lets patterns that are regular in space and time (guns, rakes, puffers) be advanced
+ * by 2^k generations in a single step, in far less time than computing 2^k generations one at a time.
+ *
+ * Unlike <code>PackedLifeEngine</code>, the universe is unbounded: it grows to hold whatever the pattern becomes, and there is no grid wrapping.
+ * Cell ages are not tracked either. <code>load</code> and <code>copyTo</code> convert to and from a <code>PackedLifeEngine</code>, whose grid is treated as a
+ * window onto the universe with its top left corner at (0, 0), or a <code>SparseLifeEngine</code>, whose plane is copied whole.
+ *
+ * The node cache has a soft limit on its size. When a step finishes with more nodes than the limit, every node that can no longer be reached from the universe
+ * is thrown away. If that is not enough, the remembered results are thrown away too, which frees everything except the universe itself.
+ *
+ * Rules with B0 are not supported, because they make the empty space outside of the pattern come alive, so the universe would never be finite.
+ * @see visualisingCellularAutomata.PackedLifeEngine
+ */
+public class HashLifeEngine {
+	/** The default soft limit on the number of nodes in the cache. Each node takes roughly 64 bytes, so this is about 64 MB. */
+	static final int DEFAULT_MAX_NODES = 1 << 20;
+	/** The largest number of generations that a single step can advance, as a power of two. Larger steps would overflow the coordinates of the universe. */
+	static final int MAX_EXPONENT = 56;
+
+	/**
+	 * A square of 2^level by 2^level cells. Level 0 nodes are single cells, and every other node is made of four nodes one level lower.
+	 * Nodes are never modified after they are created (apart from the remembered result), so they can be shared freely.
+	 */
+	static final class Node {
+		/** The top left quarter of the square. */
+		final Node nw;
+		/** The top right quarter of the square. */
+		final Node ne;
+		/** The bottom left quarter of the square. */
+		final Node sw;
+		/** The bottom right quarter of the square. */
+		final Node se;
+		/** The size of the square, as a power of two. */
+		final int level;
+		/** The number of live cells in the square. */
+		final long population;
+		/** The hash of the four quarters, used to find this node in the cache. */
+		final int hash;
+		/** The next node in the same bucket of the cache. */
+		Node next;
+		/** The centre of this square, 2^resultStep generations in the future. Null if it has not been computed yet. */
+		Node result;
+		/** The number of generations (as a power of two) that <code>result</code> is ahead of this node. */
+		int resultStep;
+		/** Used while collecting garbage, to mark the nodes that are still needed. */
+		boolean marked;
+
+		/**
+		 * Creates a single cell.
+		 * @param state The state of the cell (0 or 1).
+		 */
+		Node(int state) {
+			this.nw = this.ne = this.sw = this.se = null;
+			this.level = 0;
+			this.population = state;
+			this.hash = state;
+		}
+
+		/**
+		 * Creates a square from its four quarters, which must all have the same level.
+		 * This should only be called by <code>join</code>, which makes sure that the node is canonical.
+		 */
+		Node(Node nw, Node ne, Node sw, Node se, int hash) {
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.level = nw.level + 1;
+			this.population = nw.population + ne.population + sw.population + se.population;
+			this.hash = hash;
+		}
+	}
+
+	/** The single dead cell. */
+	private final Node dead = new Node(0);
+	/** The single live cell. */
+	private final Node alive = new Node(1);
+	/** The empty square of each level, created the first time that it is needed. */
+	private final Node[] empty = new Node[64];
+
+	/** The node cache, a hash table whose buckets are chained through <code>Node.next</code>. Its length is always a power of two. */
+	private Node[] table = new Node[1 << 10];
+	/** The number of nodes in the cache. */
+	private int size = 0;
+	/** The soft limit on the number of nodes in the cache. */
+	private final int maxNodes;
+
+	/** The whole universe. Everything outside of this square is dead. */
+	private Node root;
+	/** The x-coordinate of the top left cell of <code>root</code>. */
+	private long originX;
+	/** The y-coordinate of the top left cell of <code>root</code>. */
+	private long originY;
+	/** The number of generations that have been computed since the universe was last loaded or cleared. */
+	private long generation;
+
+	/** The rule that the universe follows. */
+	private Rule rule;
+	/** The next state of the centre 2x2 cells of every possible 4x4 square, indexed by the 16 cells of the square (bit y * 4 + x). */
+	private final byte[] leafResults = new byte[1 << 16];
+
+	/**
+	 * Creates an empty universe with the default limit on the size of the node cache.
+	 * @param rule The rule that the universe follows.
+	 * @throws IllegalArgumentException If the rule contains B0.
+	 */
+	public HashLifeEngine(Rule rule) {
+		this(rule, DEFAULT_MAX_NODES);
+	}
+
+	/**
+	 * Creates an empty universe.
+	 * @param rule The rule that the universe follows.
+	 * @param maxNodes The soft limit on the number of nodes in the cache. Garbage is collected after any step that leaves more nodes than this.
+	 * @throws IllegalArgumentException If the rule contains B0.
+	 */
+	public HashLifeEngine(Rule rule, int maxNodes) {
+		this.maxNodes = maxNodes;
+		empty[0] = dead;
+		setRule(rule);
+		clear();
+	}
+
+	/**
+	 * Changes the rule that the universe follows. Every remembered result is forgotten if the rule is different from the last one.
+	 * @param rule The new rule.
+	 * @throws IllegalArgumentException If the rule contains B0.
+	 */
+	public void setRule(Rule rule) {
+		if(rule.nextState(0, 0) == 1) {
+			throw new IllegalArgumentException("HashLife can not simulate " + rule + ": rules with B0 fill the infinite empty space with live cells.");
+		}
+		if(this.rule != null && this.rule.toString().equals(rule.toString())) {
+			return; // Same rule, so the remembered results are still correct.
+		}
+		this.rule = rule;
+
+		// Precompute every 4x4 square, so the base case of the recursion is a single lookup.
+		for(int cells = 0; cells < (1 << 16); cells++) {
+			int result = 0;
+			for(int i = 0; i < 4; i++) {
+				int x = 1 + (i & 1);
+				int y = 1 + (i >>> 1);
+				int neighbours = 0;
+				for(int dy = -1; dy <= 1; dy++) {
+					for(int dx = -1; dx <= 1; dx++) {
+						if(dx != 0 || dy != 0) {
+							neighbours += (cells >>> ((y + dy) * 4 + x + dx)) & 1;
+						}
+					}
+				}
+				result |= rule.nextState((cells >>> (y * 4 + x)) & 1, neighbours) << i;
+			}
+			leafResults[cells] = (byte) result;
+		}
+		forgetResults();
+	}
+
+	/**
+	 * Kills every cell in the universe. Remembered results are kept, since they are still correct.
+	 */
+	public void clear() {
+		root = emptyNode(3);
+		originX = -4;
+		originY = -4;
+		generation = 0;
+	}
+
+	/**
+	 * Replaces the universe with the cells of a grid. The grid's top left cell becomes (0, 0). Ages are ignored.
+	 * @param grid The grid to copy.
+	 */
+	public void load(PackedLifeEngine grid) {
+		int level = 3;
+		while((1 << level) < Math.max(grid.width, grid.height)) {
+			level++;
+		}
+		root = build(grid, level, 0, 0);
+		originX = 0;
+		originY = 0;
+		generation = 0;
+	}
+
+	/**
+	 * Replaces the universe with the cells of an unbounded plane. Every cell of the plane keeps its coordinates. Ages are ignored.
+	 * Each chunk of the plane becomes a 64x64 square, which is put straight into the universe, so this takes time in proportion to the number of chunks,
+	 * however far apart they are.
+	 * @param plane The plane to copy.
+	 */
+	public void load(SparseLifeEngine plane) {
+		clear();
+		while(root.level < SparseLifeEngine.CHUNK_SHIFT + 1) {
+			expand(); // The origin is now a multiple of 64, so every chunk lines up with a square of the quadtree.
+		}
+		for(SparseLifeEngine.Chunk chunk : plane.occupiedChunks()) {
+			long x = (long) chunk.cx << SparseLifeEngine.CHUNK_SHIFT;
+			long y = (long) chunk.cy << SparseLifeEngine.CHUNK_SHIFT;
+			while(x < originX || y < originY || x + SparseLifeEngine.CHUNK_SIZE - originX > (1L << root.level) || y + SparseLifeEngine.CHUNK_SIZE - originY > (1L << root.level)) {
+				expand();
+			}
+			root = place(root, x - originX, y - originY, build(chunk.rows, SparseLifeEngine.CHUNK_SHIFT, 0, 0));
+		}
+	}
+
+	/**
+	 * Copies the part of the universe from (0, 0) to (width - 1, height - 1) into a grid, replacing everything that was in the grid.
+	 * Live cells outside of the grid are not copied, but they stay in the universe. All ages are reset to 0.
+	 * @param grid The grid to copy into.
+	 */
+	public void copyTo(PackedLifeEngine grid) {
+		grid.clear();
+		copy(root, originX, originY, grid, 0, 0, grid.width - 1, grid.height - 1);
+	}
+
+	/**
+	 * Copies the universe onto an unbounded plane, replacing everything that was on the plane. All ages are reset to 0.
+	 * Live cells whose coordinates do not fit in an int are not copied, but they stay in the universe.
+	 * @param plane The plane to copy into.
+	 */
+	public void copyTo(SparseLifeEngine plane) {
+		plane.clear();
+		copy(root, originX, originY, plane, Integer.MIN_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the state of any cell in the universe.
+	 * @param x The x-coordinate of the cell, which may be negative.
+	 * @param y The y-coordinate of the cell, which may be negative.
+	 * @return The state of the cell (0 or 1).
+	 */
+	public int get(long x, long y) {
+		x -= originX;
+		y -= originY;
+		Node node = root;
+		if(x < 0 || y < 0 || x >= (1L << node.level) || y >= (1L << node.level)) {
+			return 0;
+		}
+		while(node.level > 0) {
+			if(node.population == 0) {
+				return 0;
+			}
+			long half = 1L << (node.level - 1);
+			if(y < half) {
+				node = x < half ? node.nw : node.ne;
+			}
+			else {
+				node = x < half ? node.sw : node.se;
+				y -= half;
+			}
+			if(x >= half) {
+				x -= half;
+			}
+		}
+		return (int) node.population;
+	}
+
+	/**
+	 * Sets the state of any cell in the universe, growing the universe if the cell is outside of it.
+	 * @param x The x-coordinate of the cell, which may be negative.
+	 * @param y The y-coordinate of the cell, which may be negative.
+	 * @param state The new state of the cell (0 or 1).
+	 */
+	public void set(long x, long y, int state) {
+		while(x < originX || y < originY || x - originX >= (1L << root.level) || y - originY >= (1L << root.level)) {
+			expand();
+		}
+		root = set(root, x - originX, y - originY, state);
+	}
+
+	/**
+	 * Advances the universe by 2^exponent generations.
+	 * @param exponent The number of generations to advance, as a power of two (0 advances a single generation).
+	 * @throws IllegalArgumentException If the exponent is negative or larger than <code>MAX_EXPONENT</code>.
+	 */
+	public void step(int exponent) {
+		if(exponent < 0 || exponent > MAX_EXPONENT) {
+			throw new IllegalArgumentException("Can not step by 2^" + exponent + " generations: the exponent must be between 0 and " + MAX_EXPONENT + ".");
+		}
+		// The result of a node is its centre half. Nothing can travel faster than one cell per generation, so as long as the whole pattern is inside
+		// the centre quarter and the root is at least 2^(exponent + 3) cells wide, nothing can escape the result in 2^exponent generations.
+		while(root.level < exponent + 3 || centre(centre(root)).population != root.population) {
+			expand();
+		}
+		long quarter = 1L << (root.level - 2);
+		root = successor(root, exponent);
+		originX += quarter;
+		originY += quarter;
+		generation += 1L << exponent;
+
+		if(size > maxNodes) {
+			collectGarbage();
+		}
+	}
+
+	/**
+	 * @return The number of generations computed since the universe was last loaded or cleared.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return The number of live cells in the whole universe, including any outside of the grid.
+	 */
+	public long getPopulation() {
+		return root.population;
+	}
+
+	/**
+	 * @return The number of nodes in the cache.
+	 */
+	public int getNodeCount() {
+		return size;
+	}
+
+	/**
+	 * Computes the centre half of a node, 2^j generations in the future. This is the heart of HashLife.
+	 *
+	 * The node is split into 9 overlapping squares one level lower. If j is as large as it can be (level - 2), each of these is advanced by half of the
+	 * generations, the results are joined into 4 squares, and those are advanced by the other half. Otherwise, the 9 squares are not advanced at all
+	 * (their centres are used as they are) and the 4 squares are advanced by all 2^j generations.
+	 * @param node The node to advance. Its level must be at least 2.
+	 * @param j The number of generations to advance, as a power of two. Must be no larger than (level - 2).
+	 * @return A node one level lower than <code>node</code>.
+	 */
+	private Node successor(Node node, int j) {
+		if(node.population == 0) {
+			return emptyNode(node.level - 1); // Empty space stays empty, since B0 is not allowed.
+		}
+		if(node.result != null && node.resultStep == j) {
+			return node.result;
+		}
+		Node result;
+		if(node.level == 2) {
+			result = leafSuccessor(node);
+		}
+		else {
+			Node n00 = node.nw;
+			Node n01 = join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+			Node n02 = node.ne;
+			Node n10 = join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+			Node n11 = centre(node);
+			Node n12 = join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+			Node n20 = node.sw;
+			Node n21 = join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+			Node n22 = node.se;
+
+			int inner; // The step used for the 4 squares.
+			if(j == node.level - 2) {
+				inner = j - 1;
+				n00 = successor(n00, inner);
+				n01 = successor(n01, inner);
+				n02 = successor(n02, inner);
+				n10 = successor(n10, inner);
+				n11 = successor(n11, inner);
+				n12 = successor(n12, inner);
+				n20 = successor(n20, inner);
+				n21 = successor(n21, inner);
+				n22 = successor(n22, inner);
+			}
+			else {
+				inner = j;
+				n00 = centre(n00);
+				n01 = centre(n01);
+				n02 = centre(n02);
+				n10 = centre(n10);
+				n11 = centre(n11);
+				n12 = centre(n12);
+				n20 = centre(n20);
+				n21 = centre(n21);
+				n22 = centre(n22);
+			}
+			result = join(successor(join(n00, n01, n10, n11), inner), successor(join(n01, n02, n11, n12), inner),
+					successor(join(n10, n11, n20, n21), inner), successor(join(n11, n12, n21, n22), inner));
+		}
+		node.result = result;
+		node.resultStep = j;
+		return result;
+	}
+
+	/**
+	 * Computes the centre 2x2 cells of a 4x4 square, one generation in the future, using the precomputed table.
+	 * @param node A node of level 2.
+	 * @return A node of level 1.
+	 */
+	private Node leafSuccessor(Node node) {
+		int cells = quarterBits(node.nw) | quarterBits(node.ne) << 2 | quarterBits(node.sw) << 8 | quarterBits(node.se) << 10;
+		int result = leafResults[cells];
+		return join(cell(result & 1), cell((result >>> 1) & 1), cell((result >>> 2) & 1), cell((result >>> 3) & 1));
+	}
+
+	/**
+	 * Converts a 2x2 square into the bits that it takes up in a 4x4 square (bits 0, 1, 4 and 5).
+	 * @param node A node of level 1.
+	 * @return The bits of the square.
+	 */
+	private static int quarterBits(Node node) {
+		return (int) (node.nw.population | node.ne.population << 1 | node.sw.population << 4 | node.se.population << 5);
+	}
+
+	/**
+	 * @param state The state of the cell (0 or 1).
+	 * @return The canonical single cell with that state.
+	 */
+	private Node cell(int state) {
+		return state != 0 ? alive : dead;
+	}
+
+	/**
+	 * Returns the centre half of a node, without advancing it.
+	 * @param node A node of level 2 or more.
+	 * @return A node one level lower than <code>node</code>.
+	 */
+	private Node centre(Node node) {
+		return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+	}
+
+	/**
+	 * Returns the canonical node made of four quarters, creating it only if it is not already in the cache.
+	 * @param nw The top left quarter.
+	 * @param ne The top right quarter.
+	 * @param sw The bottom left quarter.
+	 * @param se The bottom right quarter.
+	 * @return The node.
+	 */
+	private Node join(Node nw, Node ne, Node sw, Node se) {
+		int hash = nw.hash + 31 * (ne.hash + 31 * (sw.hash + 31 * se.hash));
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+
+		int bucket = hash & (table.length - 1);
+		for(Node node = table[bucket]; node != null; node = node.next) {
+			// The quarters are canonical themselves, so comparing references is enough.
+			if(node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+				return node;
+			}
+		}
+		Node node = new Node(nw, ne, sw, se, hash);
+		node.next = table[bucket];
+		table[bucket] = node;
+		if(++size > table.length - (table.length >>> 2)) {
+			resize(table.length << 1);
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the empty square of a level, creating it if needed.
+	 * @param level The level of the square.
+	 * @return The empty node.
+	 */
+	private Node emptyNode(int level) {
+		if(empty[level] == null) {
+			Node quarter = emptyNode(level - 1);
+			empty[level] = join(quarter, quarter, quarter, quarter);
+		}
+		return empty[level];
+	}
+
+	/**
+	 * Doubles the size of the universe, keeping the current universe in the centre.
+	 */
+	private void expand() {
+		Node border = emptyNode(root.level - 1);
+		long quarter = 1L << (root.level - 1);
+		root = join(join(border, border, border, root.nw), join(border, border, root.ne, border),
+				join(border, root.sw, border, border), join(root.se, border, border, border));
+		originX -= quarter;
+		originY -= quarter;
+	}
+
+	/**
+	 * Returns a copy of a node with one cell changed. Only the nodes on the path down to the cell are replaced.
+	 * @param node The node to change.
+	 * @param x The x-coordinate of the cell, relative to the node.
+	 * @param y The y-coordinate of the cell, relative to the node.
+	 * @param state The new state of the cell.
+	 * @return The changed node.
+	 */
+	private Node set(Node node, long x, long y, int state) {
+		return place(node, x, y, cell(state));
+	}
+
+	/**
+	 * Returns a copy of a node with one of its squares replaced. Only the nodes on the path down to the square are replaced.
+	 * @param node The node to change.
+	 * @param x The x-coordinate of the top left cell of the square, relative to the node. It must be a multiple of the square's size.
+	 * @param y The y-coordinate of the top left cell of the square, relative to the node. It must be a multiple of the square's size.
+	 * @param square The new square, whose level must not be above the node's.
+	 * @return The changed node.
+	 */
+	private Node place(Node node, long x, long y, Node square) {
+		if(node.level == square.level) {
+			return square;
+		}
+		long half = 1L << (node.level - 1);
+		if(y < half) {
+			if(x < half) {
+				return join(place(node.nw, x, y, square), node.ne, node.sw, node.se);
+			}
+			return join(node.nw, place(node.ne, x - half, y, square), node.sw, node.se);
+		}
+		if(x < half) {
+			return join(node.nw, node.ne, place(node.sw, x, y - half, square), node.se);
+		}
+		return join(node.nw, node.ne, node.sw, place(node.se, x - half, y - half, square));
+	}
+
+	/**
+	 * Builds the node for a square of a grid. Squares outside of the grid are empty.
+	 * @param grid The grid to copy.
+	 * @param level The level of the square.
+	 * @param x The x-coordinate of the top left cell of the square.
+	 * @param y The y-coordinate of the top left cell of the square.
+	 * @return The node.
+	 */
+	private Node build(PackedLifeEngine grid, int level, int x, int y) {
+		if(x >= grid.width || y >= grid.height) {
+			return emptyNode(level);
+		}
+		if(level == 0) {
+			return cell(grid.get(x, y));
+		}
+		if(level == 6) {
+			// Each row of a 64x64 square is a single word of the grid, so empty squares can be skipped without looking at their cells.
+			int word = x >>> 6;
+			long any = 0;
+			for(int row = y; row < Math.min(y + 64, grid.height); row++) {
+				any |= grid.current[grid.rowStart(row) + word];
+			}
+			if(any == 0) {
+				return emptyNode(6);
+			}
+		}
+		int half = 1 << (level - 1);
+		return join(build(grid, level - 1, x, y), build(grid, level - 1, x + half, y),
+				build(grid, level - 1, x, y + half), build(grid, level - 1, x + half, y + half));
+	}
+
+	/**
+	 * Builds the node for a square of a chunk of <code>SparseLifeEngine</code>, whose rows are single words.
+	 * @param rows The rows of the chunk.
+	 * @param level The level of the square (at most 6).
+	 * @param x The column of the chunk at the left edge of the square.
+	 * @param y The row of the chunk at the top edge of the square.
+	 * @return The node.
+	 */
+	private Node build(long[] rows, int level, int x, int y) {
+		int size = 1 << level;
+		long columns = (-1L >>> (64 - size)) << x;
+		long any = 0;
+		for(int row = y; row < y + size; row++) {
+			any |= rows[row] & columns;
+		}
+		if(any == 0) {
+			return emptyNode(level);
+		}
+		if(level == 0) {
+			return alive;
+		}
+		int half = size >>> 1;
+		return join(build(rows, level - 1, x, y), build(rows, level - 1, x + half, y),
+				build(rows, level - 1, x, y + half), build(rows, level - 1, x + half, y + half));
+	}
+
+	/**
+	 * Copies the live cells of a node into an engine, skipping anything that is empty or outside of the given bounds.
+	 * @param node The node to copy.
+	 * @param x The x-coordinate of the top left cell of the node.
+	 * @param y The y-coordinate of the top left cell of the node.
+	 * @param engine The engine to copy into.
+	 * @param minX The first column to copy.
+	 * @param minY The first row to copy.
+	 * @param maxX The last column to copy.
+	 * @param maxY The last row to copy.
+	 */
+	private void copy(Node node, long x, long y, LifeEngine engine, long minX, long minY, long maxX, long maxY) {
+		long size = 1L << node.level;
+		if(node.population == 0 || x > maxX || y > maxY || x + size <= minX || y + size <= minY) {
+			return;
+		}
+		if(node.level == 0) {
+			engine.set((int) x, (int) y, 1);
+			return;
+		}
+		long half = size >>> 1;
+		copy(node.nw, x, y, engine, minX, minY, maxX, maxY);
+		copy(node.ne, x + half, y, engine, minX, minY, maxX, maxY);
+		copy(node.sw, x, y + half, engine, minX, minY, maxX, maxY);
+		copy(node.se, x + half, y + half, engine, minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Throws away every node that can not be reached from the universe (or from the results of the nodes that can).
+	 * If that still leaves more than half of the limit, every remembered result is forgotten and only the universe itself is kept.
+	 */
+	private void collectGarbage() {
+		mark();
+		sweep();
+		if(size > maxNodes >>> 1) {
+			forgetResults();
+			mark();
+			sweep();
+		}
+	}
+
+	/**
+	 * Marks the universe, the empty squares, and everything that they lead to (including remembered results).
+	 */
+	private void mark() {
+		ArrayDeque<Node> stack = new ArrayDeque<Node>();
+		stack.push(root);
+		for(Node node : empty) {
+			if(node != null) {
+				stack.push(node);
+			}
+		}
+		while(!stack.isEmpty()) {
+			Node node = stack.pop();
+			if(node.marked || node.level == 0) {
+				continue;
+			}
+			node.marked = true;
+			stack.push(node.nw);
+			stack.push(node.ne);
+			stack.push(node.sw);
+			stack.push(node.se);
+			if(node.result != null) {
+				stack.push(node.result);
+			}
+		}
+	}
+
+	/**
+	 * Removes every unmarked node from the cache, and clears the marks of the rest.
+	 */
+	private void sweep() {
+		size = 0;
+		for(int bucket = 0; bucket < table.length; bucket++) {
+			Node kept = null;
+			Node node = table[bucket];
+			while(node != null) {
+				Node next = node.next;
+				if(node.marked) {
+					node.marked = false;
+					node.next = kept;
+					kept = node;
+					size++;
+				}
+				else {
+					node.next = null;
+				}
+				node = next;
+			}
+			table[bucket] = kept;
+		}
+	}
+
+	/**
+	 * Forgets the remembered result of every node in the cache.
+	 */
+	private void forgetResults() {
+		for(Node bucket : table) {
+			for(Node node = bucket; node != null; node = node.next) {
+				node.result = null;
+			}
+		}
+	}
+
+	/**
+	 * Moves every node into a new table of a different length.
+	 * @param length The new length, which must be a power of two.
+	 */
+	private void resize(int length) {
+		Node[] newTable = new Node[length];
+		for(Node bucket : table) {
+			Node node = bucket;
+			while(node != null) {
+				Node next = node.next;
+				int index = node.hash & (length - 1);
+				node.next = newTable[index];
+				newTable[index] = node;
+				node = next;
+			}
+		}
+		table = newTable;
+	}
+}
@@ -19,6 +19,7 @@ import javax.swing.event.ChangeEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
 import javax.swing.JSpinner;
+import javax.swing.JOptionPane;
 import javax.swing.SpinnerNumberModel;
 
 /**
@@ -46,6 +47,12 @@ public class InitialPopup extends JDialog {
 	/** Default height. Immediately overwritten by the JSpinners in this class.
 	 * @see visualisingCellularAutomata.LifePanel#ySize*/
 	public static int initialHeight = 720;
+	/** Default number of columns in the grid. 0 fits the grid to the width of the window. Immediately overwritten by the JSpinners in this class.
+	 * @see visualisingCellularAutomata.LifePanel#xWidth */
+	public static int initialColumns = 0;
+	/** Default number of rows in the grid. 0 fits the grid to the height of the window. Immediately overwritten by the JSpinners in this class.
+	 * @see visualisingCellularAutomata.LifePanel#yHeight */
+	public static int initialRows = 0;
 	/** Sets the value of <code>initalLoad</code> in <code>LifePanel</code>. 
 	 * @see visualisingCellularAutomata.LifePanel#initialLoad */
 	public static String initialLoad = ""; // By default, we load nothing. The empty string signals LifePanel to initialise its state randomly.
@@ -83,7 +90,7 @@ public class InitialPopup extends JDialog {
 				JPanel panelSizeOptions = new JPanel();
 				panelSizeOptions.setBorder(new EmptyBorder(5, 5, 5, 5));
 				contentPanel.add(panelSizeOptions);
-				panelSizeOptions.setLayout(new GridLayout(3, 2));
+				panelSizeOptions.setLayout(new GridLayout(5, 2));
 				
 				// Get the screen dimensions for default values for height and width.
 				Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
@@ -157,6 +164,46 @@ public class InitialPopup extends JDialog {
 					spinnerHeight.setValue(Math.min(2160, screenHeight)); // Immediately set default value to the screen size, but maximising at 4K resolution.
 					panelSizeOptions.add(spinnerHeight);
 				}
+				
+				// Label for the grid columns text field.
+				{
+					JLabel labelGridColumns = new JLabel("Grid Columns");
+					labelGridColumns.setHorizontalAlignment(SwingConstants.CENTER);
+					panelSizeOptions.add(labelGridColumns);
+				}
+				
+				// The grid columns text field (which is actually a Spinner).
+				{
+					JSpinner spinnerColumns = new JSpinner();
+					spinnerColumns.addChangeListener(new ChangeListener() {
+						public void stateChanged(ChangeEvent e) {
+							initialColumns = (int) spinnerColumns.getValue(); // Set the static int to the value chosen.
+						}
+					});
+					spinnerColumns.setToolTipText("Number of columns of cells, up to 262144. 0 fits the grid to the window. Larger grids can be zoomed and moved around, but need more memory.");
+					spinnerColumns.setModel(new SpinnerNumberModel(0, 0, 262144, 64));
+					panelSizeOptions.add(spinnerColumns);
+				}
+				
+				// Label for the grid rows text field.
+				{
+					JLabel labelGridRows = new JLabel("Grid Rows");
+					labelGridRows.setHorizontalAlignment(SwingConstants.CENTER);
+					panelSizeOptions.add(labelGridRows);
+				}
+				
+				// The grid rows text field (which is actually a Spinner).
+				{
+					JSpinner spinnerRows = new JSpinner();
+					spinnerRows.addChangeListener(new ChangeListener() {
+						public void stateChanged(ChangeEvent e) {
+							initialRows = (int) spinnerRows.getValue(); // Set the static int to the value chosen.
+						}
+					});
+					spinnerRows.setToolTipText("Number of rows of cells, up to 262144. 0 fits the grid to the window. Larger grids can be zoomed and moved around, but need more memory.");
+					spinnerRows.setModel(new SpinnerNumberModel(0, 0, 262144, 32));
+					panelSizeOptions.add(spinnerRows);
+				}
 			}
 		}
 		
@@ -187,44 +234,44 @@ public class InitialPopup extends JDialog {
 			}
 			{
 				JRadioButton startGliderGuns = new JRadioButton("Glider Guns");
-				startGliderGuns.setActionCommand("glider_guns.txt"); // This string indicates to load the file "glider_guns.txt".
+				startGliderGuns.setActionCommand("glider_guns.cas"); // This string indicates to load the file "glider_guns.cas".
 				buttonGroup.add(startGliderGuns);
 				panelButtons.add(startGliderGuns);
 			}
 			{
 				JRadioButton startRakeCrash = new JRadioButton("Rake Crash");
-				startRakeCrash.setActionCommand("rake_crash.txt");
+				startRakeCrash.setActionCommand("rake_crash.cas");
 				buttonGroup.add(startRakeCrash);
 				panelButtons.add(startRakeCrash);
 			}
 			{
 				JRadioButton startDozenGliders = new JRadioButton("Dozen Gliders");
-				startDozenGliders.setActionCommand("dozen_gliders.txt");
+				startDozenGliders.setActionCommand("dozen_gliders.cas");
 				buttonGroup.add(startDozenGliders);
 				panelButtons.add(startDozenGliders);
 			}
 			{
 				JRadioButton startBunnies = new JRadioButton("Bunnies");
-				startBunnies.setActionCommand("bunnies.txt");
+				startBunnies.setActionCommand("bunnies.cas");
 				buttonGroup.add(startBunnies);
 				panelButtons.add(startBunnies);
 			}
 			{
 				JRadioButton startThunderbird = new JRadioButton("Thunderbird");
-				startThunderbird.setActionCommand("thunderbird.txt");
+				startThunderbird.setActionCommand("thunderbird.cas");
 				buttonGroup.add(startThunderbird);
 				panelButtons.add(startThunderbird);
 			}
 			{
 				JRadioButton startFourCastles = new JRadioButton("Four Castles");
-				startFourCastles.setActionCommand("four_castles.txt");
+				startFourCastles.setActionCommand("four_castles.cas");
 				buttonGroup.add(startFourCastles);
 				panelButtons.add(startFourCastles);
 			}
 			{
 				JRadioButton startUserSave = new JRadioButton("User Save");
 				startUserSave.setToolTipText("If no save is found, the simulation will start empty.");
-				startUserSave.setActionCommand("current_save.txt");
+				startUserSave.setActionCommand(LifePanel.SAVE_FILE);
 				buttonGroup.add(startUserSave);
 				panelButtons.add(startUserSave);
 			}
@@ -242,6 +289,11 @@ public class InitialPopup extends JDialog {
 				JButton okButton = new JButton("OK");
 				okButton.addActionListener(new ActionListener() {
 					public void actionPerformed(ActionEvent e) {
+						if(!fitsInMemory(initialColumns, initialRows)) {
+							// Keep the dialog open, so that a smaller grid can be chosen.
+							JOptionPane.showMessageDialog(InitialPopup.this, memoryMessage(initialColumns, initialRows), "Grid too large", JOptionPane.ERROR_MESSAGE);
+							return;
+						}
 						initialLoad = buttonGroup.getSelection().getActionCommand(); // Ensure that the load variable is properly updated.
 						dispose();
 					}
@@ -252,4 +304,27 @@ public class InitialPopup extends JDialog {
 			}
 		}
 	}
+
+	/**
+	 * Checks whether a grid of the chosen size can be held in memory, before the simulation is built.
+	 * Each cell takes a bit, and the grid keeps two generations (the current one and the one before it).
+	 * @param columns The number of columns chosen, or 0 to fit the grid to the window (which always fits).
+	 * @param rows The number of rows chosen, or 0 to fit the grid to the window.
+	 * @return Whether the grid fits in the memory that Java may use.
+	 */
+	static boolean fitsInMemory(int columns, int rows) {
+		return (long) columns * rows / 8 * 2 <= Runtime.getRuntime().maxMemory();
+	}
+	
+	/**
+	 * Tells the user that the grid they chose is too large (see <code>fitsInMemory</code>).
+	 * @param columns The number of columns chosen.
+	 * @param rows The number of rows chosen.
+	 * @return The message to show.
+	 */
+	static String memoryMessage(int columns, int rows) {
+		long needed = (long) columns * rows / 8 * 2;
+		return "A grid of " + columns + " by " + rows + " cells needs about " + (needed >> 20) + " MB, but only "
+				+ (Runtime.getRuntime().maxMemory() >> 20) + " MB is available. Choose fewer columns or rows, or start Java with a larger -Xmx.";
+	}
 }
@@ -0,0 +1,57 @@
+package visualisingCellularAutomata;
+
+/**
+ * A LifeEngine stores the cells of an automaton (their states and ages) and computes its generations.
+ * <code>LifePanel</code> edits and steps the automaton through this interface, so the same drawing, stamping, saving and loading code works with every engine.
+ * @see visualisingCellularAutomata.PackedLifeEngine
+ * @see visualisingCellularAutomata.SparseLifeEngine
+ */
+public interface LifeEngine {
+	/**
+	 * Returns the state of a cell in the current generation.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @return 1 if the cell is alive, 0 if it is dead.
+	 * @throws ArrayIndexOutOfBoundsException If the engine is bounded and (x, y) lies outside of it.
+	 */
+	int get(int x, int y);
+
+	/**
+	 * Returns the number of generations that a cell has survived for.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @return The age of the cell (0-255). Always 0 for a dead cell.
+	 * @throws ArrayIndexOutOfBoundsException If the engine is bounded and (x, y) lies outside of it.
+	 */
+	int getAge(int x, int y);
+
+	/**
+	 * Sets the age of a cell in the current generation.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @param cellAge The new age of the cell. Ages above 255 are stored as 255.
+	 * @throws ArrayIndexOutOfBoundsException If the engine is bounded and (x, y) lies outside of it.
+	 */
+	void setAge(int x, int y, int cellAge);
+
+	/**
+	 * Sets the state of a cell in the current generation. A cell that is brought to life starts with an age of 0.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @param state The new state of the cell. Any non-zero value makes the cell alive.
+	 * @throws ArrayIndexOutOfBoundsException If the engine is bounded and (x, y) lies outside of it.
+	 */
+	void set(int x, int y, int state);
+
+	/**
+	 * Kills every cell and resets every age to 0.
+	 */
+	void clear();
+
+	/**
+	 * Computes the next generation of cells.
+	 * @param rule The compiled ruleset to apply.
+	 * @param wrap If true, a bounded engine wraps around at its edges. Unbounded engines have no edges, so they ignore this.
+	 */
+	void step(Rule rule, boolean wrap);
+}
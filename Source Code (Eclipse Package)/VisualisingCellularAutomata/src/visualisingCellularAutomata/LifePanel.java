@@ -1,414 +1,770 @@
 package visualisingCellularAutomata;
 
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This is what pixels appear on.
+ * The panel is a view onto part of the grid, which can be any size: the view can be zoomed with the mouse wheel and moved by dragging with the right mouse button.
+ * Only the part of the grid that is in view is drawn, but the whole grid is simulated.
+ * Below one pixel per cell, each pixel shows how many of its cells are alive (brighter for more), using the grid's density pyramid, so drawing takes the same time however large the grid is.
+ * 
+ * The automaton is simulated on its own thread (see <code>run</code>), so a slow generation never holds up the rest of the UI.
+ * After each update, the simulation thread draws the cells in view into a <code>ViewSnapshot</code> and hands it over to the Swing thread, which paints the latest snapshot
+ * whenever it repaints the panel. Neither thread ever waits for the other, so generations and frames each go as fast as they can.
+ * Everything that changes the automaton (including the mouse) is done on the simulation thread: the Swing thread only submits them as commands, which are carried out in order between generations (see <code>Command</code> and <code>submit</code>).
  */
-public class LifePanel extends JPanel implements ActionListener, MouseListener, MouseMotionListener {
+public class LifePanel extends JPanel implements Runnable, MouseListener, MouseMotionListener, MouseWheelListener {
 	/** Auto-generated ID. */
 	private static final long serialVersionUID = -5216611180689834553L;	
-	/** The amount of pixels in the x-dimension. */
+	/** The amount of pixels in the x-dimension of the view. */
 	int xSize; 	
-	/** The amount of pixels in the y-dimension. */
+	/** The amount of pixels in the y-dimension of the view. */
 	int ySize;	
-	/** The size in pixels of each cell (square). */
+	/** The size in pixels of each cell (square) at the current zoom. Always one of <code>ZOOM_LEVELS</code>, apart from (possibly) the initial size. 
+	 * When zoomed out below one pixel per cell, this is 1 and <code>cellShift</code> says how many cells share each pixel. */
 	int pixelSize; 	
-	/** xSize divided by pixelSize. 
-	 * @see xSize 
-	 * @see pixelSize */
+	/** When zoomed out below one pixel per cell, each pixel shows a block of (1 &lt;&lt; cellShift) cells square. 0 otherwise. */
+	int cellShift = 0;
+	/** The number of columns in the grid. This does not depend on the size of the view, which only shows part of the grid if the grid is larger. */
 	int xWidth;	
-	/** ySize divided by pixelSize. 
-	 * @see ySize 
-	 * @see pixelSize */
+	/** The number of rows in the grid. This does not depend on the size of the view, which only shows part of the grid if the grid is larger. */
 	int yHeight; 	
+	/** The column of the grid that is at the left edge of the view. */
+	int viewX = 0;
+	/** The row of the grid that is at the top edge of the view. */
+	int viewY = 0;
+	/** The cell sizes (in pixels) that the view can be zoomed between, from furthest out to furthest in. Further out than this, cells share pixels (see <code>cellShift</code>). */
+	static final int[] ZOOM_LEVELS = {1, 2, 3, 4, 5, 6, 8, 10, 12, 15, 20, 25, 30, 40, 50};
+	/** Grid lines are only drawn when cells are at least this many pixels across. Any smaller, and the grid lines would cover most of the view. */
+	static final int MIN_GRID_LINE_SIZE = 4;
+	/** Where the right mouse button was pressed, and where the view was at that point, so that dragging moves the view with the mouse. */
+	private int panStartX, panStartY, panStartViewX, panStartViewY;
+	/** The cell that the left mouse button last drew, so that dragging draws a line from it. Only used by the Swing thread. */
+	private int lastDrawnX, lastDrawnY;
 	
-	/** Stores the grid of cells. This grid is displayed graphically. */
-	Cell lifeArray[][]; 	
-	/** Uses <code>lifeArray</code> to generate the next generation of cells, which are stored in this array. */
-	Cell postLifeArray[][]; 	
+	/** The automaton that this panel shows. Only used by the simulation thread: the UI changes it with commands (see <code>submit</code>).
+	 * Its grid is always what is displayed, so if the plane is unbounded, the part of the plane that the grid covers is copied into it before every repaint.
+	 * @see visualisingCellularAutomata.Simulation */
+	final Simulation simulation;
 	/** The colour of the gridlines. */
 	Color gridColor; 	
 	/** Default colours for the grid and cells to be drawn (Grey and White). Can't be changed by the user (in this version). */
 	Color pixelColor; 
+	/** The grid lines, drawn when the panel is created and whenever the view is zoomed, and then copied onto the screen every frame. */
+	BufferedImage gridImage;
+	/** The snapshot that the simulation thread draws the next frame into. Only used by the simulation thread.
+	 * Each pixel of a snapshot is an index into a palette of colours (see <code>cellPalette</code>). Index 0 is transparent and used for dead cells, so the grid lines show through them. */
+	private ViewSnapshot drawing;
+	/** The snapshot that was handed over last, if the Swing thread has not taken it yet (in which case it is <code>fresh</code>), or else the snapshot that the Swing thread painted before it. */
+	private final AtomicReference<ViewSnapshot> handover;
+	/** The snapshot that is on the screen. Only used by the Swing thread. */
+	private ViewSnapshot shown;
+	/** Set when the simulation thread skips drawing a snapshot because the Swing thread has not taken the last one yet, so that the Swing thread wakes it once it has. */
+	private volatile boolean snapshotSkipped = false;
+	/** Commands from the UI (and the file thread), waiting to be carried out by the simulation thread, in order. See <code>submit</code>. */
+	private final ConcurrentLinkedQueue<Command> commands = new ConcurrentLinkedQueue<Command>();
+	/** The command that finishes the load or import that is in progress (see <code>reading</code>), once the file thread has read the file. It is kept apart from <code>commands</code>,
+	 * so that it can overtake the commands that are waiting for it. */
+	private final ConcurrentLinkedQueue<Command> readResults = new ConcurrentLinkedQueue<Command>();
+	/** Whether a save or pattern is being read on the file thread. While it is, the simulation carries on, but the commands that were submitted after the load (or import) wait in 
+	 * <code>commands</code> until it has been applied, so that they change the new automaton rather than being overwritten by it. Only used by the simulation thread. */
+	private boolean reading = false;
+	/** The thread that updates the automaton and draws the snapshots. It runs until it is interrupted. */
+	Thread simulationThread;
+	/** When the next generation is due (or in turbo mode, the next frame), as a <code>System.nanoTime</code>. Only used by the simulation thread. */
+	private long nextGenerationTime;
+	/** The time between frames in turbo mode, in nanoseconds (60 frames per second). */
+	static final long FRAME_INTERVAL = 1000000000L / 60;
+	/** The number of snapshots that the Swing thread has painted. Only written by the Swing thread. */
+	private volatile int framesPainted = 0;
+	/** The number of generations computed per second, measured over the last second. */
+	volatile int generationsPerSecond = 0;
+	/** The number of new frames painted per second, measured over the last second. */
+	volatile int framesPerSecond = 0;
+	/** Called on the Swing thread whenever <code>generationsPerSecond</code> and <code>framesPerSecond</code> have been measured, so that the UI can show them. May be null. */
+	Runnable speedListener;
+	/** The thread that saves, loads, imports and exports files, so that neither the simulation nor the UI waits for the disk. Files are saved and loaded one at a time, 
+	 * in the order that they were asked for, so a load always sees a save that was asked for before it. */
+	private final ExecutorService fileThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "File I/O");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	/** What the last save, load, import or export is doing, or how it ended (e.g. "Saving..." or "Load failed: ..."), or why the last thing that was asked for could not be done. */
+	volatile String status = "";
+	/** Called on the Swing thread whenever <code>status</code> changes, so that the UI can show it. May be null. */
+	Runnable statusListener;
+	/** Whether grid wrapping was on in the last save that was loaded, as it was when the save was swapped in. */
+	volatile boolean loadedWrapping = true;
+	/** The rules of the automaton as they were when the last save was swapped in (or a pattern that gives its rules was imported), which are the file's own rules if it has them. */
+	volatile Rule loadedRule;
+	/** Called on the Swing thread after a save has been loaded, since the save may have changed grid wrapping and the rules (see <code>loadedWrapping</code> and <code>loadedRule</code>),
+	 * and after a pattern that gives its rules has been imported. May be null. */
+	Runnable loadListener;
+	/** The status shown while the automaton can not move (see <code>Simulation.canStep</code>). */
+	static final String STALLED_STATUS = "Stopped: rules with B0 can not run on the unbounded plane";
+	/** Whether the last generation asked for could not be created, so <code>STALLED_STATUS</code> has been shown. Only used on the simulation thread. */
+	private boolean stalled = false;
+	/** Whether each tile of <code>grid</code> (see <code>PackedLifeEngine.takeChangedTiles</code>) has changed since the last snapshot was drawn. Only used inside <code>repaintChanges</code>. */
+	boolean[] changedTiles;
+	/** The generation of the simulation (see <code>Simulation.generationCount</code>) when each tile of <code>grid</code> last changed. 
+	 * While the heatmap is enabled, the cells in a tile keep changing colour for a while after it changes (as they get older), so the tile keeps being redrawn. */
+	int[] tileChangedAt;
+	/** The generation of the simulation when the last snapshot was drawn. */
+	int shownGeneration = 0;
+	/** Whether the heatmap was enabled when the last snapshot was drawn. */
+	boolean shownHeatmap = true;
+	/** Signals to redraw the whole panel next time, rather than only the tiles whose cells have changed. 
+	 * Needed when cells change colour without changing state, e.g. when their ages are loaded or reset. */
+	boolean repaintAll = true;
+	/** The number of heatmap colours. The colour fades by 10 every generation, so every cell aged 26 or above is the same red. */
+	static final int HEATMAP_COLOURS = 27;
+	/** The palette index of the plain cell colour, used when the heatmap is disabled. It comes straight after the heatmap colours. */
+	static final byte PLAIN_INDEX = HEATMAP_COLOURS + 1;
+	/** The palette index of a live cell at every age (0-255) when the heatmap is enabled: white for newborn cells, fading to red for cells aged 26 and above. */
+	static final byte[] HEATMAP_INDEX = new byte[256];
+	/** The number of shades used when zoomed out below one pixel per cell, from the dimmest (a block with few live cells) to the plain cell colour (a full block). */
+	static final int DENSITY_SHADES = 32;
+	static {
+		for(int age = 0; age < 256; age++) {
+			HEATMAP_INDEX[age] = (byte) (1 + Math.min(age, HEATMAP_COLOURS - 1));
+		}
+	}
 	
-	/* Public static properties that the user interacts with to influence the behaviour of the program follow. */
+	/** The file that the automaton is saved to. The Load button loads it back. */
+	static final String SAVE_FILE = "current_save.cas";
+	/** The file that older versions saved the automaton to, in the text format. It is loaded instead of <code>SAVE_FILE</code> until the automaton is first saved in the new format. */
+	static final String OLD_SAVE_FILE = "current_save.txt";
+	/** The file that patterns are exported to, as RLE. */
+	static final String EXPORT_FILE = "current_pattern.rle";
 	
-	/** Default update delay = 75ms. */
-	public static Timer timer = new Timer(75, null); 
-	/** This string determines which file to load. Default value does not matter. */
-	public static String saveToLoad = "current_save.txt"; 
-	/** An empty string indicates to randomly load. Otherwise, load the save specified by the string. 
-	 * Effectively controlled by <code>InitialPopup</code> class, and is only ever set once (when the program starts).
-	 * @see visualisingCellularAutomata.InitialPopup*/
-	public static String initialLoad = ""; 
+	/* Properties that the user interacts with to influence how this panel shows its automaton follow. Each panel has its own.
+	 * They are set by the Swing thread and read by the simulation thread, so they are volatile. Anything that changes the automaton itself is a command instead. */
+	
+	/** The time between generations in milliseconds. Default update delay = 75ms. Not used in turbo mode. */
+	volatile int generationDelay = 75; 
+	/** Enables / disables turbo mode, which computes several generations for every frame instead of waiting <code>generationDelay</code> between generations. 
+	 * @see turboGenerations */
+	volatile boolean turboFlag = false;
+	/** The number of generations to compute for every frame in turbo mode. 0 computes as many as the engine can before the next frame is due. */
+	volatile int turboGenerations = 0;
 	/** Default stamp is no stamp at all, indicated by 0. */
-	public static int stampToUse = 0;
+	volatile int stampToUse = 0;
 	/** Default draw state of 0 is to draw live cells. */		
-	public static int drawState = 0; 
-	
-	/** Determines if the simulation should be paused or not. */
-	public static boolean pauseFlag = true;
-	/** Signals to generate the next generation and immediately pause. */
-	public static boolean singleStepFlag = false;
-	/** Signals to clear all cells in the simulation. */
-	public static boolean emptyAutomatonFlag = false;
-	/** Enables / disables the heatmap functionality. */
-	public static boolean heatmapFlag = true;
-	/** Signals to save the current state of the simulation. */
-	public static boolean saveFlag = false;
-	/** Signals to load a save, determined by <code>saveToLoad</code>. 
-	 * @see saveToLoad */
-	public static boolean loadFlag = false;
-	/** Enables / disables the grid wrapping functionality. */
-	public static boolean gridWrapFlag = true;
-	/** Signals to randomly set the states of all cells in the simulation. */
-	public static boolean randomState = false;
+	volatile int drawState = 0; 
+	/** Enables / disables the heatmap functionality. While it is disabled, the ages of cells are not tracked, which saves some work. */
+	volatile boolean heatmapFlag = true;
 	
-	/** This stores the rules that result in a dead cell becoming alive. Default is Conway's Game of Life. */
-	public static Set<Integer> birthSet = new HashSet<Integer>(Arrays.asList(3)); 
-	/** This stores the rules that result in an alive cell staying alive. Default is Conway's Game of Life. */
-	public static Set<Integer> survivalSet = new HashSet<Integer>(Arrays.asList(2,3)); 
+	/** Whether the simulation is paused. Only used by the simulation thread: the UI pauses and un-pauses it with <code>Command.pause</code> and <code>Command.run</code>. */
+	boolean paused = true;
 	
 	/**
 	 * This unique constructor creates a <code>LifePanel</code> object. Its arguments' values will be dependent on user input.
-	 * Only one specific type of <code>LifePanel</code> object can exist, which explains why there is only one constructor.
-	 * @param xSize The number of columns in the array.
-	 * @param ySize The number of rows in the array.
-	 * @param pixelSize The size that each cell will be when displayed graphically. Influences xSize and ySize.
+	 * Each panel shows its own <code>Simulation</code>, on its own thread, so several panels can run side by side without affecting each other.
+	 * @param xSize The width of the view in pixels.
+	 * @param ySize The height of the view in pixels.
+	 * @param pixelSize The size that each cell will be when displayed graphically, until the view is zoomed.
+	 * @param gridColumns The number of columns in the grid, or 0 to fit the grid to the width of the view.
+	 * @param gridRows The number of rows in the grid, or 0 to fit the grid to the height of the view.
 	 * @param gridColor The default colour of the grid (used American spelling as the class is Color).
 	 * @param pixelColor The default colour of a cell. Can not be changed due to the existence of the heatmap.
 	 * @param initialLoad The initial state to start the automaton with. The user selects a save to start with using SizePopup.java, and the save file's name passed from it is used for initialLoad. If no save is chosen, it is an empty string.
 	 */
-	public LifePanel(int xSize, int ySize, int pixelSize, Color gridColor, Color pixelColor, String initialLoad) {
+	public LifePanel(int xSize, int ySize, int pixelSize, int gridColumns, int gridRows, Color gridColor, Color pixelColor, String initialLoad) {
 		// Set object attributes from the arguments.
 		this.xSize = xSize;
 		this.ySize = ySize;
 		this.pixelSize = pixelSize;
-		this.xWidth = xSize / pixelSize;
-		this.yHeight = ySize / pixelSize;
-		this.lifeArray = new Cell[xWidth][yHeight];
-		this.postLifeArray = new Cell[xWidth][yHeight];
+		this.xWidth = gridColumns > 0 ? gridColumns : xSize / pixelSize;
+		this.yHeight = gridRows > 0 ? gridRows : ySize / pixelSize;
+		this.simulation = new Simulation(xWidth, yHeight); // All cells start dead, with an age of 0.
+		this.loadedRule = simulation.getRule();
 		this.gridColor = gridColor;
 		this.pixelColor = pixelColor;
+		this.changedTiles = new boolean[simulation.grid.tilesX * simulation.grid.tilesY];
+		this.tileChangedAt = new int[simulation.grid.tilesX * simulation.grid.tilesY];
 		
-		// Initialise array by filling them with Cells (with values of 0,0).
-		for(int i = 0; i < (xWidth); i++) {
-			for(int j = 0; j < (yHeight); j++) {
-				lifeArray[i][j] = new Cell();
-				postLifeArray[i][j] = new Cell();
-			}
-		}
+		// The grid lines only change when the view is zoomed, so they are drawn here (and after zooming) rather than every frame.
+		drawGridImage();
+		
+		// Create the three snapshots. Each is big enough for the view at the smallest cell size.
+		IndexColorModel palette = cellPalette(pixelColor);
+		this.drawing = new ViewSnapshot(xSize, ySize, palette, gridImage);
+		this.handover = new AtomicReference<ViewSnapshot>(new ViewSnapshot(xSize, ySize, palette, gridImage));
+		this.shown = new ViewSnapshot(xSize, ySize, palette, gridImage);
 		
 		// Initialise the cells of the automaton. Can be via a saved file or simply randomly set. Governed by SizePopup.java.
 		if(!initialLoad.contentEquals("")) { // If the string has a value, load the save with the name equal to the string.
-			saveToLoad = initialLoad;
-			loadFlag = true; // Start the simulation, and immediately signal it to load the given save.			
+			submit(Command.load(initialLoad)); // Start the simulation, and immediately have it load the given save.			
 		}
-		else { // If the user didn't choose a starting save, randomly initialise cells.
-			randomSpawn();
+		else { // If the user didn't choose a starting save, randomly initialise cells. The seed is shown, so that the same start can be made again.
+			reportSoup(simulation.randomize(), Simulation.DEFAULT_DENSITY);
 		}
 		
-		// Add mouse listeners to the object. Allows the user to be able to draw and use stamps.
+		// Add mouse listeners to the object. Allows the user to be able to draw and use stamps, and to move and zoom the view.
 		addMouseMotionListener(this);
 		addMouseListener(this);
+		addMouseWheelListener(this);
 		
 		// Set the JPanel up. Allows for graphics to be displayed.
 		setSize(this.xSize, this.ySize);
 		setLayout(null); // There is no layout for this panel as it is purely graphical.
 		setBackground(Color.BLACK);
 		
-		// Set the timer to listen to this object and start it. 
-		// It will never be paused, as pausing the timer makes it more difficult and inefficient to interact with the simulation when paused.
-		timer.addActionListener(this); 
-		timer.start();
+		// Start simulating. The thread is a daemon, so it does not keep the program running once the window is closed.
+		simulationThread = new Thread(this, "Simulation");
+		simulationThread.setDaemon(true);
+		simulationThread.start();
 	}
 	
 	/**
 	 * Handles the drawing of the graphics of live pixels.
+	 * The cells were already drawn into a snapshot by the simulation thread, so this takes the latest snapshot (if there is a new one) and copies it onto the screen.
+	 * Usually only part of the panel is being redrawn (see <code>repaintChanges</code>), in which case only that part of the snapshot is copied.
 	 * @param g The Graphics object used to draw onto the screen. Arbitrarily named.
 	 */
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g); // Required for use of paintComponent.
 		
-		// Every frame, the grid is drawn. 
-		g.setColor(gridColor);	
-		gridCreator(g); // This may sound inefficient, but it isn't and it is actually the only one: "hard-drawing" the grid is inflexible and undesirable.
+		// Swap the snapshot on screen for the newest one, if there is one. The old one goes back to the simulation thread to be drawn into again.
+		if(handover.get().fresh) {
+			shown.fresh = false;
+			shown = handover.getAndSet(shown);
+			framesPainted++;
+			if(snapshotSkipped) { // Changes were made while the snapshot was waiting, so draw them now rather than when the next generation is due.
+				snapshotSkipped = false;
+				LockSupport.unpark(simulationThread);
+			}
+		}
+		
+		// Every frame, the grid is drawn. It was drawn into an image when the view was last zoomed, so this is a single copy.
+		g.drawImage(shown.gridLines, 0, 0, null);
 		
-		// Draw the live cells to the screen.
-		displayPixels(g);
+		// Draw the live cells to the screen, scaling them up so that each pixel fills its cell. Nearest neighbour scaling keeps the cells sharp.
+		((Graphics2D) g).setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		g.drawImage(shown.cells, 0, 0, shown.columns * shown.pixelSize, shown.rows * shown.pixelSize, 0, 0, shown.columns, shown.rows, null);
 	}
 	
 	/**
-	 * This method iterates through the current 2D array of cells and displays them on the life panel.
-	 * @param g The Graphics object used to draw onto the screen. Arbitrarily named.
+	 * Creates the palette of the snapshots: transparent for dead cells, then the heatmap colours from newborn to oldest, then the plain cell colour, then the density shades.
+	 * Only the transparent entry is see-through, so the image is drawn without any blending, which is much faster than a fully translucent image.
+	 * @param pixelColor The colour of a cell when the heatmap is disabled.
+	 * @return The palette.
 	 */
-	private void displayPixels(Graphics g) {
-		g.setColor(pixelColor); // Set the pixel colour to the default.
-		copyLifeArray(); // Copy the generated array into the array that is actually displayed onto the screen.
-		for(int i = 0; i < (xWidth); i++) {
-			for(int j = 0; j < (yHeight); j++) {
-				if(lifeArray[i][j].state == 1) { // if the cell is active, then colour it.
-					if(heatmapFlag) { // Set the pixel colour according to the cell's age, only if the user has decided to enable the heatmap.
-						g.setColor(
-								new Color(255, 
-								Math.max(0, (255-(lifeArray[i][j].age*10))), 
-								Math.max(0, (255-(lifeArray[i][j].age*10)))
-								));
-					// If the timer were paused, enabling and disabling heatmap colour would only be possible while the simulation was running.
-					// This is part of the reason why the timer is never paused.
-					} 
-					
-					// Fill the cell with the set colour.
-					g.fillRect(i*pixelSize, j*pixelSize, pixelSize, pixelSize);
+	private static IndexColorModel cellPalette(Color pixelColor) {
+		int[] colours = new int[PLAIN_INDEX + DENSITY_SHADES + 1]; // Entry 0 stays transparent.
+		for(int age = 0; age < HEATMAP_COLOURS; age++) {
+			int fade = Math.max(0, 255 - age * 10);
+			colours[1 + age] = new Color(255, fade, fade).getRGB();
+		}
+		colours[PLAIN_INDEX] = pixelColor.getRGB();
+		for(int shade = 1; shade <= DENSITY_SHADES; shade++) { // The density shades come straight after the plain colour, which is the brightest of them.
+			colours[PLAIN_INDEX + shade] = new Color(pixelColor.getRed() * shade / DENSITY_SHADES, pixelColor.getGreen() * shade / DENSITY_SHADES, 
+					pixelColor.getBlue() * shade / DENSITY_SHADES).getRGB();
+		}
+		return new IndexColorModel(8, colours.length, colours, 0, true, 0, DataBuffer.TYPE_BYTE);
+	}
+	
+	/**
+	 * This method draws the cells in view into a snapshot, ready to be handed over to the Swing thread. Along with the cells, it records the view that they were drawn from.
+	 * @param snapshot The snapshot to draw into. It must not be in use by the Swing thread.
+	 */
+	private void drawSnapshot(ViewSnapshot snapshot) {
+		snapshot.gridLines = gridImage;
+		snapshot.pixelSize = pixelSize;
+		snapshot.cellShift = cellShift;
+		snapshot.viewX = viewX;
+		snapshot.viewY = viewY;
+		if(cellShift > 0) {
+			drawDensity(snapshot);
+		}
+		else {
+			drawCells(snapshot);
+		}
+	}
+
+	/**
+	 * This method iterates through the live cells in view and draws them into a snapshot.
+	 * Each live cell is written as one pixel of the snapshot, which is scaled up by <code>pixelSize</code> when it is painted.
+	 * Colours are palette indices, so nothing is allocated while drawing.
+	 * @param snapshot The snapshot to draw into.
+	 */
+	private void drawCells(ViewSnapshot snapshot) {
+		// The number of columns and rows of cells in view. The last ones may only be partly in view.
+		int columns = Math.min(xWidth - viewX, (xSize + pixelSize - 1) / pixelSize);
+		int rows = Math.min(yHeight - viewY, (ySize + pixelSize - 1) / pixelSize);
+		snapshot.columns = columns;
+		snapshot.rows = rows;
+		int fromX = viewX; // The first column of the grid to draw.
+		int toX = viewX + columns - 1; // The last column of the grid to draw.
+		byte[] pixels = snapshot.pixels;
+		PackedLifeEngine grid = simulation.grid;
+
+		for(int r = 0; r < rows; r++) {
+			int j = viewY + r; // The row of the grid.
+			int rowOffset = r * snapshot.scanline - viewX; // Column i of the grid is at (rowOffset + i) in the snapshot.
+			Arrays.fill(pixels, rowOffset + fromX, rowOffset + toX + 1, (byte) 0); // Every cell starts transparent (dead).
+			int start = grid.rowStart(j);
+			for(int w = fromX >>> 6; w <= toX >>> 6; w++) {
+				long word = grid.current[start + w];
+				if(w == fromX >>> 6) {
+					word &= -1L << fromX; // Skip the cells to the left of the view. Long shift distances are taken modulo 64.
+				}
+				if(w == toX >>> 6) {
+					word &= -1L >>> (63 - (toX & 63)); // Skip the cells to the right of the view.
+				}
+				while(word != 0) { // Only visit the live cells in each word. Words with no live cells are skipped entirely.
+					int i = (w << 6) + Long.numberOfTrailingZeros(word);
+					word &= word - 1; // Clear the lowest set bit, i.e. the cell that is about to be drawn.
+					// Set the pixel colour according to the cell's age, only if the user has decided to enable the heatmap.
+					pixels[rowOffset + i] = heatmapFlag ? HEATMAP_INDEX[grid.ageOf(i, j)] : PLAIN_INDEX;
 				}
 			}
 		}
 	}
-	
+
 	/**
-	 * This flexible method creates a grid based on the number of cells and the size of cell graphics to be used.
+	 * This method draws the grid into a snapshot when it is zoomed out below one pixel per cell. Each pixel is shaded by how many of the cells in its block are alive, 
+	 * which is read from the density pyramid of <code>grid</code>. The time taken depends only on the number of pixels, not on the number of cells.
+	 * The heatmap is not shown at this zoom, as a single pixel holds cells of many different ages.
+	 * @param snapshot The snapshot to draw into.
+	 */
+	private void drawDensity(ViewSnapshot snapshot) {
+		int blockSize = 1 << cellShift;
+		int columns = Math.min(xSize, (xWidth - viewX + blockSize - 1) >> cellShift);
+		int rows = Math.min(ySize, (yHeight - viewY + blockSize - 1) >> cellShift);
+		snapshot.columns = columns;
+		snapshot.rows = rows;
+		int blockX = viewX >> cellShift; // The view always starts on the edge of a block (see moveView).
+		int blockY = viewY >> cellShift;
+		int areaShift = 2 * cellShift; // Each block holds (1 << areaShift) cells.
+		PackedLifeEngine grid = simulation.grid;
+		for(int r = 0; r < rows; r++) {
+			for(int c = 0; c < columns; c++) {
+				long count = grid.liveCells(cellShift, blockX + c, blockY + r);
+				// Round the shade up, so that a block with any live cells in it is never drawn as empty.
+				snapshot.pixels[r * snapshot.scanline + c] = count == 0 ? 0 : (byte) (PLAIN_INDEX + ((count * DENSITY_SHADES + (1L << areaShift) - 1) >> areaShift));
+			}
+		}
+	}
+
+	/**
+	 * This flexible method creates a grid based on the number of cells in view and the size of cell graphics to be used.
+	 * It is only called when the cell size changes, to draw the grid into <code>gridImage</code>.
 	 * @param g The Graphics object used to draw onto the screen. Arbitrarily named.
 	 */
 	private void gridCreator(Graphics g) {
-		for(int i = 0; i < (yHeight); i++) {
-			g.drawLine(0, i*pixelSize, xSize, i*pixelSize); // Draws rows.
+		int width = Math.min(xSize, xWidth * pixelSize); // The grid lines stop at the edge of the grid, if it is smaller than the view.
+		int height = Math.min(ySize, yHeight * pixelSize);
+		for(int i = 0; i * pixelSize < height; i++) {
+			g.drawLine(0, i*pixelSize, width, i*pixelSize); // Draws rows.
 		}
-		
-		for(int i = 0; i < (xWidth); i++) {				
-			g.drawLine(i*pixelSize, 0, i*pixelSize, ySize); // Draws columns.
+
+		for(int i = 0; i * pixelSize < width; i++) {
+			g.drawLine(i*pixelSize, 0, i*pixelSize, height); // Draws columns.
 		}
 	}
-	
+
 	/**
-	 * This method handles the random spawning of a start state.
-	 * It sets cells in the automaton to age = 0, and some will randomly be state 1, and the rest are randomly state 0.
-	 * With a 30% chance, a lot of cells that are made active will immediately die to overpopulation (default rules are Conway's Game of Life).
-	 * This results in consistently "appropriate" starting states using this random initialisation.
+	 * Draws the grid lines into a new <code>gridImage</code> for the current cell size. The grid lines are left out if the cells are too small for them.
+	 * The old image may still be on the screen, so it is replaced rather than drawn over.
 	 */
-	private void randomSpawn() {
-		emptyAutomaton();
-		float randomNum = 0; // Initialise a random number variable. Automatically disposed.
-		Random random = new Random(System.currentTimeMillis()); // Initialise a random number generator with a seed of the current time. Automatically disposed.
-		for(int i = 0; i < (xWidth); i++) {
-			for(int j = 0; j < (yHeight); j++) {
-				randomNum = random.nextFloat(); // Generate a number in (0, 1].
-				if (randomNum < 0.3) { // A value of 0.3 was chosen, as 0.5 ended up with patterns that were far too dense.
-					postLifeArray[i][j].state = 1;
-					postLifeArray[i][j].age = 0;
-					lifeArray[i][j].state = 1;
-					lifeArray[i][j].age = 0;
-				}
-				else {
-					postLifeArray[i][j].state = 0;
-					postLifeArray[i][j].age = 0;
-					lifeArray[i][j].state = 0;
-					lifeArray[i][j].age = 0;
+	private void drawGridImage() {
+		gridImage = new BufferedImage(xSize, ySize, BufferedImage.TYPE_INT_RGB);
+		Graphics gridGraphics = gridImage.getGraphics();
+		gridGraphics.setColor(Color.BLACK); // The background of the panel.
+		gridGraphics.fillRect(0, 0, xSize, ySize);
+		if(pixelSize >= MIN_GRID_LINE_SIZE) {
+			gridGraphics.setColor(gridColor);
+			gridCreator(gridGraphics);
+		}
+		gridGraphics.dispose();
+	}
+
+	/**
+	 * Moves the view so that the given cell is at its top left corner. The view is kept on the grid: if the grid is smaller than the view, the view stays at (0, 0).
+	 * When zoomed out below one pixel per cell, the view is moved to the edge of a block, so that every pixel lines up with a block of the density pyramid.
+	 * The whole panel is redrawn if the view has moved.
+	 * @param x The column of the grid to put at the left edge of the view.
+	 * @param y The row of the grid to put at the top edge of the view.
+	 */
+	void moveView(int x, int y) {
+		x = Math.max(0, Math.min(x, xWidth - (xSize / pixelSize << cellShift)) & -(1 << cellShift));
+		y = Math.max(0, Math.min(y, yHeight - (ySize / pixelSize << cellShift)) & -(1 << cellShift));
+		if(x != viewX || y != viewY) {
+			viewX = x;
+			viewY = y;
+			repaintAll = true;
+		}
+	}
+
+	/**
+	 * Zooms the view in or out by a number of zoom levels, keeping the cell under a given point of the view in the same place.
+	 * Beyond the smallest cell size, each zoom level out halves the number of pixels per cell, until the whole grid fits into the view.
+	 * @param steps The number of zoom levels to zoom in by (or out by, if negative).
+	 * @param px The x-coordinate of the point in the view (in pixels) to zoom about.
+	 * @param py The y-coordinate of the point in the view (in pixels) to zoom about.
+	 */
+	void zoom(int steps, int px, int py) {
+		// Zoom levels below one pixel per cell are numbered from -1 downwards, by how many times the cells have been halved.
+		int level = -cellShift;
+		if(cellShift == 0) {
+			while(level < ZOOM_LEVELS.length - 1 && ZOOM_LEVELS[level] < pixelSize) {
+				level++; // Find the current zoom level.
+			}
+		}
+		int maxShift = 0;
+		while((xWidth - 1) >> maxShift >= xSize || (yHeight - 1) >> maxShift >= ySize) {
+			maxShift++; // Zooming out any further than this would leave the whole grid in a corner of the view.
+		}
+		level = Math.max(-maxShift, Math.min(ZOOM_LEVELS.length - 1, level + steps));
+		int newShift = Math.max(0, -level);
+		int newSize = ZOOM_LEVELS[Math.max(0, level)];
+		if(newShift == cellShift && newSize == pixelSize) {
+			return;
+		}
+		int cellX = columnAt(px);
+		int cellY = rowAt(py);
+		pixelSize = newSize;
+		cellShift = newShift;
+		drawGridImage();
+		moveView(cellX - (px / pixelSize << cellShift), cellY - (py / pixelSize << cellShift));
+		repaintAll = true;
+	}
+
+	/**
+	 * Returns the column of the grid under a point of the view. When zoomed out below one pixel per cell, this is the first column of the pixel's block.
+	 * @param x The x-coordinate of the point in the view (in pixels).
+	 * @return The column of the grid.
+	 */
+	int columnAt(int x) {
+		return viewX + (x / pixelSize << cellShift);
+	}
+
+	/**
+	 * Returns the row of the grid under a point of the view. When zoomed out below one pixel per cell, this is the first row of the pixel's block.
+	 * @param y The y-coordinate of the point in the view (in pixels).
+	 * @return The row of the grid.
+	 */
+	int rowAt(int y) {
+		return viewY + (y / pixelSize << cellShift);
+	}
+
+	/**
+	 * This method computes one frame's worth of generations in turbo mode: <code>turboGenerations</code> of them, or if that is 0, as many as fit before the next frame is due.
+	 * At least one generation is always computed, so turbo mode still makes progress when a single generation takes longer than a frame.
+	 * Only the last generation is drawn, so the generations in between cost nothing to display.
+	 */
+	void turboFrame() {
+		int target = turboGenerations;
+		int computed = 0;
+		do {
+			if(!step()) {
+				return;
+			}
+			computed++;
+		} while(target > 0 ? computed < target : System.nanoTime() - nextGenerationTime < 0);
+	}
+
+	/**
+	 * This method computes the next generation. If the automaton can not move (see <code>Simulation.canStep</code>), the reason is shown as the status instead,
+	 * until it can move again.
+	 * @return True if a generation was computed.
+	 */
+	boolean step() {
+		if(simulation.step()) {
+			if(stalled) {
+				stalled = false;
+				if(status.equals(STALLED_STATUS)) { // Unless something else has been shown since.
+					reportStatus("");
 				}
 			}
+			return true;
 		}
+		if(!stalled) {
+			stalled = true;
+			reportStatus(STALLED_STATUS);
+		}
+		return false;
 	}
 	
 	/**
-	 * This method applies rules and creates the next generation's life array (<code>postLifeArray</code>).
-	 * First, check live cells against survival rules - if one applies, then the live cell will stay alive.
-	 * Second, check dead cells against birth rules - if one applies, then the dead cell becomes alive.
-	 * If no rules apply, then a live cell dies and a dead cell remains dead.
-	 * This forms all possible rulesets of lifelike cellular automata.
+	 * This method jumps forward by 2^<code>exponent</code> generations at once, using HashLife (see <code>Simulation.fastForward</code>).
+	 * Rules with B0 and wrapping grids can not be fast-forwarded, in which case the automaton is left as it is and the reason is shown as the status.
+	 * @param exponent The size of the jump, as a power of two.
 	 */
-	void nextGeneration() {		
-		int neighbours;
+	void fastForward(int exponent) {
+		try {
+			simulation.fastForward(exponent);
+			repaintAll = true; // Every age was reset, so even cells that are in the same state as before may have changed colour.
+		}
+		catch(IllegalArgumentException e) {
+			reportStatus("Fast-forward failed: " + e.getMessage()); // The grid wraps, the rule contains B0, or the exponent is out of range. Either way, the automaton is unchanged.
+		}
+	}
 	
-		for(int i = 0; i < (xWidth); i++) {
-			for(int j = 0; j < (yHeight); j++) {
-				neighbours = check(i, j);
-				
-				if(lifeArray[i][j].state == 1 && survivalSet.contains(neighbours)) { // If birth rule applies:
-					postLifeArray[i][j].age = Math.min(255, (postLifeArray[i][j].age+1)); // This ensures that age never increases past 255 (preventing high use of resources).
+	/**
+	 * This method replaces the automaton with a random soup (see <code>Simulation.randomize</code>), and shows its seed and density as the status,
+	 * so that the user can make the same soup again.
+	 * @param seed The seed of the soup.
+	 * @param density The chance of each cell being alive (0-1).
+	 */
+	void randomize(long seed, double density) {
+		try {
+			simulation.randomize(seed, density);
+			reportSoup(seed, density);
+		}
+		catch(IllegalArgumentException e) {
+			reportStatus("Randomise failed: " + e.getMessage()); // The density is out of range, so the automaton is unchanged.
+		}
+	}
+
+	/**
+	 * Shows the seed and density of a random soup as the status.
+	 * @param seed The seed of the soup.
+	 * @param density The chance of each cell being alive (0-1).
+	 */
+	private void reportSoup(long seed, double density) {
+		reportStatus("Random soup: seed " + seed + ", " + Math.round(density * 1000) / 10.0 + "% alive");
+	}
+	
+	/**
+	 * This method saves the current state of the automaton (with its ruleset and grid wrapping) to <code>SAVE_FILE</code>.
+	 * Only a snapshot of the grid is taken here, which is cheap (see <code>PackedLifeEngine.snapshot</code>). The snapshot is written on the file thread,
+	 * so the simulation carries on while it is being saved, and the save holds the automaton exactly as it was when the user asked for it.
+	 * The file is replaced in one step once the save is complete, so a save that fails part of the way through leaves the last save as it was.
+	 * If the plane is unbounded, only the part of it that the grid covers is saved.
+	 * @see visualisingCellularAutomata.SaveFormat#writeFile
+	 */
+	public void saveFile() {
+		final PackedLifeEngine snapshot = simulation.snapshot();
+		final Rule savedRule = simulation.getRule();
+		final boolean savedWrap = simulation.isWrapping();
+		reportStatus("Saving...");
+		fileThread.execute(new Runnable() {
+			public void run() {
+				try {
+					long size = SaveFormat.writeFile(Paths.get(SAVE_FILE), snapshot, savedRule, savedWrap);
+					reportStatus("Saved (" + (size + 1023) / 1024 + " KB)");
+				}
+				catch(IOException e) {
+					reportStatus("Save failed: " + describe(e));
 				}
-				else if(lifeArray[i][j].state == 0 && birthSet.contains(neighbours)) { // Else, if survival rule applies:
-					postLifeArray[i][j].state = 1;
+			}
+		});
+	}
+
+	/**
+	 * This method loads a saved file, and sets the program to begin simulation from the loaded state.
+	 * Both the binary format and the old text format can be loaded. The rules and grid wrapping stored in a binary save replace the current ones.
+	 * If the save is larger than the grid, only the part of it that fits is loaded. If it is smaller, the rest of the grid is left empty.
+	 * 
+	 * The save is read into a new grid on the file thread, while the simulation carries on. Once it has been read, the new grid is swapped in between two generations
+	 * (by <code>Command.loaded</code>), so the automaton jumps straight from its old state to the loaded one. If the save can not be read, the automaton is left as it is.
+	 * Until then, any commands submitted after this one are held back (see <code>reading</code>), so they are carried out on the loaded automaton, in order.
+	 * If <code>SAVE_FILE</code> is asked for but does not exist yet, <code>OLD_SAVE_FILE</code> is loaded instead (if it exists), so that a save made by an older version is not lost.
+	 * @param file The name of the save to load.
+	 * @see visualisingCellularAutomata.SaveFormat
+	 */
+	public void loadFile(final String file) {
+		reading = true;
+		reportStatus("Loading " + file + "...");
+		fileThread.execute(new Runnable() {
+			public void run() {
+				String source = file;
+				final PackedLifeEngine loaded;
+				final SaveFormat save;
+				// Anything that goes wrong must still finish the read, or the commands held back behind it would never be carried out.
+				try {
+					if(file.equals(SAVE_FILE) && !Files.exists(Paths.get(SAVE_FILE)) && Files.exists(Paths.get(OLD_SAVE_FILE))) {
+						source = OLD_SAVE_FILE;
+					}
+					loaded = new PackedLifeEngine(xWidth, yHeight); // A second full-size grid, which may not fit in memory.
+					try(InputStream in = new FileInputStream(source)) {
+						save = SaveFormat.read(in, loaded);
+					}
 				}
-				else { // If no rules apply, then the cell must die.
-					postLifeArray[i][j].state = 0;
-					postLifeArray[i][j].age = 0;
+				catch(IOException | RuntimeException | OutOfMemoryError e) {
+					finishRead(Command.readFailed(source, "Load failed: " + describe(e)));
+					return;
 				}
+				finishRead(Command.loaded(loaded, save, source));
 			}
-		}
+		});
 	}
 
 	/**
-	 * This method checks the neighbour count of a given cell. It can be used with grid wrapping enabled or with it disabled.
-	 * This method is effectively the heart of the simulation - so it must be as efficient as possible.
-	 * @param x The x-coordinate of the cell to check.
-	 * @param y The y-coordinate of the cell to check.
-	 * @return The number of neighbours that the cell at (x, y) has.
+	 * This method replaces the grid with one that a save has been loaded into (see <code>loadFile</code>), along with the rules and grid wrapping of the save (if it has them).
+	 * If the plane is unbounded, the plane is replaced with the loaded grid.
+	 * @param loaded The grid that the save was read into.
+	 * @param save The header of the save.
+	 * @param file The name of the save, to tell the user.
 	 */
-	private int check(int x, int y) {
-		// Initialise neighbour variable.
-		int neighbours = 0;
-		
-		// If grid wrapping enabled, use modulo operator to turn the grid into a torus - no if or switch statements are required here, maximising efficiency.
-		if(gridWrapFlag) {
-			// y - 1: cells above the cell being considered.
-			neighbours += lifeArray[(x + xWidth - 1) % xWidth][(y + yHeight - 1) % yHeight].state;
-			neighbours += lifeArray[(x + xWidth) % xWidth][(y + yHeight - 1) % yHeight].state;
-			neighbours += lifeArray[(x + xWidth + 1)  % xWidth][(y + yHeight - 1) % yHeight].state;
-			
-			// y + 0: cells on the same row as the cell being considered.
-			neighbours += lifeArray[(x + xWidth - 1) % xWidth][(y + yHeight) % yHeight].state;
-			neighbours += lifeArray[(x + xWidth + 1) % xWidth][(y + yHeight) % yHeight].state;
-			
-			// y + 1: cells below the cell being considered.
-			neighbours += lifeArray[(x + xWidth - 1) % xWidth][(y + yHeight + 1) % yHeight].state;
-			neighbours += lifeArray[(x + xWidth)  % xWidth][(y + yHeight + 1) % yHeight].state;
-			neighbours += lifeArray[(x + xWidth + 1) % xWidth][(y + yHeight + 1) % yHeight].state;
-			
-			// Finally, return found neighbours (could be outside of if/else).
-			return  neighbours;
-		}
-		
-		// If grid wrapping is disabled, try/catch each array index to minimise the use of if statements.
-		else { // NOTE: try / catch has no impact on performance vs. normal code unless an error is found. This is the most efficient possible solution.
-			// y - 1: cells above the cell being considered.
-			try {neighbours += lifeArray[x - 1][y - 1].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}
-			try {neighbours += lifeArray[x][y - 1].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}			
-			try {neighbours += lifeArray[x + 1][y - 1].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}
-			
-			// y + 0: cells on the same row as the cell being considered.
-			try {neighbours += lifeArray[x - 1][y].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}			
-			try {neighbours += lifeArray[x + 1][y].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}			
-			
-			// y + 1: cells below the cell being considered.
-			try {neighbours += lifeArray[x - 1][y + 1].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}			
-			try {neighbours += lifeArray[x][y + 1].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}			
-			try {neighbours += lifeArray[x + 1][y + 1].state;}
-			catch(ArrayIndexOutOfBoundsException e) {}
-			
-			// Finally, return found neighbours (could be outside of if/else).
-			return neighbours;
+	void swapIn(PackedLifeEngine loaded, SaveFormat save, String file) {
+		reading = false; // The commands that were held back can now be carried out.
+		simulation.replace(loaded, save);
+		repaintAll = true; // The loaded ages change the colours of cells, not just their states.
+		loadedWrapping = simulation.isWrapping();
+		loadedRule = simulation.getRule();
+		if(loadListener != null) {
+			SwingUtilities.invokeLater(loadListener);
 		}
+		reportStatus("Loaded " + file);
+	}
+
+	/**
+	 * This method gives up on a load or import that failed (see <code>loadFile</code> and <code>importPattern</code>), leaving the automaton as it is, 
+	 * and lets the commands that were held back be carried out.
+	 * @param message What went wrong, to tell the user.
+	 */
+	void readFailed(String message) {
+		reading = false;
+		reportStatus(message);
 	}
 
 	/**
-	 * This method copies the computed life array of the previous generation into the current generation's array that is displayed graphically.
-	 * That is, <code>postLifeArray</code> is not displayed, but it is computed based on <code>lifeArray</code>.
-	 * <code>lifeArray</code> is copied FROM <code>postLifeArray</code>, displayed to the screen, and used to generate the next <code>postLifeArray</code>.
-	 * The new value for <code>postLifeArray</code> is then copied again to <code>lifeArray</code> for display, and so on.
+	 * Hands the command that finishes a load or import over to the simulation thread, ahead of the commands that are waiting for it, and wakes the thread up.
+	 * This is called by the file thread.
+	 * @param command The command, which must set <code>reading</code> back to false.
 	 */
-	private void copyLifeArray() {
-		for(int i = 0; i < (xWidth); i++) {
-			for(int j = 0; j < (yHeight); j++) {
-				lifeArray[i][j].state = postLifeArray[i][j].state;
-				lifeArray[i][j].age = postLifeArray[i][j].age;
+	private void finishRead(Command command) {
+		readResults.add(command);
+		wake();
+	}
+
+	/**
+	 * This method imports a pattern file (RLE or Life 1.06, see <code>PatternFormat</code>) and stamps it onto the automaton, centred on the view as it is now.
+	 * Unlike loading a save, the rest of the automaton is left as it is. If the pattern gives its rules, they replace the current ones.
+	 * Life 1.06 files do not give their size, so their cell (0, 0) is put at the centre of the view instead.
+	 * 
+	 * As with loading a save, the pattern is read on the file thread (into a plane of its own), while the simulation carries on. Once it has been read,
+	 * it is stamped on between two generations (by <code>Command.imported</code>), and until then, the commands submitted after this one are held back (see <code>reading</code>).
+	 * @param file The name of the pattern file.
+	 * @see visualisingCellularAutomata.PatternFormat
+	 */
+	public void importPattern(final String file) {
+		final int centreX = columnAt(xSize / 2);
+		final int centreY = rowAt(ySize / 2);
+		reading = true;
+		reportStatus("Importing " + file + "...");
+		fileThread.execute(new Runnable() {
+			public void run() {
+				SparseLifeEngine cells = new SparseLifeEngine(); // Unbounded, so the pattern can be read whole before it is known where it will fit.
+				PatternFormat pattern;
+				try(FileChannel in = FileChannel.open(Paths.get(file))) {
+					pattern = PatternFormat.open(in);
+					pattern.stamp(cells, -(pattern.width / 2), -(pattern.height / 2));
+				}
+				catch(IOException | RuntimeException | OutOfMemoryError e) { // Anything that goes wrong must still finish the read.
+					finishRead(Command.readFailed(file, "Import failed: " + describe(e)));
+					return;
+				}
+				finishRead(Command.imported(cells, pattern.rule, centreX, centreY, file));
 			}
-		}
+		});
 	}
-	
+
 	/**
-	 * This method sets all cell states to 0, in all known generations.
-	 * The ages of all cells are also reset.
+	 * This method stamps a pattern that has been read by <code>importPattern</code> onto the automaton, and replaces the rules with the pattern's (if it gives them).
+	 * @param cells The cells of the pattern, centred on (0, 0).
+	 * @param rule The rules of the pattern, or null to keep the current ones.
+	 * @param centreX The column to put the centre of the pattern at.
+	 * @param centreY The row to put the centre of the pattern at.
 	 */
-	void emptyAutomaton() {
-		for(int i = 0; i < (xWidth); i++) {
-			for(int j = 0; j < (yHeight); j++) {
-				// Reset all cells (in all known generations).
-				postLifeArray[i][j].state = 0;
-				postLifeArray[i][j].age = 0;
-				lifeArray[i][j].state = 0;
-				lifeArray[i][j].age = 0;
+	void stampImport(SparseLifeEngine cells, Rule rule, int centreX, int centreY) {
+		reading = false; // The commands that were held back can now be carried out.
+		long live = simulation.paste(cells, centreX, centreY);
+		if(rule != null) {
+			simulation.setRule(rule);
+			// Tell the UI about the new rules, as a load would. Grid wrapping is unchanged, but it is published too, as the listener shows both.
+			loadedWrapping = simulation.isWrapping();
+			loadedRule = rule;
+			if(loadListener != null) {
+				SwingUtilities.invokeLater(loadListener);
 			}
 		}
+		reportStatus("Imported " + live + " cells");
 	}
 
 	/**
-	 * This method saves the current state of the automaton (without its ruleset) to an external text file.
+	 * This method exports the live cells (with the ruleset) to <code>EXPORT_FILE</code> as an RLE pattern, which most other Life programs can open.
+	 * Only the smallest rectangle that holds every live cell is written. If the plane is unbounded, only the part of it that the grid covers is exported.
+	 * As with saving, only a snapshot of the grid is taken here, and it is written on the file thread while the simulation carries on.
+	 * @see visualisingCellularAutomata.PatternFormat
 	 */
-	public void saveFile() {
-		// First, we must generate the string to write to the file.
-		StringBuilder builder = new StringBuilder();
-		for(int i = 0; i < (xWidth); i++) {
-		   for(int j = 0; j < (yHeight); j++) {
-		      builder.append(lifeArray[i][j].state+";"+lifeArray[i][j].age+""); // Append the current cell's age and state, split by a semicolon.
-		      if(j < lifeArray.length - 1) { // If this is NOT the last row element, then split it with a comma.
-		         builder.append(",");
-		      }
-		   }
-		   builder.append("\n"); // Append a new line at the end of the row.
-		}
-		
-		// Now that the string is built, we write it to the current_save.txt file.
-		try { 
-			BufferedWriter writer = new BufferedWriter(new FileWriter("current_save.txt"));
-			writer.write(builder.toString());
-			writer.close();
-		}
-		catch(Exception e) {
-			e.printStackTrace();
+	public void exportPattern() {
+		final PackedLifeEngine snapshot = simulation.snapshot();
+		final Rule exportedRule = simulation.getRule();
+		reportStatus("Exporting...");
+		fileThread.execute(new Runnable() {
+			public void run() {
+				try(FileChannel out = FileChannel.open(Paths.get(EXPORT_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+					PatternFormat.writeRle(out, snapshot, exportedRule);
+					reportStatus("Exported " + EXPORT_FILE);
+				}
+				catch(IOException e) {
+					reportStatus("Export failed: " + describe(e));
+				}
+			}
+		});
+	}
+
+	/**
+	 * Shows what a save, load, import or export is doing (or how it ended), or why something could not be done, in the UI, through <code>statusListener</code>.
+	 * This may be called from any thread.
+	 * @param text The text to show.
+	 */
+	void reportStatus(String text) {
+		status = text;
+		if(statusListener != null) {
+			SwingUtilities.invokeLater(statusListener);
 		}
 	}
 
 	/**
-	 * This method loads a saved file, and sets the program to begin simulation from the loaded state.
-	 * Makes use of the public static string <code>saveToLoad</code> to decide what filename to load.
-	 * @see saveToLoad
+	 * Describes why a file could not be read or written, for the user.
+	 * @param e The exception (or error) that was thrown.
+	 * @return Its message, or its kind if it has no message.
 	 */
-	public void loadFile() {
-		emptyAutomaton(); // First, clear the automaton.
-		try { // Now, read the file and extract its contents into the simulation.
-			BufferedReader reader = new BufferedReader(new FileReader(saveToLoad)); // saveToLoad is static and is controlled by the user through the UI.
-			String line = "";
-			int row = 0;
-			while((line = reader.readLine()) != null) { // Read the file.
-			   String[] cols = line.split(","); // Cells are separated by commas.
-			   int col = 0;
-			   for(String  s : cols) {
-				  String[] both = s.split(";"); // State and age are separated by a semicolon, e.g. state = 0, age = 1 is depicted "0;1"
-				  try { // When reading the array, we must avoid ArrayIndexOutOfBounds errors - this try/except cycle does that.
-				      postLifeArray[row][col].state = Integer.parseInt(both[0]);
-				      postLifeArray[row][col].age = Integer.parseInt(both[1]);
-				      lifeArray[row][col].state = Integer.parseInt(both[0]);
-				      lifeArray[row][col].age = Integer.parseInt(both[1]);
-				      // Both the current and next generation are updated, to prevent anything from changing due to rules after loading.
-				  }
-				  catch (ArrayIndexOutOfBoundsException e) { // If the file is too large, we skip values that are outside the size of the array.
-					  break;
-					  // NOTE: the array will not get larger to accommodate files that are too big, it will simply load only a subset of the file to fit.
-					  // Furthermore, if the file is too small, the remainder of the values will be 0-state cells with 0 age, as the automaton was first cleared.
-				  }
-			      col++;
-			   }
-			   row++;
-			}
-			reader.close(); // When finished reading.
+	private static String describe(Throwable e) {
+		if(e instanceof NoSuchFileException) {
+			return e.getMessage() + " does not exist.";
 		}
-		catch(Exception e) {
-			e.printStackTrace(); // If an unknown (usually FileNameNotFound) exception occurs, this is printed for debugging purposes.
+		if(e instanceof OutOfMemoryError) {
+			return "Not enough memory.";
 		}
-		
+		return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
 	}
 
 	/**
@@ -416,49 +772,120 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * That is, if the user clicks and drags, they will draw a smooth line of live cells instead of a line of clumped-up stamps.
 	 */
 	public void mouseClicked(MouseEvent e) {
-		int x = e.getX() / pixelSize;
-		int y = e.getY() / pixelSize;
-		
-		stampPattern(x, y); // Stamp the selected pattern (determined by a switch statement and the value of stampToUse).
+		if(!SwingUtilities.isLeftMouseButton(e)) {
+			return; // The right mouse button moves the view instead.
+		}
+		// The view may be scrolled and zoomed, so the cell under the mouse depends on both. The view that the user clicked on is the one on the screen.
+		// Stamp the selected pattern (determined by a switch statement and the value of stampToUse).
+		submit(Command.stamp(shown.columnAt(e.getX()), shown.rowAt(e.getY()), stampToUse, 1 - drawState)); // If draw state is 1, then a dead cell will be drawn.
 	}
 
 	/**
 	 * Draws a live cell onto the grid (or remove one if <code>drawState</code> == 1).
+	 * If the right mouse button was pressed instead, this starts moving the view.
 	 */
 	public void mousePressed(MouseEvent e) {
-		int x = e.getX() / pixelSize;
-		int y = e.getY() / pixelSize;
-		
-		try {
-			// If draw state is 1, then dead cells will be drawn.
-			lifeArray[x][y].state = 1 - drawState;
-			postLifeArray[x][y].state = 1 - drawState;
-			
-			// If we are drawing dead cells, there is no need to reset age. It will naturally reset to 0 in the generation that it is made dead.
-		}
-		catch(Exception r) { 
-			// Several exceptions are thrown when the user attempts to draw outside of the grid.
-			// None of these exceptions are fatal, so their warnings are suppressed.
+		if(SwingUtilities.isRightMouseButton(e)) { // Remember where the drag started, so that the view can follow the mouse.
+			panStartX = e.getX();
+			panStartY = e.getY();
+			panStartViewX = shown.viewX;
+			panStartViewY = shown.viewY;
+			return;
 		}
+		lastDrawnX = shown.columnAt(e.getX());
+		lastDrawnY = shown.rowAt(e.getY());
+		submit(Command.paintCells(new int[] {lastDrawnX, lastDrawnY}, 1 - drawState)); // If draw state is 1, then dead cells will be drawn.
 	}
 
 	/**
 	 * Draws live cells onto the grid (or removes them if <code>drawState</code> == 1).
+	 * If the right mouse button is held down instead, this moves the view so that the cell that was under the mouse stays under it.
 	 */
 	public void mouseDragged(MouseEvent e) {
-		int x = e.getX() / pixelSize;
-		int y = e.getY() / pixelSize;
-		
+		if(SwingUtilities.isRightMouseButton(e)) {
+			final int x = panStartViewX - ((e.getX() - panStartX) / shown.pixelSize << shown.cellShift);
+			final int y = panStartViewY - ((e.getY() - panStartY) / shown.pixelSize << shown.cellShift);
+			submit(Command.moveView(x, y));
+			return;
+		}
+		drawLine(shown.columnAt(e.getX()), shown.rowAt(e.getY()));
+	}
+	
+	/**
+	 * Queues the cells on a straight line from the last cell drawn to a new one to be drawn onto the grid in one batch, as live cells (or dead ones if <code>drawState</code> == 1).
+	 * Mouse events are only delivered every few pixels, so drawing the whole line keeps a fast stroke unbroken.
+	 * @param x The column of the new cell.
+	 * @param y The row of the new cell.
+	 */
+	private void drawLine(int x, int y) {
+		int dx = Math.abs(x - lastDrawnX);
+		int dy = Math.abs(y - lastDrawnY);
+		int steps = Math.max(dx, dy);
+		if(steps == 0) {
+			return; // Still on the same cell, which has already been drawn.
+		}
+		int[] cells = new int[2 * steps];
+		for(int i = 1; i <= steps; i++) { // The first cell of the line was drawn with the last batch.
+			cells[2 * i - 2] = lastDrawnX + (int) Math.round((double) (x - lastDrawnX) * i / steps);
+			cells[2 * i - 1] = lastDrawnY + (int) Math.round((double) (y - lastDrawnY) * i / steps);
+		}
+		lastDrawnX = x;
+		lastDrawnY = y;
+		submit(Command.paintCells(cells, 1 - drawState)); // If draw state is 1, then dead cells will be drawn.
+	}
+
+	/**
+	 * Sets the state of one cell, if it is on the grid (or anywhere, if the plane is unbounded). Used by <code>Command.paintCells</code>.
+	 * @param x The column of the cell.
+	 * @param y The row of the cell.
+	 * @param state The new state of the cell.
+	 */
+	void paintCell(int x, int y, int state) {
 		try {
-			lifeArray[x][y].state = 1 - drawState;
-			postLifeArray[x][y].state = 1 - drawState;
+			simulation.set(x, y, state);
+			// If we are drawing dead cells, there is no need to reset age. It will naturally reset to 0 in the generation that it is made dead.
 		}
-		catch(Exception r) {
+		catch(Exception r) { 
 			// Several exceptions are thrown when the user attempts to draw outside of the grid.
 			// None of these exceptions are fatal, so their warnings are suppressed.
 		}
 	}
 	
+	/**
+	 * Zooms the view in or out by one zoom level per notch of the mouse wheel, about the mouse pointer.
+	 */
+	public void mouseWheelMoved(MouseWheelEvent e) {
+		submit(Command.zoom(-e.getWheelRotation(), e.getX(), e.getY())); // Rolling the wheel away from the user zooms in.
+	}
+	
+	/**
+	 * Queues a command to be carried out by the simulation thread, and wakes the thread up so that it is carried out and shown straight away,
+	 * rather than after the next generation. Commands are carried out in the order that they are submitted, between generations. This may be called from any thread.
+	 * @param command The command to carry out.
+	 * @see visualisingCellularAutomata.Command
+	 */
+	public void submit(Command command) {
+		commands.add(command);
+		wake();
+	}
+	
+	/**
+	 * Tells whether the simulation thread has a command that it can carry out now. While a file is being read, only the command that finishes reading it counts.
+	 * @return True if there is a command ready.
+	 */
+	private boolean hasCommandReady() {
+		return !(reading ? readResults.isEmpty() : commands.isEmpty());
+	}
+	
+	/**
+	 * Wakes the simulation thread up, so that it updates straight away. This must be called after setting any of the properties that change what is shown
+	 * (such as <code>heatmapFlag</code>): while paused, the thread sleeps until it is woken, so it would not notice them. <code>submit</code> calls this itself.
+	 * The flag must be set first. If the thread is busy, it updates again as soon as it has finished, so a flag is never missed.
+	 */
+	public void wake() {
+		LockSupport.unpark(simulationThread);
+	}
+	
 	/**
 	 * Not used, but a part of the mouse listeners implemented.
 	 */
@@ -487,66 +914,194 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 		
 	}
 	
-	/** Determines what should be done every time the program is updated, usually by <code>timer</code> generating an interrupt.
-	 * 
-	 * Many of these flags and values are static, belonging to <code>LifePanel</code>. 
-	 * It makes little sense to initialise an object of <code>LifePanel</code>. Instead, the class is controlled statically.
-	 *
-	 * Every time the automaton updates (determined by the timer or by singleStepFlag), 5 statements are checked.
-	 * 
-	 * 1: If the user wants to save.
-	 * 
-	 * 2: If the user wants to load.
-	 * 
-	 * 3: If the user wants to clear the automaton.
-	 * 
-	 * 4: If the user wants to randomly generate a state.
+	/**
+	 * This is the simulation thread. It updates the automaton every <code>generationDelay</code> milliseconds, and straight away whenever a command is submitted.
+	 * The time of the next generation is kept separately, so commands do not bring generations forward. If a generation takes longer than the delay, the next one starts straight away.
+	 * In turbo mode, it updates once per frame instead (see <code>FRAME_INTERVAL</code>), computing several generations each time. 
+	 * With no fixed number of generations per frame, the next frame is always due, so the thread never sleeps.
+	 * Once a second, it measures how many generations and frames went by, and tells <code>speedListener</code>.
+	 * While the simulation is paused, it does no work at all until it is woken by a command or a flag (see <code>wake</code>). It then updates once, and goes back to sleep.
+	 * The thread runs until it is interrupted.
+	 */
+	public void run() {
+		nextGenerationTime = System.nanoTime();
+		long measuredAt = nextGenerationTime; // When the speed was last measured, and the counts at that time.
+		int measuredGenerations = simulation.generationCount;
+		int measuredFrames = framesPainted;
+		while(!Thread.currentThread().isInterrupted()) {
+			long now = System.nanoTime();
+			boolean due = now - nextGenerationTime >= 0 || (turboFlag && turboGenerations == 0);
+			if(due) {
+				nextGenerationTime = now + (turboFlag ? FRAME_INTERVAL : generationDelay * 1000000L);
+			}
+			try {
+				update(due);
+			}
+			catch(RuntimeException e) {
+				// Keep simulating, as the Swing timer used to. One bad update should not freeze the automaton for good, but the user should know that it went wrong.
+				reportStatus("Update failed: " + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+			}
+			
+			now = System.nanoTime();
+			if(now - measuredAt >= 1000000000L) {
+				double seconds = (now - measuredAt) / 1e9;
+				generationsPerSecond = (int) Math.round((simulation.generationCount - measuredGenerations) / seconds);
+				framesPerSecond = (int) Math.round((framesPainted - measuredFrames) / seconds);
+				measuredAt = now;
+				measuredGenerations = simulation.generationCount;
+				measuredFrames = framesPainted;
+				if(speedListener != null) {
+					SwingUtilities.invokeLater(speedListener);
+				}
+			}
+			
+			if(paused && !hasCommandReady()) {
+				// Paused with nothing left to do, so sleep until something changes (see wake), rather than waking up every generationDelay to check.
+				if(generationsPerSecond != 0 || framesPerSecond != 0) {
+					generationsPerSecond = 0;
+					framesPerSecond = 0;
+					if(speedListener != null) {
+						SwingUtilities.invokeLater(speedListener);
+					}
+				}
+				LockSupport.park(this);
+				// Carry on as if the pause had not happened: the next generation is due straight away, and the speed is measured from now.
+				nextGenerationTime = System.nanoTime();
+				measuredAt = nextGenerationTime;
+				measuredGenerations = simulation.generationCount;
+				measuredFrames = framesPainted;
+			}
+			else {
+				LockSupport.parkNanos(this, nextGenerationTime - now); // Returns early if a command is submitted.
+			}
+		}
+	}
+	
+	/** Determines what should be done every time the program is updated. This is called by the simulation thread.
 	 * 
-	 * 5: If the simulation is currently not paused, create the next generation.
-	 * @param e The action event that caused the program to update. This is usually caused by the timer generating an interrupt rhythmically, but can be triggered by other things.
+	 * Every time the automaton updates (determined by the generation delay, or by a command), the commands that have been submitted are carried out in order
+	 * (see <code>Command</code>), so everything that the user asked for before this update happens before the next generation.
+	 * Then, if the simulation is not paused and a generation is due, the next generation is created (or the next frame's worth of generations, in turbo mode).
+	 * @param generationDue Whether it is time for the next generation. If false, the update was caused by a command.
 	 */
-	public void actionPerformed(ActionEvent e) {
-		// If the user prompts a save should occur, do so.
-		if(saveFlag) { 
-			saveFile(); // Always saves to "current_save.txt".
-			saveFlag = false;
+	void update(boolean generationDue) {
+		simulation.setAgeTracking(heatmapFlag); // Nobody reads the ages while the heatmap is off, so they do not need to be tracked.
+		
+		// Carry out the commands that the user has given, in the order that they were given. 
+		// While a save or pattern is being read, the rest wait for it (and the generations carry on without them).
+		Command command;
+		while((command = reading ? readResults.poll() : commands.poll()) != null) {
+			command.apply(this);
 		}
 		
-		// If the user prompts to load a file, do so.
-		if(loadFlag) { 
-			loadFile(); // Loads using a static string for the filename to load. The string's value is handled by the UI.
-			loadFlag = false;
+		// If the simulation is not paused, then generate the next state of the automaton (or in turbo mode, the next few).
+		// While paused, the thread sleeps instead (see run), and any command wakes it up.
+		if(!paused && generationDue) {
+			if(turboFlag) {
+				turboFrame();
+			}
+			else {
+				step();
+			}
 		}
 		
-		// If the user has requested that the cell grid be cleared, do so.
-		if(emptyAutomatonFlag) { 
-			emptyAutomaton();
-			emptyAutomatonFlag = false;
+		// After all requested changes have been made to the automaton, draw a new snapshot and redraw the parts of the screen that have changed.
+		repaintChanges();
+	}
+	
+	/**
+	 * Draws a new snapshot of the view and hands it over to the Swing thread, then redraws the parts of the panel whose cells have changed since the last snapshot, rather than the whole panel.
+	 * If the Swing thread has not painted the last snapshot yet, nothing is drawn: the changes are picked up by the next snapshot instead (which is drawn as soon as the Swing thread takes the waiting one), so no time is spent on frames that would never be seen.
+	 * The grid reports which of its tiles (64 x 32 cells) in view have changed, and the smallest rectangle that contains all of them is redrawn.
+	 * Tiles out of view are never looked at, so the cost of this does not depend on the size of the grid.
+	 * Swing merges every area that is waiting to be redrawn into one rectangle anyway, so asking for one rectangle per tile would make no difference.
+	 * While the heatmap is enabled, a tile's cells keep changing colour for up to 26 generations after it changes, so it is redrawn whenever a generation passes until then.
+	 */
+	void repaintChanges() {
+		snapshotSkipped = true; // This is set before looking, so that the Swing thread can not take the snapshot in between without seeing it.
+		if(handover.get().fresh) {
+			return;
 		}
-		
-		// If the user wants to randomly set the state of the automaton, do so.
-		if(randomState) { 
-			randomSpawn();
-			randomState = false;
+		snapshotSkipped = false;
+		// The unbounded plane is not drawn directly: the part of it that the grid covers is copied into it first. Only the chunks that are occupied are copied.
+		simulation.refreshGrid();
+		PackedLifeEngine grid = simulation.grid;
+		int generationCount = simulation.generationCount;
+		if(heatmapFlag != shownHeatmap) { // Every live cell changes colour.
+			shownHeatmap = heatmapFlag;
+			repaintAll = true;
+		}
+		boolean aged = heatmapFlag && generationCount != shownGeneration; // Whether cells have got older (and so changed colour) since the last redraw.
+		shownGeneration = generationCount;
+		
+		// Zoomed out below one pixel per cell, the whole view is redrawn whenever the density pyramid changes. This costs about as much as redrawing a few tiles at full size.
+		if(cellShift > 0) {
+			if(grid.updateDensity() || repaintAll) {
+				repaintAll = false;
+				handOver(0, 0, xSize, ySize);
+			}
+			return;
 		}
 		
-		// If the simulation is not paused, then generate the next state of the automaton.
-		if (!pauseFlag) { 
-			nextGeneration();
-			// A flag is used instead of timer.stop(). 
-			// This is because timer.stop() can prevent the user from interacting with the program in certain ways, which is undesirable.
+		// The tiles that are (at least partly) in view. The one past the last is given, as for takeChangedTiles.
+		int viewColumns = Math.max(1, Math.min(xWidth - viewX, (xSize + pixelSize - 1) / pixelSize));
+		int viewRows = Math.max(1, Math.min(yHeight - viewY, (ySize + pixelSize - 1) / pixelSize));
+		int fromTileX = viewX >>> 6;
+		int fromTileY = viewY >>> PackedLifeEngine.TILE_SHIFT;
+		int toTileX = ((viewX + viewColumns - 1) >>> 6) + 1;
+		int toTileY = ((viewY + viewRows - 1) >>> PackedLifeEngine.TILE_SHIFT) + 1;
+		
+		grid.takeChangedTiles(changedTiles, fromTileX, fromTileY, toTileX, toTileY);
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = -1;
+		int maxY = -1;
+		for(int ty = fromTileY; ty < toTileY; ty++) {
+			for(int tx = fromTileX; tx < toTileX; tx++) {
+				int tile = ty * grid.tilesX + tx;
+				if(changedTiles[tile]) {
+					changedTiles[tile] = false;
+					tileChangedAt[tile] = generationCount;
+				}
+				else if(!aged || generationCount - tileChangedAt[tile] >= HEATMAP_COLOURS) {
+					continue; // Nothing in this tile looks any different.
+				}
+				minX = Math.min(minX, tx);
+				minY = Math.min(minY, ty);
+				maxX = Math.max(maxX, tx);
+				maxY = Math.max(maxY, ty);
+			}
 		}
 		
-		// "Else" statement is purely for clarity, to reflect how singleStepFlag is used with pauseFlag.
-		else { 
-			if(singleStepFlag) { // If the simulation is paused, we can still single-step the simulation.
-				nextGeneration();
-				singleStepFlag = false;
-				// After this generation, the flag is immediately reset to false.
+		if(repaintAll) {
+			repaintAll = false;
+			for(int ty = fromTileY; ty < toTileY; ty++) { // Ages may have been reset anywhere in view, so every tile in view may still be changing colour.
+				Arrays.fill(tileChangedAt, ty * grid.tilesX + fromTileX, ty * grid.tilesX + toTileX, generationCount);
 			}
-		}	
-		// After all requested changes have been made to the automaton, redraw graphics.
-		repaint();
+			handOver(0, 0, xSize, ySize);
+		}
+		else if(maxX >= 0) {
+			// Convert the tiles to pixels on the screen. The first and last tiles may only be partly in view, which repaint allows for.
+			int x = ((minX << 6) - viewX) * pixelSize;
+			int y = ((minY << PackedLifeEngine.TILE_SHIFT) - viewY) * pixelSize;
+			handOver(x, y, ((maxX + 1) << 6) * pixelSize - viewX * pixelSize - x, ((maxY + 1) << PackedLifeEngine.TILE_SHIFT) * pixelSize - viewY * pixelSize - y);
+		}
+	}
+	
+	/**
+	 * Draws a new snapshot of the view, hands it over to the Swing thread, and asks for the part of the panel that has changed to be redrawn.
+	 * The snapshot that comes back in exchange is the one that the Swing thread has finished with, or the last one handed over if the Swing thread has not taken it yet.
+	 * Either way, nothing else is using it, so the next snapshot is drawn into it.
+	 * @param x The x-coordinate of the part of the panel that has changed.
+	 * @param y The y-coordinate of the part of the panel that has changed.
+	 * @param width The width of the part of the panel that has changed.
+	 * @param height The height of the part of the panel that has changed.
+	 */
+	private void handOver(int x, int y, int width, int height) {
+		drawSnapshot(drawing);
+		drawing.fresh = true;
+		drawing = handover.getAndSet(drawing);
+		repaint(x, y, width, height); // This may be called from any thread. Swing merges it with any other areas that are waiting to be redrawn.
 	}
 	
 	/** Stamps predefined patterns onto the screen.
@@ -558,16 +1113,17 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * This makes the method flexible and well-expandable.
 	 * @param x The mouse pointer's current x-coordinate.
 	 * @param y The mouse pointer's current y-coordinate.
+	 * @param stamp The pattern to draw, as chosen by the user when the mouse was clicked (see <code>stampToUse</code>).
+	 * @param state The state to draw a single cell in when there is no pattern, as chosen by the user when the mouse was clicked (see <code>drawState</code>). Patterns are always drawn alive.
 	 */
-	private void stampPattern(int x, int y) {
+	void stampPattern(int x, int y, int stamp, int state) {
 		try { // Catches all errors thrown when the user attempts to draw outside of the grid bounds.
-			switch(stampToUse) { // stampToUse is an int that the UI controls, allowing the user to select the pattern that they want to draw.
+			switch(stamp) { // The stamp is an int that the UI controls, allowing the user to select the pattern that they want to draw.
 			/* NO STAMP CASE
 			 * In this case, the user draws single cells when clicking the mouse button. Obeys the draw state rule (i.e. allows for removing of live cells).
 			 */
 			case(0): // Use no stamp.
-				lifeArray[x][y].state = 1 - drawState;
-				postLifeArray[x][y].state = 1 - drawState;
+				simulation.set(x, y, state);
 				break;			
 			
 			/* GLIDER CASES: Draw gliders, four orientations.
@@ -659,20 +1215,11 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * @see stampPattern
 	 */
 	private void stampGlider(int x, int y, int mirrorX, int mirrorY) {
-		lifeArray[x][y].state = 1;
-		postLifeArray[x][y].state = 1;
-		
-		lifeArray[x+(1*mirrorX)][y].state = 1; // x-value is mirrored.
-		postLifeArray[x+(1*mirrorX)][y].state = 1;
-		
-		lifeArray[x+(2*mirrorX)][y+(1*mirrorY)].state = 1;
-		postLifeArray[x+(2*mirrorX)][y+(1*mirrorY)].state = 1;
-		
-		lifeArray[x][y+(1*mirrorY)].state = 1;
-		postLifeArray[x][y+(1*mirrorY)].state = 1;
-		
-		lifeArray[x][y+(2*mirrorY)].state = 1;
-		postLifeArray[x][y+(2*mirrorY)].state = 1;		
+		simulation.set(x, y, 1);
+		simulation.set(x+(1*mirrorX), y, 1); // x-value is mirrored.
+		simulation.set(x+(2*mirrorX), y+(1*mirrorY), 1);
+		simulation.set(x, y+(1*mirrorY), 1);
+		simulation.set(x, y+(2*mirrorY), 1);		
 		// It is possible to mirror the entire x-axis by multiplying it's value after calculation by -1.
 		// This is just an alternative approach, and offers no actual advantages.
 	}
@@ -687,32 +1234,15 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * @see stampPattern
 	 */
 	private void stampLWSS(int x, int y, int mirrorX) {
-		lifeArray[x-(2*mirrorX)][y-3].state = 1;
-		postLifeArray[x-(2*mirrorX)][y-3].state = 1;
-		
-		lifeArray[x-(2*mirrorX)][y-1].state = 1;
-		postLifeArray[x-(2*mirrorX)][y-1].state = 1;
-		
-		lifeArray[x-(1*mirrorX)][y].state = 1;
-		postLifeArray[x-(1*mirrorX)][y].state = 1;
-		
-		lifeArray[x][y].state = 1;
-		postLifeArray[x][y].state = 1;
-		
-		lifeArray[x+(1*mirrorX)][y].state = 1;
-		postLifeArray[x+(1*mirrorX)][y].state = 1;
-		
-		lifeArray[x+(2*mirrorX)][y].state = 1;
-		postLifeArray[x+(2*mirrorX)][y].state = 1;
-
-		lifeArray[x+(2*mirrorX)][y-1].state = 1;
-		postLifeArray[x+(2*mirrorX)][y-1].state = 1;
-		
-		lifeArray[x+(2*mirrorX)][y-2].state = 1;
-		postLifeArray[x+(2*mirrorX)][y-2].state = 1;
-		
-		lifeArray[x+(1*mirrorX)][y-3].state = 1;
-		postLifeArray[x+(1*mirrorX)][y-3].state = 1;
+		simulation.set(x-(2*mirrorX), y-3, 1);
+		simulation.set(x-(2*mirrorX), y-1, 1);
+		simulation.set(x-(1*mirrorX), y, 1);
+		simulation.set(x, y, 1);
+		simulation.set(x+(1*mirrorX), y, 1);
+		simulation.set(x+(2*mirrorX), y, 1);
+		simulation.set(x+(2*mirrorX), y-1, 1);
+		simulation.set(x+(2*mirrorX), y-2, 1);
+		simulation.set(x+(1*mirrorX), y-3, 1);
 	}
 	
 	/**
@@ -725,38 +1255,18 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * @see stampPattern
 	 */
 	private void stampMWSS(int x, int y, int mirrorX) {
-		lifeArray[x-(1*mirrorX)][y-4].state = 1;
-		postLifeArray[x-(1*mirrorX)][y-4].state = 1;
-		
-		lifeArray[x+(1*mirrorX)][y-3].state = 1;
-		postLifeArray[x+(1*mirrorX)][y-3].state = 1;	
-		
-		lifeArray[x+(2*mirrorX)][y-2].state = 1;
-		postLifeArray[x+(2*mirrorX)][y-2].state = 1;
-		
-		lifeArray[x+(2*mirrorX)][y-1].state = 1;
-		postLifeArray[x+(2*mirrorX)][y-1].state = 1;
-		
-		lifeArray[x+(2*mirrorX)][y].state = 1;
-		postLifeArray[x+(2*mirrorX)][y].state = 1;
-		
-		lifeArray[x+(1*mirrorX)][y].state = 1;
-		postLifeArray[x+(1*mirrorX)][y].state = 1;
-		
-		lifeArray[x][y].state = 1;
-		postLifeArray[x][y].state = 1;
-		
-		lifeArray[x-(1*mirrorX)][y].state = 1;
-		postLifeArray[x-(1*mirrorX)][y].state = 1;
-		
-		lifeArray[x-(2*mirrorX)][y].state = 1;
-		postLifeArray[x-(2*mirrorX)][y].state = 1;
-		
-		lifeArray[x-(3*mirrorX)][y-1].state = 1;
-		postLifeArray[x-(3*mirrorX)][y-1].state = 1;
-		
-		lifeArray[x-(3*mirrorX)][y-3].state = 1;
-		postLifeArray[x-(3*mirrorX)][y-3].state = 1;
+		simulation.set(x-(1*mirrorX), y-4, 1);
+		simulation.set(x+(1*mirrorX), y-3, 1);	
+		
+		simulation.set(x+(2*mirrorX), y-2, 1);
+		simulation.set(x+(2*mirrorX), y-1, 1);
+		simulation.set(x+(2*mirrorX), y, 1);
+		simulation.set(x+(1*mirrorX), y, 1);
+		simulation.set(x, y, 1);
+		simulation.set(x-(1*mirrorX), y, 1);
+		simulation.set(x-(2*mirrorX), y, 1);
+		simulation.set(x-(3*mirrorX), y-1, 1);
+		simulation.set(x-(3*mirrorX), y-3, 1);
 	}
 	
 	/**
@@ -769,44 +1279,20 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * @see stampPattern
 	 */
 	private void stampHWSS(int x, int y, int mirrorX) {
-		lifeArray[x-(1*mirrorX)][y-4].state = 1;
-		postLifeArray[x-(1*mirrorX)][y-4].state = 1;
-		
-		lifeArray[x-(2*mirrorX)][y-4].state = 1;
-		postLifeArray[x-(2*mirrorX)][y-4].state = 1;
-		
-		lifeArray[x+(1*mirrorX)][y-3].state = 1;
-		postLifeArray[x+(1*mirrorX)][y-3].state = 1;	
-		
-		lifeArray[x+(2*mirrorX)][y-2].state = 1;
-		postLifeArray[x+(2*mirrorX)][y-2].state = 1;
-		
-		lifeArray[x+(2*mirrorX)][y-1].state = 1;
-		postLifeArray[x+(2*mirrorX)][y-1].state = 1;
-		
-		lifeArray[x+(2*mirrorX)][y].state = 1;
-		postLifeArray[x+(2*mirrorX)][y].state = 1;
-		
-		lifeArray[x+(1*mirrorX)][y].state = 1;
-		postLifeArray[x+(1*mirrorX)][y].state = 1;
-		
-		lifeArray[x][y].state = 1;
-		postLifeArray[x][y].state = 1;
-		
-		lifeArray[x-(1*mirrorX)][y].state = 1;
-		postLifeArray[x-(1*mirrorX)][y].state = 1;
-		
-		lifeArray[x-(2*mirrorX)][y].state = 1;
-		postLifeArray[x-(2*mirrorX)][y].state = 1;
-		
-		lifeArray[x-(3*mirrorX)][y].state = 1;
-		postLifeArray[x-(3*mirrorX)][y].state = 1;
-		
-		lifeArray[x-(4*mirrorX)][y-1].state = 1;
-		postLifeArray[x-(4*mirrorX)][y-1].state = 1;
-		
-		lifeArray[x-(4*mirrorX)][y-3].state = 1;
-		postLifeArray[x-(4*mirrorX)][y-3].state = 1;
+		simulation.set(x-(1*mirrorX), y-4, 1);
+		simulation.set(x-(2*mirrorX), y-4, 1);
+		simulation.set(x+(1*mirrorX), y-3, 1);	
+		
+		simulation.set(x+(2*mirrorX), y-2, 1);
+		simulation.set(x+(2*mirrorX), y-1, 1);
+		simulation.set(x+(2*mirrorX), y, 1);
+		simulation.set(x+(1*mirrorX), y, 1);
+		simulation.set(x, y, 1);
+		simulation.set(x-(1*mirrorX), y, 1);
+		simulation.set(x-(2*mirrorX), y, 1);
+		simulation.set(x-(3*mirrorX), y, 1);
+		simulation.set(x-(4*mirrorX), y-1, 1);
+		simulation.set(x-(4*mirrorX), y-3, 1);
 	}
 	
 	/** 
@@ -818,156 +1304,63 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 */
 	private void stampPulsar(int x, int y) {
 		// Top-left segment.
-		lifeArray[x-1][y-2].state = 1;
-		postLifeArray[x-1][y-2].state = 1;
-		
-		lifeArray[x-1][y-3].state = 1;
-		postLifeArray[x-1][y-3].state = 1;
-		
-		lifeArray[x-1][y-4].state = 1;
-		postLifeArray[x-1][y-4].state = 1;
-		
-		lifeArray[x-2][y-1].state = 1;
-		postLifeArray[x-2][y-1].state = 1;
-		
-		lifeArray[x-3][y-1].state = 1;
-		postLifeArray[x-3][y-1].state = 1;
-		
-		lifeArray[x-4][y-1].state = 1;
-		postLifeArray[x-4][y-1].state = 1;
-				
-		lifeArray[x-2][y-6].state = 1;
-		postLifeArray[x-2][y-6].state = 1;
-		
-		lifeArray[x-3][y-6].state = 1;
-		postLifeArray[x-3][y-6].state = 1;
-		
-		lifeArray[x-4][y-6].state = 1;
-		postLifeArray[x-4][y-6].state = 1;
-		
-		lifeArray[x-6][y-2].state = 1;
-		postLifeArray[x-6][y-2].state = 1;
-		
-		lifeArray[x-6][y-3].state = 1;
-		postLifeArray[x-6][y-3].state = 1;
-		
-		lifeArray[x-6][y-4].state = 1;
-		postLifeArray[x-6][y-4].state = 1;
+		simulation.set(x-1, y-2, 1);
+		simulation.set(x-1, y-3, 1);
+		simulation.set(x-1, y-4, 1);
+		simulation.set(x-2, y-1, 1);
+		simulation.set(x-3, y-1, 1);
+		simulation.set(x-4, y-1, 1);
+		simulation.set(x-2, y-6, 1);
+		simulation.set(x-3, y-6, 1);
+		simulation.set(x-4, y-6, 1);
+		simulation.set(x-6, y-2, 1);
+		simulation.set(x-6, y-3, 1);
+		simulation.set(x-6, y-4, 1);
 		
 		// Top-right segment.
-		lifeArray[x+1][y-2].state = 1;
-		postLifeArray[x+1][y-2].state = 1;
-		
-		lifeArray[x+1][y-3].state = 1;
-		postLifeArray[x+1][y-3].state = 1;
-		
-		lifeArray[x+1][y-4].state = 1;
-		postLifeArray[x+1][y-4].state = 1;
-		
-		lifeArray[x+2][y-1].state = 1;
-		postLifeArray[x+2][y-1].state = 1;
-		
-		lifeArray[x+3][y-1].state = 1;
-		postLifeArray[x+3][y-1].state = 1;
-		
-		lifeArray[x+4][y-1].state = 1;
-		postLifeArray[x+4][y-1].state = 1;
-				
-		lifeArray[x+2][y-6].state = 1;
-		postLifeArray[x+2][y-6].state = 1;
-		
-		lifeArray[x+3][y-6].state = 1;
-		postLifeArray[x+3][y-6].state = 1;
-		
-		lifeArray[x+4][y-6].state = 1;
-		postLifeArray[x+4][y-6].state = 1;
-		
-		lifeArray[x+6][y-2].state = 1;
-		postLifeArray[x+6][y-2].state = 1;
-		
-		lifeArray[x+6][y-3].state = 1;
-		postLifeArray[x+6][y-3].state = 1;
-		
-		lifeArray[x+6][y-4].state = 1;
-		postLifeArray[x+6][y-4].state = 1;
+		simulation.set(x+1, y-2, 1);
+		simulation.set(x+1, y-3, 1);
+		simulation.set(x+1, y-4, 1);
+		simulation.set(x+2, y-1, 1);
+		simulation.set(x+3, y-1, 1);
+		simulation.set(x+4, y-1, 1);
+		simulation.set(x+2, y-6, 1);
+		simulation.set(x+3, y-6, 1);
+		simulation.set(x+4, y-6, 1);
+		simulation.set(x+6, y-2, 1);
+		simulation.set(x+6, y-3, 1);
+		simulation.set(x+6, y-4, 1);
 		
 		// Bottom-right segment.
-		lifeArray[x+1][y+2].state = 1;
-		postLifeArray[x+1][y+2].state = 1;
-		
-		lifeArray[x+1][y+3].state = 1;
-		postLifeArray[x+1][y+3].state = 1;
-		
-		lifeArray[x+1][y+4].state = 1;
-		postLifeArray[x+1][y+4].state = 1;
-		
-		lifeArray[x+2][y+1].state = 1;
-		postLifeArray[x+2][y+1].state = 1;
-		
-		lifeArray[x+3][y+1].state = 1;
-		postLifeArray[x+3][y+1].state = 1;
-		
-		lifeArray[x+4][y+1].state = 1;
-		postLifeArray[x+4][y+1].state = 1;
-				
-		lifeArray[x+2][y+6].state = 1;
-		postLifeArray[x+2][y+6].state = 1;
-		
-		lifeArray[x+3][y+6].state = 1;
-		postLifeArray[x+3][y+6].state = 1;
-		
-		lifeArray[x+4][y+6].state = 1;
-		postLifeArray[x+4][y+6].state = 1;
-		
-		lifeArray[x+6][y+2].state = 1;
-		postLifeArray[x+6][y+2].state = 1;
-		
-		lifeArray[x+6][y+3].state = 1;
-		postLifeArray[x+6][y+3].state = 1;
-		
-		lifeArray[x+6][y+4].state = 1;
-		postLifeArray[x+6][y+4].state = 1;
+		simulation.set(x+1, y+2, 1);
+		simulation.set(x+1, y+3, 1);
+		simulation.set(x+1, y+4, 1);
+		simulation.set(x+2, y+1, 1);
+		simulation.set(x+3, y+1, 1);
+		simulation.set(x+4, y+1, 1);
+		simulation.set(x+2, y+6, 1);
+		simulation.set(x+3, y+6, 1);
+		simulation.set(x+4, y+6, 1);
+		simulation.set(x+6, y+2, 1);
+		simulation.set(x+6, y+3, 1);
+		simulation.set(x+6, y+4, 1);
 		
 		// Bottom-left segment.
-		lifeArray[x-1][y+2].state = 1;
-		postLifeArray[x-1][y+2].state = 1;
-		
-		lifeArray[x-1][y+3].state = 1;
-		postLifeArray[x-1][y+3].state = 1;
-		
-		lifeArray[x-1][y+4].state = 1;
-		postLifeArray[x-1][y+4].state = 1;
-		
-		lifeArray[x-2][y+1].state = 1;
-		postLifeArray[x-2][y+1].state = 1;
-		
-		lifeArray[x-3][y+1].state = 1;
-		postLifeArray[x-3][y+1].state = 1;
-		
-		lifeArray[x-4][y+1].state = 1;
-		postLifeArray[x-4][y+1].state = 1;
-				
-		lifeArray[x-2][y+6].state = 1;
-		postLifeArray[x-2][y+6].state = 1;
-		
-		lifeArray[x-3][y+6].state = 1;
-		postLifeArray[x-3][y+6].state = 1;
-		
-		lifeArray[x-4][y+6].state = 1;
-		postLifeArray[x-4][y+6].state = 1;
-		
-		lifeArray[x-6][y+2].state = 1;
-		postLifeArray[x-6][y+2].state = 1;
-		
-		lifeArray[x-6][y+3].state = 1;
-		postLifeArray[x-6][y+3].state = 1;
-		
-		lifeArray[x-6][y+4].state = 1;
-		postLifeArray[x-6][y+4].state = 1;
+		simulation.set(x-1, y+2, 1);
+		simulation.set(x-1, y+3, 1);
+		simulation.set(x-1, y+4, 1);
+		simulation.set(x-2, y+1, 1);
+		simulation.set(x-3, y+1, 1);
+		simulation.set(x-4, y+1, 1);
+		simulation.set(x-2, y+6, 1);
+		simulation.set(x-3, y+6, 1);
+		simulation.set(x-4, y+6, 1);
+		simulation.set(x-6, y+2, 1);
+		simulation.set(x-6, y+3, 1);
+		simulation.set(x-6, y+4, 1);
 		
 		// Remove the cell at the centre (if it was drawn by mousePressed).
-		lifeArray[x][y].state = 0;
-		postLifeArray[x][y].state = 0;
+		simulation.set(x, y, 0);
 	}
 	
 	/** 
@@ -978,41 +1371,18 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * @see stampPattern
 	 */
 	private void stampPentadecathlon(int x, int y) {
-		lifeArray[x][y].state = 1;
-		postLifeArray[x][y].state = 1;
-		
-		lifeArray[x+1][y].state = 1;
-		postLifeArray[x+1][y].state = 1;
-		
-		lifeArray[x+2][y].state = 1;
-		postLifeArray[x+2][y].state = 1;
-		
-		lifeArray[x+3][y-1].state = 1;
-		postLifeArray[x+3][y-1].state = 1;
-		
-		lifeArray[x+3][y+1].state = 1;
-		postLifeArray[x+3][y+1].state = 1;
-		
-		lifeArray[x+4][y].state = 1;
-		postLifeArray[x+4][y].state = 1;
-		
-		lifeArray[x+5][y].state = 1;
-		postLifeArray[x+5][y].state = 1;
-		
-		lifeArray[x-1][y].state = 1;
-		postLifeArray[x-1][y].state = 1;
-		
-		lifeArray[x-2][y-1].state = 1;
-		postLifeArray[x-2][y-1].state = 1;
-		
-		lifeArray[x-2][y+1].state = 1;
-		postLifeArray[x-2][y+1].state = 1;
-		
-		lifeArray[x-3][y].state = 1;
-		postLifeArray[x-3][y].state = 1;
-		
-		lifeArray[x-4][y].state = 1;
-		postLifeArray[x-4][y].state = 1;
+		simulation.set(x, y, 1);
+		simulation.set(x+1, y, 1);
+		simulation.set(x+2, y, 1);
+		simulation.set(x+3, y-1, 1);
+		simulation.set(x+3, y+1, 1);
+		simulation.set(x+4, y, 1);
+		simulation.set(x+5, y, 1);
+		simulation.set(x-1, y, 1);
+		simulation.set(x-2, y-1, 1);
+		simulation.set(x-2, y+1, 1);
+		simulation.set(x-3, y, 1);
+		simulation.set(x-4, y, 1);
 	}
 	
 	/** 
@@ -1024,58 +1394,27 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 */
 	private void stampTumbler(int x, int y) {
 		// Left side.
-		lifeArray[x-1][y+1].state = 1;
-		postLifeArray[x-1][y+1].state = 1;
-		
-		lifeArray[x-2][y+1].state = 1;
-		postLifeArray[x-2][y+1].state = 1;
-		
-		lifeArray[x-2][y].state = 1;
-		postLifeArray[x-2][y].state = 1;
-		
-		lifeArray[x-1][y-1].state = 1;
-		postLifeArray[x-1][y-1].state = 1;
-		
-		lifeArray[x-2][y-2].state = 1;
-		postLifeArray[x-2][y-2].state = 1;
-		
-		lifeArray[x-3][y-3].state = 1;
-		postLifeArray[x-3][y-3].state = 1;
-		
-		lifeArray[x-4][y-2].state = 1;
-		postLifeArray[x-4][y-2].state = 1;
-		
-		lifeArray[x-4][y-1].state = 1;
-		postLifeArray[x-4][y-1].state = 1;
+		simulation.set(x-1, y+1, 1);
+		simulation.set(x-2, y+1, 1);
+		simulation.set(x-2, y, 1);
+		simulation.set(x-1, y-1, 1);
+		simulation.set(x-2, y-2, 1);
+		simulation.set(x-3, y-3, 1);
+		simulation.set(x-4, y-2, 1);
+		simulation.set(x-4, y-1, 1);
 		
 		// Right side.
-		lifeArray[x+1][y+1].state = 1;
-		postLifeArray[x+1][y+1].state = 1;
-		
-		lifeArray[x+2][y+1].state = 1;
-		postLifeArray[x+2][y+1].state = 1;
-		
-		lifeArray[x+2][y].state = 1;
-		postLifeArray[x+2][y].state = 1;
-		
-		lifeArray[x+1][y-1].state = 1;
-		postLifeArray[x+1][y-1].state = 1;
-		
-		lifeArray[x+2][y-2].state = 1;
-		postLifeArray[x+2][y-2].state = 1;
-		
-		lifeArray[x+3][y-3].state = 1;
-		postLifeArray[x+3][y-3].state = 1;
-		
-		lifeArray[x+4][y-2].state = 1;
-		postLifeArray[x+4][y-2].state = 1;
-		
-		lifeArray[x+4][y-1].state = 1;
-		postLifeArray[x+4][y-1].state = 1;
+		simulation.set(x+1, y+1, 1);
+		simulation.set(x+2, y+1, 1);
+		simulation.set(x+2, y, 1);
+		simulation.set(x+1, y-1, 1);
+		simulation.set(x+2, y-2, 1);
+		simulation.set(x+3, y-3, 1);
+		simulation.set(x+4, y-2, 1);
+		simulation.set(x+4, y-1, 1);
 		
 		// Remove the cell at the centre (if it was drawn by mousePressed).
-		lifeArray[x][y].state = 0;
-		postLifeArray[x][y].state = 0;	
+		simulation.set(x, y, 0);	
 	}
 	
 	/** 
@@ -1086,45 +1425,21 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * @see stampPattern
 	 */
 	private void stampFigureEight(int x, int y) {
-		lifeArray[x-1][y+1].state = 1;
-		postLifeArray[x-1][y+1].state = 1;
-		
-		lifeArray[x-2][y].state = 1;
-		postLifeArray[x-2][y].state = 1;
-		
-		lifeArray[x+1][y-1].state = 1;
-		postLifeArray[x+1][y-1].state = 1;
-		
-		lifeArray[x][y-2].state = 1;
-		postLifeArray[x][y-2].state = 1;
-		
-		lifeArray[x-2][y-2].state = 1;
-		postLifeArray[x-2][y-2].state = 1;
-		
-		lifeArray[x-2][y-3].state = 1;
-		postLifeArray[x-2][y-3].state = 1;
-		
-		lifeArray[x-3][y-2].state = 1;
-		postLifeArray[x-3][y-2].state = 1;
-		
-		lifeArray[x-3][y-3].state = 1;
-		postLifeArray[x-3][y-3].state = 1;
-		
-		lifeArray[x+1][y+1].state = 1;
-		postLifeArray[x+1][y+1].state = 1;
-		
-		lifeArray[x+1][y+2].state = 1;
-		postLifeArray[x+1][y+2].state = 1;
-		
-		lifeArray[x+2][y+1].state = 1;
-		postLifeArray[x+2][y+1].state = 1;
-		
-		lifeArray[x+2][y+2].state = 1;
-		postLifeArray[x+2][y+2].state = 1;
+		simulation.set(x-1, y+1, 1);
+		simulation.set(x-2, y, 1);
+		simulation.set(x+1, y-1, 1);
+		simulation.set(x, y-2, 1);
+		simulation.set(x-2, y-2, 1);
+		simulation.set(x-2, y-3, 1);
+		simulation.set(x-3, y-2, 1);
+		simulation.set(x-3, y-3, 1);
+		simulation.set(x+1, y+1, 1);
+		simulation.set(x+1, y+2, 1);
+		simulation.set(x+2, y+1, 1);
+		simulation.set(x+2, y+2, 1);
 		
 		// Remove the cell at the centre (if it was drawn by mousePressed).
-		lifeArray[x][y].state = 0;
-		postLifeArray[x][y].state = 0;
+		simulation.set(x, y, 0);
 	}
 	
 	/** 
@@ -1135,47 +1450,21 @@ public class LifePanel extends JPanel implements ActionListener, MouseListener,
 	 * @see stampPattern
 	 */
 	private void stampPhoenix(int x, int y) {
-		lifeArray[x-2][y].state = 1;
-		postLifeArray[x-2][y].state = 1;
-
-		lifeArray[x-3][y].state = 1;
-		postLifeArray[x-3][y].state = 1;
-		
-		lifeArray[x-1][y-2].state = 1;
-		postLifeArray[x-1][y-2].state = 1;
-		
-		lifeArray[x+1][y-2].state = 1;
-		postLifeArray[x+1][y-2].state = 1;
-		
-		lifeArray[x+1][y-3].state = 1;
-		postLifeArray[x+1][y-3].state = 1;
-		
-		lifeArray[x+3][y-1].state = 1;
-		postLifeArray[x+3][y-1].state = 1;
-		
-		lifeArray[x+3][y+1].state = 1;
-		postLifeArray[x+3][y+1].state = 1;
-		
-		lifeArray[x+4][y+1].state = 1;
-		postLifeArray[x+4][y+1].state = 1;
-		
-		lifeArray[x+2][y+3].state = 1;
-		postLifeArray[x+2][y+3].state = 1;
-		
-		lifeArray[x][y+3].state = 1;
-		postLifeArray[x][y+3].state = 1;
-		
-		lifeArray[x][y+3].state = 1;
-		postLifeArray[x][y+3].state = 1;
-		
-		lifeArray[x][y+4].state = 1;
-		postLifeArray[x][y+4].state = 1;
-		
-		lifeArray[x-2][y+2].state = 1;
-		postLifeArray[x-2][y+2].state = 1;
+		simulation.set(x-2, y, 1);
+		simulation.set(x-3, y, 1);
+		simulation.set(x-1, y-2, 1);
+		simulation.set(x+1, y-2, 1);
+		simulation.set(x+1, y-3, 1);
+		simulation.set(x+3, y-1, 1);
+		simulation.set(x+3, y+1, 1);
+		simulation.set(x+4, y+1, 1);
+		simulation.set(x+2, y+3, 1);
+		simulation.set(x, y+3, 1);
+		simulation.set(x, y+3, 1);
+		simulation.set(x, y+4, 1);
+		simulation.set(x-2, y+2, 1);
 		
 		// Remove the cell at the centre (if it was drawn by mousePressed).
-		lifeArray[x][y].state = 0;
-		postLifeArray[x][y].state = 0;
+		simulation.set(x, y, 0);
 	}
 }
\ No newline at end of file
@@ -25,6 +25,10 @@ import java.awt.event.MouseEvent;
 import javax.swing.JMenuBar;
 import javax.swing.JSlider;
 import javax.swing.JLabel;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.File;
 
 /**
  * The MainClass handles the running of the application as well as creating its UI.
@@ -38,6 +42,16 @@ public class MainClass extends JFrame {
 	private JPanel contentPane;
 	/** A local save for whether or not the simulation is running. */
 	private int playState = 0;
+	/** The number of generations that a fast-forward jumps, as a power of two. Default is 2^10 = 1024 generations. */
+	private int fastForwardExponent = 10;
+	/** The chance of each cell being alive when the grid is randomised, as a percentage. Default is 30%, the same as the first soup. */
+	private double soupPercentage = Simulation.DEFAULT_DENSITY * 100;
+	/** A local save for whether the automaton is on the unbounded plane, rather than the bounded grid. */
+	private boolean unbounded = false;
+	/** A local save for whether generations are computed on every processor at once. */
+	private boolean parallel = false;
+	/** A local save for whether the grid wraps around at its edges. Loading a save may change it (see <code>LifePanel.loadListener</code>). */
+	private boolean wrapping = true;
 	
 	/**
 	 * Launch the application. This is the main method.
@@ -55,6 +69,14 @@ public class MainClass extends JFrame {
 					dialog.setTitle("Choose size and initial save");
 					dialog.setVisible(true); 
 					
+					// The dialog may have been closed (with the X button) without checking the grid size, so check it here too, fitting the grid to the window instead.
+					if(!InitialPopup.fitsInMemory(InitialPopup.initialColumns, InitialPopup.initialRows)) {
+						JOptionPane.showMessageDialog(null, InitialPopup.memoryMessage(InitialPopup.initialColumns, InitialPopup.initialRows) 
+								+ " The grid will be fitted to the window instead.", "Grid too large", JOptionPane.ERROR_MESSAGE);
+						InitialPopup.initialColumns = 0;
+						InitialPopup.initialRows = 0;
+					}
+					
 					// Once dialog input has been received, start the simulation.
 					MainClass simulation = new MainClass();
 					simulation.setSize(new Dimension(InitialPopup.initialWidth+20, InitialPopup.initialHeight+20)); // Set size for when the user de-maximises the program, plus some leeway.
@@ -80,6 +102,8 @@ public class MainClass extends JFrame {
 		int inputCellSize = InitialPopup.initialSize;
 		int inputWidth = InitialPopup.initialWidth;
 		int inputHeight = InitialPopup.initialHeight;
+		int inputColumns = InitialPopup.initialColumns;
+		int inputRows = InitialPopup.initialRows;
 		String inputLoad = InitialPopup.initialLoad;
 		
 		// Set basic frame properties.
@@ -90,6 +114,13 @@ public class MainClass extends JFrame {
 		contentPane.setLayout(new BorderLayout(0, 0));
 		setContentPane(contentPane);
 		
+		/* Create the LifePanel object.
+		 * It is created before the buttons, so that they can wake it up (see LifePanel.wake) after setting its flags: while paused, it does nothing until it is woken.
+		 * screenWidth - 130 accounts for the width of the toolbar plus its border.
+		 * screenHeight - 40 accounts for the height of the program's header bar (the bar that has the minimise, maximise and close window buttons) and the hidden stamp menu.
+		 */
+		LifePanel panel =  new LifePanel(inputWidth-130, inputHeight-40, inputCellSize, inputColumns, inputRows, Color.DARK_GRAY, Color.WHITE, inputLoad);
+		
 		// Set up the toolbar.
 		JToolBar toolBar = new JToolBar(); // The toolbar has all the buttons that the user interacts with (except for stamps).
 		toolBar.setAutoscrolls(true);
@@ -136,8 +167,8 @@ public class MainClass extends JFrame {
 		JButton buttonClickState = new JButton("Erase Cells");
 		buttonClickState.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.drawState = 1 - LifePanel.drawState; // Alternates between 0 and 1 (a value of 1 means we want to erase cells).
-				if(LifePanel.drawState == 0) { // The user has chosen to draw live cells.
+				panel.drawState = 1 - panel.drawState; // Alternates between 0 and 1 (a value of 1 means we want to erase cells).
+				if(panel.drawState == 0) { // The user has chosen to draw live cells.
 					buttonClickState.setToolTipText("Currently drawing live cells to the grid. This option does not change stamps.");
 					buttonClickState.setText("Erase Cells");
 				}
@@ -169,12 +200,12 @@ public class MainClass extends JFrame {
 				switch(playState) {
 					case(1): // The simulation is currently playing.
 						buttonPlayPause.setText("Play");
-						LifePanel.pauseFlag = true;
+						panel.submit(Command.pause());
 						playState = 0;
 						break;
 					case(0): // The simulation is currently paused.
 						buttonPlayPause.setText("Pause");
-						LifePanel.pauseFlag = false;
+						panel.submit(Command.run());
 						playState = 1;
 						break;
 				}
@@ -189,7 +220,7 @@ public class MainClass extends JFrame {
 		buttonSingleStep.setMaximumSize(new Dimension(120, 60));
 		buttonSingleStep.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.singleStepFlag = true;
+				panel.submit(Command.step());
 			}
 		});
 		toolBar.add(buttonSingleStep);
@@ -203,6 +234,7 @@ public class MainClass extends JFrame {
 		
 		/* TIMER
 		 * This slider lets the user choose how fast the simulation runs. A range of 10ms steps between 250ms and 10ms updates.
+		 * For anything faster, turbo mode (below) computes several generations per frame.
 		 */
 		JSlider timerSlider = new JSlider();
 		timerSlider.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -215,7 +247,7 @@ public class MainClass extends JFrame {
 		timerSlider.setInverted(true); // We want the higher values to be on the left to signify slower.
 		timerSlider.addChangeListener(new ChangeListener() {
 			public void stateChanged(ChangeEvent e) {
-				LifePanel.timer.setDelay(timerSlider.getValue()); // Set the timer delay to the chosen value.
+				panel.generationDelay = timerSlider.getValue(); // Set the delay between generations to the chosen value.
 			}
 		});
 		toolBar.add(timerSlider);
@@ -227,11 +259,64 @@ public class MainClass extends JFrame {
 		buttonDefaultSpeed.setMaximumSize(new Dimension(120, 60));
 		buttonDefaultSpeed.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.timer.setDelay(75);
+				panel.generationDelay = 75;
 				timerSlider.setValue(75); // This will technically repeat the above line of code, but it is still there for clarity.
 			}
 		});
 		toolBar.add(buttonDefaultSpeed);
+		
+		/* TEXT FIELD FOR TURBO
+		 * This text field sets how many generations turbo mode computes for every frame. 0 computes as many as possible.
+		 * Like the fast-forward field, the value is only applied when the button below is used.
+		 */
+		JFormattedTextField turboTextField = new JFormattedTextField();
+		turboTextField.setAlignmentX(Component.LEFT_ALIGNMENT);
+		turboTextField.addFocusListener(new FocusAdapter() {
+			@Override
+			public void focusGained(FocusEvent e) {
+				turboTextField.selectAll();
+				turboTextField.setForeground(Color.GRAY);
+			}
+		});
+		turboTextField.setToolTipText("Enter the number of generations per frame here, or 0 for as many as possible");
+		turboTextField.setForeground(Color.BLACK);
+		turboTextField.setText(Integer.toString(panel.turboGenerations));
+		turboTextField.setFocusLostBehavior(JFormattedTextField.COMMIT);
+		turboTextField.setMaximumSize(new Dimension(200, 30));
+		toolBar.add(turboTextField);
+		
+		/* TURBO
+		 * This button enables / disables turbo mode, which ignores the slider above and computes several generations for every frame (about 60 frames per second).
+		 * The number of generations per frame is taken from the text field above when turbo mode is enabled.
+		 */
+		JButton buttonTurbo = new JButton("Enable Turbo");
+		buttonTurbo.setMaximumSize(new Dimension(120, 60));
+		buttonTurbo.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if(panel.turboFlag) {
+					panel.turboFlag = false;
+					buttonTurbo.setText("Enable Turbo");
+				}
+				else {
+					// Invalid input leaves the number of generations per frame as it was.
+					String generationsString = turboTextField.getText().replaceAll("[^0-9]", "");
+					if(!generationsString.isEmpty() && generationsString.length() <= 6) {
+						panel.turboGenerations = Integer.parseInt(generationsString);
+					}
+					turboTextField.setText(Integer.toString(panel.turboGenerations));
+					turboTextField.setForeground(Color.BLACK);
+					panel.turboFlag = true;
+					buttonTurbo.setText("Disable Turbo");
+				}
+			}
+		});
+		toolBar.add(buttonTurbo);
+		
+		// This label shows how fast the simulation is actually running. It is updated once a second by the LifePanel (see below).
+		JLabel lblSpeed = new JLabel("<HTML>0 gens/s<BR>0 frames/s</HTML>");
+		lblSpeed.setHorizontalAlignment(SwingConstants.CENTER);
+		lblSpeed.setMaximumSize(new Dimension(120, 40));
+		toolBar.add(lblSpeed);
 
 		// Grid Options label - buttons underneath this label let the user influence the state of the grid, e.g. clearing it.
 		JLabel lblGridOptions = new JLabel("<HTML><U>Grid Options</U></HTML>");
@@ -247,26 +332,84 @@ public class MainClass extends JFrame {
 		buttonEmptyAutomaton.setMaximumSize(new Dimension(120, 60));
 		buttonEmptyAutomaton.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.emptyAutomatonFlag = true;
+				panel.submit(Command.clear());
 			}
 		});
 		toolBar.add(buttonEmptyAutomaton);
 		
+		/* TEXT FIELDS FOR RANDOM STATE
+		 * These text fields set the density of the soup that the button below makes (as a percentage), and its seed.
+		 * The seed field is empty by default, which makes a new soup every time. Entering a seed (e.g. one that was shown in the status) makes the same soup again.
+		 * Like the fast-forward field, the values are only applied when the button below is used.
+		 */
+		JFormattedTextField densityTextField = new JFormattedTextField();
+		densityTextField.setAlignmentX(Component.LEFT_ALIGNMENT);
+		densityTextField.addFocusListener(new FocusAdapter() {
+			@Override
+			public void focusGained(FocusEvent e) {
+				densityTextField.selectAll();
+				densityTextField.setForeground(Color.GRAY);
+			}
+		});
+		densityTextField.setToolTipText("Enter the percentage of cells to bring to life here (0-100)");
+		densityTextField.setForeground(Color.BLACK);
+		densityTextField.setText(soupPercentage + "%");
+		densityTextField.setFocusLostBehavior(JFormattedTextField.COMMIT);
+		densityTextField.setMaximumSize(new Dimension(200, 30));
+		toolBar.add(densityTextField);
+		
+		JFormattedTextField seedTextField = new JFormattedTextField();
+		seedTextField.setAlignmentX(Component.LEFT_ALIGNMENT);
+		seedTextField.addFocusListener(new FocusAdapter() {
+			@Override
+			public void focusGained(FocusEvent e) {
+				seedTextField.selectAll();
+				seedTextField.setForeground(Color.GRAY);
+			}
+		});
+		seedTextField.setToolTipText("Enter a seed here to make the same soup again, or leave it empty for a new soup every time");
+		seedTextField.setForeground(Color.BLACK);
+		seedTextField.setFocusLostBehavior(JFormattedTextField.COMMIT);
+		seedTextField.setMaximumSize(new Dimension(200, 30));
+		toolBar.add(seedTextField);
+		
 		/* RANDOM STATE
-		 * Set the grid to a randomised state.
+		 * Set the grid to a randomised state, with the density and seed from the text fields above. The seed that was used is shown in the status, so any soup can be made again.
 		 */
 		JButton buttonRandomState = new JButton("Randomise Grid");
 		buttonRandomState.setMaximumSize(new Dimension(120, 60));
 		buttonRandomState.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.randomState = true;
+				// Invalid input leaves the density as it was.
+				try {
+					double percentage = Double.parseDouble(densityTextField.getText().replaceAll("[^0-9.]", ""));
+					if(percentage >= 0 && percentage <= 100) {
+						soupPercentage = percentage;
+					}
+				}
+				catch(NumberFormatException exception) {
+				}
+				densityTextField.setText(soupPercentage + "%");
+				densityTextField.setForeground(Color.BLACK);
+				
+				// An empty (or invalid) seed makes a new soup, with a new seed.
+				long seed;
+				try {
+					seed = Long.parseLong(seedTextField.getText().trim());
+				}
+				catch(NumberFormatException exception) {
+					seed = System.nanoTime();
+					seedTextField.setText("");
+				}
+				seedTextField.setForeground(Color.BLACK);
+				panel.submit(Command.randomize(seed, soupPercentage / 100));
 			}
 		});
 		toolBar.add(buttonRandomState);
 		
 		/* TOGGLE HEATMAP
 		 * This button toggles the heatmap.
-		 * Instead of using a local variable like "playState", this button reads directly from LifePanel.
+		 * Instead of using a local variable like "playState", this button reads directly from the LifePanel.
 		 * This is because toggleHeatmap is a variable that can not be extended, and will only ever be either true or false.
 		 * However, the program could be extended to incorporate more than two play states.
 		 */
@@ -274,18 +417,53 @@ public class MainClass extends JFrame {
 		buttonHeatmap.setMaximumSize(new Dimension(120, 60));
 		buttonHeatmap.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				if (LifePanel.heatmapFlag) {
-					LifePanel.heatmapFlag = false;
+				if (panel.heatmapFlag) {
+					panel.heatmapFlag = false;
 					buttonHeatmap.setText("Enable Heatmap");
 				}
 				else {
-					LifePanel.heatmapFlag = true;
+					panel.heatmapFlag = true;
 					buttonHeatmap.setText("Disable Heatmap");
 				}
+				panel.wake(); // Every live cell changes colour, even while the simulation is paused.
 			}
 		});
 		toolBar.add(buttonHeatmap);
 		
+		// View Options label - buttons underneath this label let the user zoom the view of the grid.
+		JLabel lblViewOptions = new JLabel("<HTML><U>View Options</U></HTML>");
+		lblViewOptions.setVerticalAlignment(SwingConstants.BOTTOM);
+		lblViewOptions.setHorizontalAlignment(SwingConstants.CENTER);
+		lblViewOptions.setMaximumSize(new Dimension(120, 30));
+		toolBar.add(lblViewOptions);
+		
+		/* ZOOM IN
+		 * This button makes the cells larger, about the centre of the view.
+		 * The mouse wheel does the same thing about the mouse pointer, and dragging with the right mouse button moves the view.
+		 */
+		JButton buttonZoomIn = new JButton("Zoom In");
+		buttonZoomIn.setMaximumSize(new Dimension(120, 60));
+		buttonZoomIn.setToolTipText("Zoom in on the centre of the view. The mouse wheel zooms about the mouse pointer, and dragging with the right mouse button moves the view.");
+		buttonZoomIn.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				panel.submit(Command.zoom(1));
+			}
+		});
+		toolBar.add(buttonZoomIn);
+		
+		/* ZOOM OUT
+		 * This button makes the cells smaller, so that more of the grid is in view.
+		 */
+		JButton buttonZoomOut = new JButton("Zoom Out");
+		buttonZoomOut.setMaximumSize(new Dimension(120, 60));
+		buttonZoomOut.setToolTipText("Zoom out from the centre of the view. The mouse wheel zooms about the mouse pointer, and dragging with the right mouse button moves the view.");
+		buttonZoomOut.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				panel.submit(Command.zoom(-1));
+			}
+		});
+		toolBar.add(buttonZoomOut);
+		
 		// Save / Load Options label - buttons underneath this label let the user load and save states.
 		JLabel lblSaveLoadOptions = new JLabel("<HTML><U>Save / Load Options</U></HTML>");
 		lblSaveLoadOptions.setVerticalAlignment(SwingConstants.BOTTOM);
@@ -295,13 +473,13 @@ public class MainClass extends JFrame {
 		
 		/* SAVE FILE
 		 * This button prompts the program to save its state to an external file.
-		 * Uses a static flag to tell LifePanel to save.
+		 * Submits a save command to LifePanel.
 		 */
 		JButton buttonSaveFile = new JButton("Save");
 		buttonSaveFile.setMaximumSize(new Dimension(120, 60));
 		buttonSaveFile.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveFlag = true;
+				panel.submit(Command.save());
 			}
 		});
 		toolBar.add(buttonSaveFile);
@@ -309,7 +487,7 @@ public class MainClass extends JFrame {
 		/* LOAD FILE
 		 * This button prompts to program to load a saved file.
 		 * The popup menu and its buttons are written in code below this button. This is because the popup menu is a separate entity.
-		 * Uses a static flag and a static string to tell LifePanel to load, and what filename it should load.
+		 * Submits a command telling LifePanel which file to load.
 		 */
 		JButton buttonLoadFile = new JButton("Load");
 		buttonLoadFile.setMaximumSize(new Dimension(120, 60));
@@ -318,7 +496,7 @@ public class MainClass extends JFrame {
 		/* POPUP MENU (LOAD FILES) AND LOAD BUTTONS
 		 * This popup menu shows up when "buttonLoadFile" is clicked.
 		 * It gives the user options to load several different files, or to cancel the operation.
-		 * This popup menu controls the value of the static string "saveToLoad".
+		 * Each button submits a command to load a different file.
 		 */
 		JPopupMenu popupMenuLoads = new JPopupMenu();
 		// Bounds for the popup menu - height is 50, which makes the default button size shorter (from 60).
@@ -330,8 +508,7 @@ public class MainClass extends JFrame {
 		buttonLoadCurrent.setMaximumSize(new Dimension(120, 60));
 		buttonLoadCurrent.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveToLoad = "current_save.txt";
-				LifePanel.loadFlag = true;
+				panel.submit(Command.load(LifePanel.SAVE_FILE));
 				popupMenuLoads.setVisible(false);
 			}
 		});
@@ -342,8 +519,7 @@ public class MainClass extends JFrame {
 		buttonLoadGliders.setMaximumSize(new Dimension(120, 60));
 		buttonLoadGliders.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveToLoad = "glider_guns.txt";
-				LifePanel.loadFlag = true;
+				panel.submit(Command.load("glider_guns.cas"));
 				popupMenuLoads.setVisible(false);
 			}
 		});
@@ -358,8 +534,7 @@ public class MainClass extends JFrame {
 		buttonLoadRakeCrash.setMaximumSize(new Dimension(120, 60));
 		buttonLoadRakeCrash.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveToLoad = "rake_crash.txt";
-				LifePanel.loadFlag = true;
+				panel.submit(Command.load("rake_crash.cas"));
 				popupMenuLoads.setVisible(false);
 			}
 		});
@@ -371,8 +546,7 @@ public class MainClass extends JFrame {
 		buttonLoadDozenGliders.setMaximumSize(new Dimension(120, 60));
 		buttonLoadDozenGliders.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveToLoad = "dozen_gliders.txt";
-				LifePanel.loadFlag = true;
+				panel.submit(Command.load("dozen_gliders.cas"));
 				popupMenuLoads.setVisible(false);
 			}
 		});
@@ -384,8 +558,7 @@ public class MainClass extends JFrame {
 		buttonLoadBunnies.setMaximumSize(new Dimension(120, 60));
 		buttonLoadBunnies.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveToLoad = "bunnies.txt";
-				LifePanel.loadFlag = true;
+				panel.submit(Command.load("bunnies.cas"));
 				popupMenuLoads.setVisible(false);
 			}
 		});
@@ -397,8 +570,7 @@ public class MainClass extends JFrame {
 		buttonLoadThunderbird.setMaximumSize(new Dimension(120, 60));
 		buttonLoadThunderbird.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveToLoad = "thunderbird.txt";
-				LifePanel.loadFlag = true;
+				panel.submit(Command.load("thunderbird.cas"));
 				popupMenuLoads.setVisible(false);
 			}
 		});
@@ -409,8 +581,7 @@ public class MainClass extends JFrame {
 		buttonLoadFourCastles.setMaximumSize(new Dimension(120, 60));
 		buttonLoadFourCastles.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.saveToLoad = "four_castles.txt";
-				LifePanel.loadFlag = true;
+				panel.submit(Command.load("four_castles.cas"));
 				popupMenuLoads.setVisible(false);
 			}
 		});
@@ -428,6 +599,42 @@ public class MainClass extends JFrame {
 		
 		addPopup(buttonLoadFile, popupMenuLoads); // Add this popup menu to the "load" button, buttonLoadFile.
 		
+		/* IMPORT PATTERN
+		 * This button lets the user choose a pattern file (RLE or Life 1.06, as used by most other Life programs and pattern collections) to stamp into the centre of the view.
+		 * Submits a command telling LifePanel which file to import.
+		 */
+		JButton buttonImportPattern = new JButton("Import Pattern");
+		buttonImportPattern.setMaximumSize(new Dimension(120, 60));
+		buttonImportPattern.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser(new File("."));
+				chooser.setFileFilter(new FileNameExtensionFilter("Patterns (RLE, Life 1.06)", "rle", "lif", "life"));
+				if(chooser.showOpenDialog(MainClass.this) == JFileChooser.APPROVE_OPTION) {
+					panel.submit(Command.importPattern(chooser.getSelectedFile().getPath()));
+				}
+			}
+		});
+		toolBar.add(buttonImportPattern);
+		
+		/* EXPORT PATTERN
+		 * This button prompts the program to export the live cells as an RLE pattern, which other Life programs can open.
+		 * Submits an export command to LifePanel.
+		 */
+		JButton buttonExportPattern = new JButton("Export RLE");
+		buttonExportPattern.setMaximumSize(new Dimension(120, 60));
+		buttonExportPattern.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				panel.submit(Command.exportPattern());
+			}
+		});
+		toolBar.add(buttonExportPattern);
+		
+		// Shows what the last save, load, import or export is doing, or how it ended, or why a fast-forward could not be done. Files are saved and loaded in the background, so this is the only sign of them.
+		JLabel lblStatus = new JLabel("");
+		lblStatus.setHorizontalAlignment(SwingConstants.CENTER);
+		lblStatus.setMaximumSize(new Dimension(120, 40));
+		toolBar.add(lblStatus);
+		
 		// Advanced Options label - buttons underneath this label are for use by advanced users, such as changing rules.
 		JLabel lblAdvancedOptions = new JLabel("<HTML><U>Advanced Options</U></HTML>");
 		lblAdvancedOptions.setVerticalAlignment(SwingConstants.BOTTOM);
@@ -437,27 +644,53 @@ public class MainClass extends JFrame {
 		
 		/* TOGGLE GRID WRAPPING
 		 * By default, grid wrapping is enabled. It can be toggled on and off using this button.
-		 * Again, grid wrapping can not be extended in the future, so its value is read directly from LifePanel.
+		 * A save that is loaded may change it, in which case the button is brought up to date when the load finishes.
 		 */
 		JButton buttonToggleGridWrap = new JButton("Disable Wrapping");
 		buttonToggleGridWrap.setMaximumSize(new Dimension(120, 60));
 		buttonToggleGridWrap.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				if(LifePanel.gridWrapFlag) {
-					LifePanel.gridWrapFlag = false;
-					buttonToggleGridWrap.setText("Enable Wrapping");
-				}
-				else {
-					LifePanel.gridWrapFlag = true;
-					buttonToggleGridWrap.setText("Disable Wrapping");
-				}
+				wrapping = !wrapping;
+				panel.submit(Command.setWrapping(wrapping));
+				buttonToggleGridWrap.setText(wrapping ? "Disable Wrapping" : "Enable Wrapping");
 			}
 		});
 		toolBar.add(buttonToggleGridWrap);
 		
+		/* TOGGLE UNBOUNDED PLANE
+		 * By default, the automaton is limited to the grid that is shown on screen. This button makes it an unbounded plane instead,
+		 * so patterns that leave the screen (such as gliders) carry on existing outside of it, and can come back. Grid wrapping does not apply to the plane.
+		 * Switching back to the bounded grid keeps only the cells that are on screen.
+		 */
+		JButton buttonToggleUnbounded = new JButton("Unbounded Plane");
+		buttonToggleUnbounded.setMaximumSize(new Dimension(120, 60));
+		buttonToggleUnbounded.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				unbounded = !unbounded;
+				panel.submit(Command.setUnbounded(unbounded));
+				buttonToggleUnbounded.setText(unbounded ? "Bounded Grid" : "Unbounded Plane");
+			}
+		});
+		toolBar.add(buttonToggleUnbounded);
+		
+		/* TOGGLE MULTI-CORE
+		 * By default, generations are computed on a single processor. This button splits each generation across every processor instead,
+		 * which is faster for large and busy grids. The automaton behaves exactly the same either way.
+		 */
+		JButton buttonToggleParallel = new JButton("Enable Multi-core");
+		buttonToggleParallel.setMaximumSize(new Dimension(120, 60));
+		buttonToggleParallel.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				parallel = !parallel;
+				panel.submit(Command.setParallel(parallel));
+				buttonToggleParallel.setText(parallel ? "Disable Multi-core" : "Enable Multi-core");
+			}
+		});
+		toolBar.add(buttonToggleParallel);
+		
 		/* TEXT FIELD FOR BIRTH RULE
 		 * This text field will allow the user to dynamically change birth rules.
-		 * BirthSet and SurvivalSet are used in LifePanel.java in nextGeneration().
+		 * The rule is only applied to LifePanel.java when the rule change is confirmed.
 		 */
 		JFormattedTextField birthTextField = new JFormattedTextField();
 		birthTextField.setAlignmentX(Component.LEFT_ALIGNMENT); // Text fields align differently than buttons normally do.
@@ -480,7 +713,7 @@ public class MainClass extends JFrame {
 	
 		/* TEXT FIELD FOR SURVIVAL RULE
 		 * This text field will allow the user to dynamically change survival rules.
-		 * BirthSet and SurvivalSet are used in LifePanel.java in nextGeneration().
+		 * The rule is only applied to LifePanel.java when the rule change is confirmed.
 		 */
 		JFormattedTextField survivalTextField = new JFormattedTextField();
 		survivalTextField.setAlignmentX(Component.LEFT_ALIGNMENT); // Text fields align differently than buttons do, so this fixes that.
@@ -503,16 +736,12 @@ public class MainClass extends JFrame {
 		/* CONFIRM RULE CHANGES
 		 * This button takes the input in the birthTextField and survivalTextField and commits them to the automaton.
 		 * In turn, the rules that the user inputted will be simulated by the program when this button is used.
-		 * BirthSet and SurvivalSet are used in LifePanel.java in nextGeneration(). This button commits changes to BirthSet and SurvivalSet.
+		 * This button compiles the two fields into a new Rule and submits it to the LifePanel, which changes the rules between two generations.
 		 */
 		JButton buttonRuleChange = new JButton("Confirm Rules");
 		buttonRuleChange.setMaximumSize(new Dimension(120, 60));
 		buttonRuleChange.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				// Clear the current rules.
-				LifePanel.survivalSet.clear();
-				LifePanel.birthSet.clear();
-				
 				// Fetch user-inputted values for new rules, which may be empty.
 				String birthString = birthTextField.getText();
 				String survivalString = survivalTextField.getText();
@@ -527,28 +756,88 @@ public class MainClass extends JFrame {
 				birthTextField.setForeground(Color.BLACK);
 				survivalTextField.setForeground(Color.BLACK);
 				
-				// Now, add rules to the automaton to reflect the user's input. The HashSet's properties will automatically ignore duplicate numbers in the field.
-				for(int i = 0; i < birthString.length(); i++) {
-					// Add each number in the birthString to the birth set of rules.
-					LifePanel.birthSet.add(Character.getNumericValue(birthString.charAt(i)));
-				}
-				for(int i = 0; i < survivalString.length(); i++) {
-					// Add each number in the survivalString to the survival set of rules.
-					LifePanel.survivalSet.add(Character.getNumericValue(survivalString.charAt(i)));
-				}
+				// Now, compile the rules and hand them to the automaton in one step. Rule automatically ignores duplicate numbers in the field.
+				// The old rules stay in effect until the generation in progress (if any) has finished.
+				panel.submit(Command.setRule(new Rule(birthString, survivalString)));
 			}
 		});
 		toolBar.add(buttonRuleChange);	
+		
+		/* TEXT FIELD FOR FAST-FORWARD
+		 * This text field sets how far the fast-forward button jumps, as a power of two (e.g. 10 jumps 2^10 = 1024 generations).
+		 * Like the rule fields, the value is only applied when the button below is used.
+		 */
+		JFormattedTextField fastForwardTextField = new JFormattedTextField();
+		fastForwardTextField.setAlignmentX(Component.LEFT_ALIGNMENT);
+		fastForwardTextField.addFocusListener(new FocusAdapter() {
+			@Override
+			public void focusGained(FocusEvent e) {
+				fastForwardTextField.selectAll();
+				fastForwardTextField.setForeground(Color.GRAY);
+			}
+		});
+		fastForwardTextField.setToolTipText("Enter the jump size here, as a power of two");
+		fastForwardTextField.setForeground(Color.BLACK);
+		fastForwardTextField.setText("2^" + fastForwardExponent);
+		fastForwardTextField.setFocusLostBehavior(JFormattedTextField.COMMIT);
+		fastForwardTextField.setMaximumSize(new Dimension(200, 30));
+		toolBar.add(fastForwardTextField);
+		
+		/* FAST-FORWARD
+		 * This button jumps the automaton forward by 2^n generations at once, where n is taken from the text field above.
+		 * The jump is computed with HashLife, which is extremely fast for regular patterns such as guns and rakes.
+		 * On the bounded grid, wrapping must be disabled first (the reason is shown in the status otherwise), and cells that leave the grid during the jump are lost.
+		 * On the unbounded plane, the whole plane jumps and nothing is lost.
+		 */
+		JButton buttonFastForward = new JButton("Fast-forward");
+		buttonFastForward.setMaximumSize(new Dimension(120, 60));
+		buttonFastForward.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				// Only the digits after the "^" are used, so both "2^10" and "10" are accepted. Invalid input leaves the jump size as it was.
+				String exponentString = fastForwardTextField.getText();
+				exponentString = exponentString.substring(exponentString.indexOf('^') + 1).replaceAll("[^0-9]", "");
+				if(!exponentString.isEmpty() && exponentString.length() <= 2) {
+					fastForwardExponent = Math.min(Integer.parseInt(exponentString), HashLifeEngine.MAX_EXPONENT);
+				}
+				fastForwardTextField.setText("2^" + fastForwardExponent);
+				fastForwardTextField.setForeground(Color.BLACK);
+				panel.submit(Command.fastForward(fastForwardExponent));
+			}
+		});
+		toolBar.add(buttonFastForward);
 		 
 		
-		/* Create the LifePanel object.
+		/* Add the LifePanel object (created above).
 		 * All buttons that appear on the JToolBar are written above.
 		 * Below this are the buttons that appear on the Stamp menu, which appears at the top of the screen when the user makes it visible.
-		 * screenWidth - 130 accounts for the width of the toolbar plus its border.
-		 * screenHeight - 40 accounts for the height of the program's header bar (the bar that has the minimise, maximise and close window buttons) and the hidden stamp menu.
 		 */
-		LifePanel panel =  new LifePanel(inputWidth-130, inputHeight-40, inputCellSize, Color.DARK_GRAY, Color.WHITE, inputLoad);
 		contentPane.add(panel, BorderLayout.CENTER); // Add the LifePanel to the base panel.
+		panel.speedListener = new Runnable() { // Show the speed that the LifePanel measures in the toolbar.
+			public void run() {
+				lblSpeed.setText("<HTML>" + panel.generationsPerSecond + " gens/s<BR>" + panel.framesPerSecond + " frames/s</HTML>");
+			}
+		};
+		panel.statusListener = new Runnable() { // Show the progress and result of saves and loads, and any other problems, in the toolbar.
+			public void run() {
+				String status = panel.status.replace("&", "&amp;").replace("<", "&lt;"); // File names and error messages are shown as they are, not as HTML.
+				lblStatus.setText("<HTML>" + status + "</HTML>");
+				lblStatus.setToolTipText(panel.status);
+			}
+		};
+		panel.statusListener.run(); // The seed of the first soup was reported before there was a listener.
+		panel.loadListener = new Runnable() { // Show the grid wrapping and rules of a save once it has been loaded.
+			public void run() {
+				wrapping = panel.loadedWrapping;
+				buttonToggleGridWrap.setText(wrapping ? "Disable Wrapping" : "Enable Wrapping");
+				// The rule fields show the rules that are running, so that the next "Confirm Rules" does not quietly bring the old ones back.
+				Rule rule = panel.loadedRule;
+				birthTextField.setText("B" + rule.getBirth());
+				survivalTextField.setText("S" + rule.getSurvival());
+				birthTextField.setForeground(Color.BLACK);
+				survivalTextField.setForeground(Color.BLACK);
+			}
+		};
+		panel.loadListener.run(); // The first save may have been loaded before there was a listener.
 		
 		
 		/* CREATE STAMP MENUS  - BUTTONS ON THE JMENUBAR FOLLOW
@@ -570,7 +859,7 @@ public class MainClass extends JFrame {
 		JButton buttonStampNone = new JButton("No Stamp");
 		buttonStampNone.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 0; // This integer is used in a switch statement to determine which stamp to use.
+				panel.stampToUse = 0; // This integer is used in a switch statement to determine which stamp to use.
 				buttonStamp.setToolTipText("Current stamp: none");
 				stampMenu.setVisible(false); // Hide menu after a button is used.
 			}
@@ -592,7 +881,7 @@ public class MainClass extends JFrame {
 		buttonUpLeftGlider.setMaximumSize(new Dimension(120, 60));
 		buttonUpLeftGlider.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 10;
+				panel.stampToUse = 10;
 				buttonStamp.setToolTipText("Current stamp: Glider (diagonal up-left)");
 				popupMenuGliders.setVisible(false);
 				stampMenu.setVisible(false);
@@ -604,7 +893,7 @@ public class MainClass extends JFrame {
 		buttonUpRightGlider.setMaximumSize(new Dimension(120, 60));
 		buttonUpRightGlider.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 11;
+				panel.stampToUse = 11;
 				buttonStamp.setToolTipText("Current stamp: Glider (diagonal up-right)");
 				popupMenuGliders.setVisible(false);
 				stampMenu.setVisible(false);
@@ -616,7 +905,7 @@ public class MainClass extends JFrame {
 		buttonDownRightGlider.setMaximumSize(new Dimension(120, 60));
 		buttonDownRightGlider.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 12;
+				panel.stampToUse = 12;
 				buttonStamp.setToolTipText("Current stamp: Glider (diagonal down-right)");
 				popupMenuGliders.setVisible(false);
 				stampMenu.setVisible(false);
@@ -628,7 +917,7 @@ public class MainClass extends JFrame {
 		buttonDownLeftGlider.setMaximumSize(new Dimension(120, 60));
 		buttonDownLeftGlider.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 13;
+				panel.stampToUse = 13;
 				buttonStamp.setToolTipText("Current stamp: Glider (diagonal down-left)");
 				popupMenuGliders.setVisible(false);
 				stampMenu.setVisible(false);
@@ -652,7 +941,7 @@ public class MainClass extends JFrame {
 		buttonRightLWSS.setMaximumSize(new Dimension(120, 60));
 		buttonRightLWSS.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 20;
+				panel.stampToUse = 20;
 				buttonStamp.setToolTipText("Current stamp: LWSS (left-to-right)");
 				popupMenuLWSS.setVisible(false);
 				stampMenu.setVisible(false);
@@ -664,7 +953,7 @@ public class MainClass extends JFrame {
 		buttonLeftLWSS.setMaximumSize(new Dimension(120, 60));
 		buttonLeftLWSS.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 21;
+				panel.stampToUse = 21;
 				buttonStamp.setToolTipText("Current stamp: LWSS (right-to-left)");
 				popupMenuLWSS.setVisible(false);
 				stampMenu.setVisible(false);
@@ -688,7 +977,7 @@ public class MainClass extends JFrame {
 		buttonRightMWSS.setMaximumSize(new Dimension(120, 60));
 		buttonRightMWSS.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 30;
+				panel.stampToUse = 30;
 				buttonStamp.setToolTipText("Current stamp: MWSS (left-to-right)");
 				popupMenuMWSS.setVisible(false);
 				stampMenu.setVisible(false);
@@ -700,7 +989,7 @@ public class MainClass extends JFrame {
 		buttonLeftMWSS.setMaximumSize(new Dimension(120, 60));
 		buttonLeftMWSS.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 31;
+				panel.stampToUse = 31;
 				buttonStamp.setToolTipText("Current stamp: MWSS (right-to-left)");
 				popupMenuMWSS.setVisible(false);
 				stampMenu.setVisible(false);
@@ -724,7 +1013,7 @@ public class MainClass extends JFrame {
 		buttonRightHWSS.setMaximumSize(new Dimension(120, 60));
 		buttonRightHWSS.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 40;
+				panel.stampToUse = 40;
 				buttonStamp.setToolTipText("Current stamp: HWSS (left-to-right)");
 				popupMenuHWSS.setVisible(false);
 				stampMenu.setVisible(false);
@@ -736,7 +1025,7 @@ public class MainClass extends JFrame {
 		buttonLeftHWSS.setMaximumSize(new Dimension(120, 60));
 		buttonLeftHWSS.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 41;
+				panel.stampToUse = 41;
 				buttonStamp.setToolTipText("Current stamp: HWSS (right-to-left)");
 				popupMenuHWSS.setVisible(false);
 				stampMenu.setVisible(false);
@@ -760,7 +1049,7 @@ public class MainClass extends JFrame {
 		buttonPulsar.setMaximumSize(new Dimension(140, 60)); // These buttons are wider than the others, as some of their names are very long.
 		buttonPulsar.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 50;
+				panel.stampToUse = 50;
 				buttonStamp.setToolTipText("Current stamp: Pulsar");
 				popupMenuOscillators.setVisible(false);
 				stampMenu.setVisible(false);
@@ -772,7 +1061,7 @@ public class MainClass extends JFrame {
 		buttonPentadecathlon.setMaximumSize(new Dimension(140, 60)); // This button's name is very long, and doesn't fit in 120 width like the other buttons.
 		buttonPentadecathlon.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 51;
+				panel.stampToUse = 51;
 				buttonStamp.setToolTipText("Current stamp: Pentadecathlon");
 				popupMenuOscillators.setVisible(false);
 				stampMenu.setVisible(false);
@@ -784,7 +1073,7 @@ public class MainClass extends JFrame {
 		buttonTumbler.setMaximumSize(new Dimension(140, 60));
 		buttonTumbler.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 52;
+				panel.stampToUse = 52;
 				buttonStamp.setToolTipText("Current stamp: Tumbler");
 				popupMenuOscillators.setVisible(false);
 				stampMenu.setVisible(false);
@@ -796,7 +1085,7 @@ public class MainClass extends JFrame {
 		buttonFigureEight.setMaximumSize(new Dimension(140, 60));
 		buttonFigureEight.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 53;
+				panel.stampToUse = 53;
 				buttonStamp.setToolTipText("Current stamp: Figure Eight");
 				popupMenuOscillators.setVisible(false);
 				stampMenu.setVisible(false);
@@ -808,7 +1097,7 @@ public class MainClass extends JFrame {
 		buttonPhoenix.setMaximumSize(new Dimension(140, 60));
 		buttonPhoenix.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				LifePanel.stampToUse = 54;
+				panel.stampToUse = 54;
 				buttonStamp.setToolTipText("Current stamp: Phoenix");
 				popupMenuOscillators.setVisible(false);
 				stampMenu.setVisible(false);
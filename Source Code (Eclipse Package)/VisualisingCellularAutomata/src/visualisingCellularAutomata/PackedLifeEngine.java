@@ -0,0 +1,1098 @@
+package visualisingCellularAutomata;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The PackedLifeEngine stores the grid of cells as bits and computes each new generation 64 cells at a time.
+ * Each row of the grid is stored as a run of <code>long</code> words: bit n of word w holds the state of the cell in column (w * 64 + n).
+ * Instead of visiting every cell and counting its neighbours one by one, the neighbour counts of a whole word of cells are computed at once
+ * using bitwise full adders, and the birth and survival rules are then applied to the whole word.
+ * This means that a cell's state costs one bit of memory (instead of a whole <code>Cell</code> object), and that no objects are followed in the inner loop.
+ * 
+ * The age of each cell (used by the heatmap) is not stored directly. Instead, the engine counts generations, and remembers the generation that each cell was born in,
+ * in one <code>int</code> array per tile (see below). A cell's age is worked out from these only when it is read.
+ * This means that a generation only writes to the cells that are born in it, rather than making every surviving cell one generation older.
+ * A tile's array is only created once a cell in it is born, so parts of the grid that have never had any births (or that were born while age tracking was off) cost no memory for ages.
+ * Age tracking can also be turned off (when the heatmap is not shown), in which case births are not recorded either. When it is turned back on,
+ * the birth generations that were missed can not be trusted, so every cell that is alive at that point is treated as if it was born then.
+ * 
+ * The grid of states is surrounded by a border (a "halo") of ghost cells, one cell wide, that are not part of the grid itself.
+ * Before each generation, the halo is refreshed: with grid wrapping enabled, it is a copy of the opposite edge of the grid; with it disabled, it is all dead cells.
+ * Every cell in the grid therefore has eight real neighbours in memory, so computing a generation needs no modulo operations, no bounds checks and no special cases
+ * for the edges, and it costs the same with grid wrapping enabled or disabled.
+ * 
+ * The grid is also divided into tiles of 64 columns (one word) by 32 rows, and the engine remembers which tiles changed in the last generation.
+ * A tile can only change if it, or one of the eight tiles around it, changed in the last generation, so every other tile is skipped.
+ * This means that empty areas and still lifes cost (almost) nothing, and the time taken by a generation depends on how much of the grid is active, rather than on its size.
+ * The same tiles are used to tell the display which parts of the grid have changed since it was last drawn (see <code>takeChangedTiles</code>), so that only those are redrawn.
+ * 
+ * When the display is zoomed out so far that many cells share one pixel, it draws the number of live cells in each pixel instead of the cells themselves.
+ * These numbers come from a density pyramid: the number of live cells in every 8 x 8 block of the grid, then in every 16 x 16 block, and so on, doubling until one block covers the whole grid.
+ * The pyramid is only created the first time that it is needed. After that, the engine remembers which tiles have changed, and <code>updateDensity</code> only
+ * counts the cells of those tiles again (and adds up the blocks above them), so keeping it up to date costs very little when not much has changed.
+ * 
+ * Generations can optionally be computed in parallel. The rows of tiles are split into bands, which are computed at the same time on a <code>ForkJoinPool</code>
+ * with one thread per processor. Every band reads the current generation (which no band writes to) and writes only its own rows of the next generation,
+ * so the bands never interfere with each other and the result is exactly the same as computing the generation serially.
+ * 
+ * If the Vector API (<code>jdk.incubator.vector</code>) is available, runs of neighbouring active tiles are computed by <code>VectorLifeKernel</code>, which applies the same
+ * full adders to as many words at once as the processor's vector registers can hold (4 with AVX2, 8 with AVX-512). The kernel is loaded by name when the
+ * engine is first used, so if it was not compiled, or the module was not added when the program was started, the scalar code is used instead.
+ */
+public class PackedLifeEngine implements LifeEngine {
+	/** The number of columns in the grid. */
+	final int width;
+	/** The number of rows in the grid. */
+	final int height;
+	/** The number of words needed to store the cells of each row (not including the halo). */
+	final int wordsPerRow;
+	/** The number of words that each row takes up in memory, including the halo. 
+	 * The first word of each row is the left part of the halo (only its highest bit, column -1, is used),
+	 * and column <code>width</code> (the right part of the halo) is either a spare bit of the last word of cells or the first bit of one extra word. */
+	final int stride;
+	/** The bit position of the last column in the last word of each row. */
+	private final int lastBit;
+	/** Masks out the bits of the last word in each row that lie past the right edge of the grid. */
+	final long lastWordMask;
+
+	/** Tiles are (1 &lt;&lt; TILE_SHIFT) = 32 rows tall (and one word wide). */
+	static final int TILE_SHIFT = 5;
+	/** The number of columns of tiles, which is the same as <code>wordsPerRow</code>. */
+	final int tilesX;
+	/** The number of rows of tiles. */
+	final int tilesY;
+	/** Whether each tile (indexed by ty * tilesX + tx) changed in the last generation, or was edited since. Only these tiles and their neighbours are computed. */
+	boolean[] changed;
+	/** Whether each tile needs to be computed in the generation that is currently being computed. Only used inside <code>step</code>. */
+	private boolean[] active;
+	/** Whether each tile may have changed since <code>takeChangedTiles</code> was last called. Only these tiles are compared with <code>reported</code>. */
+	private boolean[] touched;
+	/** A copy of each tile's cells as they were when <code>takeChangedTiles</code> last looked at it, i.e. the cells that the display knows about.
+	 * The copy of a tile is only created the first time that it is looked at, so tiles that are never displayed cost no memory. */
+	private long[][] reported;
+
+	/** The smallest blocks of the density pyramid are (1 &lt;&lt; BLOCK_SHIFT) = 8 cells square, i.e. one byte of eight words. */
+	static final int BLOCK_SHIFT = 3;
+	/** The number of live cells in each 8 x 8 block (0-64), in row-major order. Null until the density pyramid is first needed. */
+	private byte[] blockCounts;
+	/** The number of live cells in each block of the higher levels of the density pyramid, in row-major order. 
+	 * Level l (from 1) has blocks of (8 &lt;&lt; l) cells square, and its last level is a single block. Level 0 is <code>blockCounts</code>, so <code>levelCounts[0]</code> is unused. */
+	private int[][] levelCounts;
+	/** The number of columns of blocks in each level of the density pyramid. */
+	private int[] levelColumns;
+	/** The number of rows of blocks in each level of the density pyramid. */
+	private int[] levelRows;
+	/** Whether each tile has changed since the density pyramid was last brought up to date. Only used once the pyramid exists. */
+	private boolean[] densityStale;
+	/** The tiles that are marked in <code>densityStale</code>, so that bringing the pyramid up to date does not have to look at every tile. */
+	private int[] staleTiles;
+	/** The number of tiles in <code>staleTiles</code>. */
+	private int staleCount = 0;
+	/** The rule that the last generation was computed with. If the rule changes, every tile has to be computed again. */
+	private Rule lastRule;
+	/** Whether grid wrapping was enabled for the last generation. If this changes, every tile has to be computed again. */
+	private boolean lastWrap;
+	/** If true, generations are computed in parallel bands of tile rows. If false, they are computed on the calling thread. */
+	private boolean parallel = false;
+
+	/** If true, the vector kernel is used (when it is available). */
+	private boolean vectorised = true;
+
+	/** The pool that parallel generations are computed on, shared by all engines. Created the first time that it is needed. */
+	private static ForkJoinPool pool;
+	/** The vector kernel, or null if it (or the Vector API) is not available. */
+	private static final VectorKernel VECTOR_KERNEL = loadVectorKernel();
+
+	/**
+	 * Computes several neighbouring words of the grid at once. This is implemented by <code>VectorLifeKernel</code>,
+	 * which is kept out of this class so that this class does not depend on <code>jdk.incubator.vector</code>.
+	 */
+	interface VectorKernel {
+		/**
+		 * Computes a run of active tiles in one row of tiles, in the same way as <code>stepTileRows</code>: the next states, the births, and the tiles' <code>changed</code> flags.
+		 * The kernel may stop early, leaving the rest of the run to the scalar code, as it can only compute whole vectors of words.
+		 * @param engine The engine being stepped.
+		 * @param tileRow The row of tiles.
+		 * @param fromWord The first word (tile) of the run.
+		 * @param toWord The word after the last word of the run.
+		 * @param cur The current generation, which is only read.
+		 * @param next The next generation, which is written to.
+		 * @param rule The rule to apply.
+		 * @param trackAges Whether the births need to be recorded (see <code>recordBirths</code>).
+		 * @return The word after the last word that was computed (<code>fromWord</code> if none were).
+		 */
+		int stepTiles(PackedLifeEngine engine, int tileRow, int fromWord, int toWord, long[] cur, long[] next, Rule rule, boolean trackAges);
+	}
+
+	/** The current generation, including the halo. There are (height + 2) rows of <code>stride</code> words: the first and last rows are the halo.
+	 * The cells of row y start at index <code>rowStart(y)</code>. */
+	long[] current;
+	/** The previous generation. This array is overwritten by the next generation, and then the two arrays are swapped. */
+	long[] previous;
+	/** The generation that each cell was born in, with one array per tile (indexed like <code>changed</code>), or null if no births have been recorded in that tile.
+	 * The cells of each tile are in row-major order: cell (x, y) is at index ((y % 32) * 64 + x % 64) of its tile's array. 
+	 * Only meaningful for live cells. Use <code>ageOf</code> to read a cell's age. */
+	int[][] births;
+	/** Whether each tile's array of births is shared with a snapshot (see <code>snapshot</code>), and so has to be copied before it is written to. Null until the first snapshot is taken. */
+	private boolean[] birthsShared;
+	/** The number of generations computed so far. Differences between generations are taken with int arithmetic, so this may safely overflow. */
+	int generation = 0;
+	/** Ages are only known from this generation onwards: no age can be more than (generation - ageEpoch). This is moved forward when age tracking is turned back on. */
+	private int ageEpoch = -255;
+	/** If true, births are recorded, so ages are known. If false, ages are not kept up to date, and are reported as 0. */
+	private boolean ageTracking = true;
+
+	/**
+	 * This constructor creates an empty (all cells dead) grid of the given size.
+	 * @param width The number of columns in the grid.
+	 * @param height The number of rows in the grid.
+	 */
+	public PackedLifeEngine(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.wordsPerRow = (width + 63) >>> 6;
+		this.stride = (width >>> 6) + 2; // One word for the left halo, plus enough words for columns 0 to width (inclusive).
+		this.lastBit = (width - 1) & 63;
+		this.lastWordMask = -1L >>> (63 - lastBit);
+		// One spare word at the very end lets the last word of cells read "the word after it" in the bottom row of the halo, just like every other word.
+		this.current = new long[stride * (height + 2) + 1];
+		this.previous = new long[stride * (height + 2) + 1];
+		this.tilesX = wordsPerRow;
+		this.tilesY = (height + (1 << TILE_SHIFT) - 1) >>> TILE_SHIFT;
+		this.changed = new boolean[tilesX * tilesY];
+		this.active = new boolean[tilesX * tilesY];
+		this.touched = new boolean[tilesX * tilesY];
+		this.reported = new long[tilesX * tilesY][];
+		this.births = new int[tilesX * tilesY][];
+		Arrays.fill(changed, true); // Nothing is known about the first generation, so every tile has to be computed.
+	}
+
+	/**
+	 * This constructor creates a copy of another grid, for <code>snapshot</code>.
+	 * The cells are copied straight away. The births are shared with the other grid, and whichever grid records a birth in a shared tile first copies that tile's births.
+	 * @param source The grid to copy.
+	 */
+	private PackedLifeEngine(PackedLifeEngine source) {
+		this(source.width, source.height);
+		System.arraycopy(source.current, 0, current, 0, current.length);
+		births = source.births.clone();
+		birthsShared = new boolean[births.length];
+		if(source.birthsShared == null) {
+			source.birthsShared = new boolean[births.length];
+		}
+		for(int tile = 0; tile < births.length; tile++) {
+			boolean shared = births[tile] != null;
+			birthsShared[tile] = shared;
+			source.birthsShared[tile] |= shared;
+		}
+		generation = source.generation;
+		ageEpoch = source.ageEpoch;
+		ageTracking = source.ageTracking;
+	}
+
+	/**
+	 * Takes a copy of the current generation (the cells and their ages), which stays the same however this grid changes afterwards.
+	 * This is cheap enough to do between two generations: the cells are copied with one array copy (one bit per cell), and the ages are not copied at all, 
+	 * but shared until either grid records a birth in them (copy on write). So the copy can be saved on another thread while the simulation carries on.
+	 * @return The copy. It is a full grid of its own, which could carry on with its own generations.
+	 */
+	public PackedLifeEngine snapshot() {
+		return new PackedLifeEngine(this);
+	}
+
+	/**
+	 * @return The number of live cells in the current generation.
+	 */
+	public long getPopulation() {
+		long population = 0;
+		for(int y = 0; y < height; y++) {
+			int start = rowStart(y);
+			for(int w = 0; w < wordsPerRow; w++) {
+				population += Long.bitCount(current[start + w]);
+			}
+		}
+		return population;
+	}
+
+	/**
+	 * Returns the index of the first word of cells in a row, i.e. the word that holds columns 0-63.
+	 * The row continues for <code>wordsPerRow</code> words.
+	 * @param y The y-coordinate of the row.
+	 * @return The index of the first word of the row in <code>current</code> (and <code>previous</code>).
+	 */
+	int rowStart(int y) {
+		return (y + 1) * stride + 1;
+	}
+
+	/**
+	 * Returns the state of a cell in the current generation.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @return 1 if the cell is alive, 0 if it is dead.
+	 * @throws ArrayIndexOutOfBoundsException If (x, y) lies outside of the grid.
+	 */
+	public int get(int x, int y) {
+		checkBounds(x, y);
+		return (int) (current[rowStart(y) + (x >>> 6)] >>> x) & 1; // Java takes long shift distances modulo 64, so x does not need to be masked.
+	}
+
+	/**
+	 * Returns the number of generations that a cell has survived for.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @return The age of the cell (0-255). Always 0 for a dead cell.
+	 * @throws ArrayIndexOutOfBoundsException If (x, y) lies outside of the grid.
+	 */
+	public int getAge(int x, int y) {
+		return get(x, y) * ageOf(x, y);
+	}
+
+	/**
+	 * Works out the age of a cell from the generation that it was born in. The cell is assumed to be alive, and to be on the grid.
+	 * A cell in a tile with no recorded births is as old as <code>ageEpoch</code> allows.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @return The age of the cell (0-255), or 0 if age tracking is turned off.
+	 */
+	int ageOf(int x, int y) {
+		if(!ageTracking) {
+			return 0;
+		}
+		int cellAge = generation - ageEpoch;
+		int[] tileBirths = births[(y >>> TILE_SHIFT) * tilesX + (x >>> 6)];
+		if(tileBirths != null) {
+			cellAge = Math.min(generation - tileBirths[cellInTile(x, y)], cellAge);
+		}
+		return (cellAge < 0 || cellAge > 255) ? 255 : cellAge; // A negative age can only come from a cell so old that the difference overflowed.
+	}
+
+	/**
+	 * Sets the age of a cell by working out the generation that it would have been born in. Ages above 255 are stored as 255.
+	 * @param x The x-coordinate (column) of the cell, which must be on the grid.
+	 * @param y The y-coordinate (row) of the cell, which must be on the grid.
+	 * @param cellAge The new age of the cell.
+	 */
+	void setAgeOf(int x, int y, int cellAge) {
+		birthsOf((y >>> TILE_SHIFT) * tilesX + (x >>> 6))[cellInTile(x, y)] = generation - Math.min(255, cellAge);
+	}
+
+	/**
+	 * Returns the index of a cell in its tile's array of births.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @return The index of the cell in <code>births[tile]</code>.
+	 */
+	private static int cellInTile(int x, int y) {
+		return (y & ((1 << TILE_SHIFT) - 1)) << 6 | (x & 63);
+	}
+
+	/**
+	 * Returns the births of a tile, creating them if no births have been recorded in it yet, or copying them if they are shared with a snapshot.
+	 * The cells in a new array are treated as 255 generations old, which is the same as not knowing when they were born.
+	 * @param tile The index of the tile.
+	 * @return The tile's array of births.
+	 */
+	private int[] birthsOf(int tile) {
+		int[] tileBirths = births[tile];
+		if(tileBirths == null) {
+			tileBirths = new int[64 << TILE_SHIFT];
+			Arrays.fill(tileBirths, generation - 255);
+			births[tile] = tileBirths;
+			if(birthsShared != null) {
+				birthsShared[tile] = false;
+			}
+		}
+		else if(birthsShared != null && birthsShared[tile]) { // Copy on write, so that the snapshot keeps the ages that it was taken with.
+			tileBirths = tileBirths.clone();
+			births[tile] = tileBirths;
+			birthsShared[tile] = false;
+		}
+		return tileBirths;
+	}
+
+	/**
+	 * Sets the age of a cell in the current generation.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @param cellAge The new age of the cell. Ages above 255 are stored as 255.
+	 * @throws ArrayIndexOutOfBoundsException If (x, y) lies outside of the grid.
+	 */
+	public void setAge(int x, int y, int cellAge) {
+		checkBounds(x, y);
+		setAgeOf(x, y, cellAge);
+	}
+
+	/**
+	 * Sets the state of a cell in the current generation. The age of a cell that was already alive is not changed.
+	 * @param x The x-coordinate (column) of the cell.
+	 * @param y The y-coordinate (row) of the cell.
+	 * @param state The new state of the cell. Any non-zero value makes the cell alive.
+	 * @throws ArrayIndexOutOfBoundsException If (x, y) lies outside of the grid.
+	 */
+	public void set(int x, int y, int state) {
+		checkBounds(x, y);
+		int index = rowStart(y) + (x >>> 6);
+		int tile = (y >>> TILE_SHIFT) * tilesX + (x >>> 6);
+		changed[tile] = true; // The tile (and so its neighbours) must be computed in the next generation.
+		touched[tile] = true;
+		markDensityStale(tile);
+		if(state != 0) {
+			if((current[index] >>> x & 1) == 0) {
+				birthsOf(tile)[cellInTile(x, y)] = generation; // A cell that is brought to life starts with an age of 0, just like a cell that is born.
+			}
+			current[index] |= 1L << x;
+		}
+		else {
+			current[index] &= ~(1L << x);
+		}
+	}
+
+	/**
+	 * Replaces a whole word of cells in the current generation. Ages are not changed.
+	 * This is used by <code>SparseLifeEngine</code>, whose chunks line up with the words of the grid.
+	 * If the cells are the same as before, the word's tile is not marked as changed, so copying a plane that has not changed does not cause anything to be redrawn.
+	 * @param y The y-coordinate (row) of the word.
+	 * @param word The index of the word within the row (word w holds columns w * 64 to w * 64 + 63).
+	 * @param bits The new states of the 64 cells. Bits past the right edge of the grid are ignored.
+	 */
+	void setWord(int y, int word, long bits) {
+		if(word == wordsPerRow - 1) {
+			bits &= lastWordMask;
+		}
+		int index = rowStart(y) + word;
+		if(current[index] == bits) {
+			return;
+		}
+		int tile = (y >>> TILE_SHIFT) * tilesX + word;
+		changed[tile] = true;
+		touched[tile] = true;
+		markDensityStale(tile);
+		current[index] = bits;
+	}
+
+	/**
+	 * Fills a rectangle of the grid with a random soup, in which each cell is alive with a chance of <code>density</code>, independently of the others.
+	 * Every cell in the rectangle is replaced. Cells outside of it are not changed. Cells that come to life have an age of 0.
+	 * The soup is made 64 cells at a time (see <code>randomRow</code>), and only depends on the state of <code>random</code>, the density and the size of the
+	 * rectangle: the same seed gives the same soup wherever it is put, on any size of grid.
+	 * @param x The x-coordinate (column) of the left edge of the rectangle.
+	 * @param y The y-coordinate (row) of the top edge of the rectangle.
+	 * @param soupWidth The width of the rectangle.
+	 * @param soupHeight The height of the rectangle.
+	 * @param density The chance of each cell being alive (0-1). It is rounded to a multiple of 1/65536.
+	 * @param random Where the random bits come from.
+	 * @throws IllegalArgumentException If the density is not between 0 and 1.
+	 * @throws ArrayIndexOutOfBoundsException If the rectangle does not lie within the grid.
+	 */
+	public void randomize(int x, int y, int soupWidth, int soupHeight, double density, SplittableRandom random) {
+		int threshold = densityThreshold(density);
+		if(soupWidth <= 0 || soupHeight <= 0) {
+			return;
+		}
+		checkBounds(x, y);
+		checkBounds(x + soupWidth - 1, y + soupHeight - 1);
+		long[] chunks = new long[(soupWidth + 63) >>> 6];
+		int shift = x & 63;
+		int firstWord = x >>> 6;
+		int lastWord = (x + soupWidth - 1) >>> 6;
+		long firstMask = -1L << shift;
+		long lastMask = -1L >>> (63 - ((x + soupWidth - 1) & 63));
+		for(int row = y; row < y + soupHeight; row++) {
+			randomRow(random, threshold, chunks, soupWidth);
+			int start = rowStart(row);
+			for(int w = firstWord; w <= lastWord; w++) {
+				// Soup column c is grid column x + c, so the chunks are shifted across the grid's words by x & 63.
+				int k = w - firstWord;
+				long bits = k < chunks.length ? chunks[k] << shift : 0L;
+				if(shift != 0 && k > 0) {
+					bits |= chunks[k - 1] >>> (64 - shift);
+				}
+				long mask = (w == firstWord ? firstMask : -1L) & (w == lastWord ? lastMask : -1L);
+				long old = current[start + w];
+				bits &= mask;
+				if(ageTracking) {
+					for(long born = bits & ~old; born != 0; born &= born - 1) {
+						birthsOf((row >>> TILE_SHIFT) * tilesX + w)[cellInTile(Long.numberOfTrailingZeros(born), row)] = generation;
+					}
+				}
+				setWord(row, w, (old & ~mask) | bits);
+			}
+		}
+	}
+
+	/**
+	 * Works out the whole number that <code>randomBits</code> uses for a density.
+	 * @param density The chance of each cell being alive (0-1).
+	 * @return The density as a multiple of 1/65536 (0-65536).
+	 * @throws IllegalArgumentException If the density is not between 0 and 1.
+	 */
+	static int densityThreshold(double density) {
+		if(!(density >= 0 && density <= 1)) { // Also catches NaN.
+			throw new IllegalArgumentException("The density must be between 0 and 1, not " + density + ".");
+		}
+		return (int) Math.round(density * 65536);
+	}
+
+	/**
+	 * Makes one row of a soup, 64 cells to a word: bit i of <code>chunks[k]</code> is soup column 64 k + i. Bits past the width are 0.
+	 * @param random Where the random bits come from.
+	 * @param threshold The density, from <code>densityThreshold</code>.
+	 * @param chunks Where to write the row. It must have room for at least <code>soupWidth</code> bits.
+	 * @param soupWidth The width of the soup.
+	 */
+	static void randomRow(SplittableRandom random, int threshold, long[] chunks, int soupWidth) {
+		int words = (soupWidth + 63) >>> 6;
+		for(int k = 0; k < words; k++) {
+			chunks[k] = randomBits(random, threshold);
+		}
+		if((soupWidth & 63) != 0) {
+			chunks[words - 1] &= -1L >>> (64 - (soupWidth & 63));
+		}
+	}
+
+	/**
+	 * Returns 64 random bits, each of which is set with a chance of <code>threshold</code> / 65536, independently of the others.
+	 * Each random word has bits set with a chance of 1/2. Going through the binary digits of the threshold from the lowest set one upwards, each word is
+	 * ORed in for a 1 (which takes the chance p to (1 + p) / 2) or ANDed in for a 0 (which takes it to p / 2), so that the chance ends up as the threshold.
+	 * This takes one word for a density of 1/2, and at most 16 words (4 cells a word) for any other, rather than one random number per cell.
+	 * @param random Where the random bits come from.
+	 * @param threshold The density, from <code>densityThreshold</code>.
+	 * @return The bits.
+	 */
+	static long randomBits(SplittableRandom random, int threshold) {
+		if(threshold <= 0) {
+			return 0L;
+		}
+		if(threshold >= 65536) {
+			return -1L;
+		}
+		int digit = Integer.numberOfTrailingZeros(threshold);
+		long bits = random.nextLong();
+		for(digit++; digit < 16; digit++) {
+			if((threshold >>> digit & 1) != 0) {
+				bits |= random.nextLong();
+			}
+			else {
+				bits &= random.nextLong();
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Kills every cell in the grid, in both the current and the previous generation.
+	 * There is no need to reset the ages: every cell is dead, so every cell that comes to life from now on has its birth recorded. The births are thrown away to free their memory.
+	 */
+	public void clear() {
+		Arrays.fill(current, 0L);
+		Arrays.fill(previous, 0L);
+		Arrays.fill(births, null);
+		Arrays.fill(changed, true); // An empty grid can still change in the next generation, e.g. with a birth rule of B0.
+		Arrays.fill(touched, true);
+		ageEpoch = generation - 255; // For the same reason, no age needs to be limited by an old epoch any more.
+		if(blockCounts != null) { // Every block is now empty, which is quicker to write down than to count.
+			Arrays.fill(blockCounts, (byte) 0);
+			for(int level = 1; level < levelCounts.length; level++) {
+				Arrays.fill(levelCounts[level], 0);
+			}
+			Arrays.fill(densityStale, false);
+			staleCount = 0;
+		}
+	}
+
+	/**
+	 * Turns age tracking on or off. While it is off, births are not recorded, which saves work when nobody reads the ages (i.e. the heatmap is off).
+	 * When it is turned back on, the missed births mean that the ages of the cells that are alive can not be trusted, so they all start again from 0.
+	 * This is done lazily, by moving <code>ageEpoch</code> forward, rather than by touching every cell.
+	 * @param tracking True to track ages.
+	 */
+	public void setAgeTracking(boolean tracking) {
+		if(tracking && !ageTracking) {
+			ageEpoch = generation;
+		}
+		ageTracking = tracking;
+	}
+
+	/**
+	 * Chooses whether generations are computed in parallel (on every processor) or serially (on the thread that calls <code>step</code>).
+	 * Both give exactly the same results.
+	 * @param parallel True to compute generations in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Chooses whether the vector kernel is used. It gives exactly the same results as the scalar code, so this only matters for comparing the two.
+	 * @param vectorised True to use the vector kernel, if it is available.
+	 */
+	public void setVectorised(boolean vectorised) {
+		this.vectorised = vectorised;
+	}
+
+	/**
+	 * @return True if the vector kernel was compiled and the Vector API is available, so generations can be computed several words at a time.
+	 */
+	public static boolean isVectorAvailable() {
+		return VECTOR_KERNEL != null;
+	}
+
+	/**
+	 * Throws an exception if the given coordinates are not on the grid.
+	 * This is needed because the last word of a row can have spare bits past the right edge of the grid, which must never be set.
+	 * Callers such as the stamps in <code>LifePanel</code> rely on this exception to stop drawing at the edge of the grid.
+	 * @param x The x-coordinate (column) to check.
+	 * @param y The y-coordinate (row) to check.
+	 */
+	private void checkBounds(int x, int y) {
+		if(x < 0 || x >= width || y < 0 || y >= height) {
+			throw new ArrayIndexOutOfBoundsException("Cell (" + x + ", " + y + ") is outside of the " + width + "x" + height + " grid.");
+		}
+	}
+
+	/**
+	 * Computes the next generation of cells, then swaps it into <code>current</code>.
+	 * Cells that survive are one generation older (up to a maximum of 255), and cells that are born have an age of 0. Only births are written, as survivors' ages follow from the generation count.
+	 * The same <code>rule</code> is used for the whole generation, as <code>Rule</code> objects can not change.
+	 * Only the tiles that changed in the last generation (and the tiles next to them) are computed.
+	 * Every other tile is the same in the current and the previous generation, so it is already correct in the buffer that becomes the next generation.
+	 * @param rule The compiled ruleset to apply.
+	 * @param wrap If true, the grid is a torus (the edges wrap around). If false, cells beyond the edges are treated as dead.
+	 */
+	public void step(Rule rule, boolean wrap) {
+		long[] cur = current;
+		long[] next = previous;
+
+		if(rule != lastRule || wrap != lastWrap) { // A different rule or edge behaviour can change any tile.
+			Arrays.fill(changed, true);
+			lastRule = rule;
+			lastWrap = wrap;
+		}
+		refreshHalo(cur, wrap);
+		findActiveTiles(wrap);
+
+		if(parallel && tilesY > 1) {
+			getPool().invoke(new Band(0, tilesY, cur, next, rule));
+		}
+		else {
+			stepTileRows(0, tilesY, cur, next, rule);
+		}
+
+		if((width & 63) != 0) {
+			clearRightHalo(cur); // The right halo shares a word with real cells, which must not keep a ghost cell in them once this generation becomes "previous".
+		}
+		for(int tile = 0; tile < changed.length; tile++) {
+			if(changed[tile]) {
+				touched[tile] = true;
+				markDensityStale(tile);
+			}
+		}
+
+		// The old generation is kept in "previous", where it will be overwritten by the generation after this one.
+		previous = cur;
+		current = next;
+		generation++;
+	}
+
+	/**
+	 * Computes the next generation for a range of tile rows. Only the active tiles are computed.
+	 * This writes to no rows and no tiles outside of the range, so different ranges can be computed at the same time.
+	 * @param fromTileRow The first row of tiles to compute.
+	 * @param toTileRow The row of tiles after the last one to compute.
+	 * @param cur The current generation, which is only read.
+	 * @param next The next generation, which is written to.
+	 * @param rule The rule to apply.
+	 */
+	private void stepTileRows(int fromTileRow, int toTileRow, long[] cur, long[] next, Rule rule) {
+		long[] table = rule.table;
+		int[] counts = rule.counts; // Only the neighbour counts that appear in the rule ever need to be tested for.
+		VectorKernel kernel = vectorised ? VECTOR_KERNEL : null;
+		boolean trackAges = ageTracking;
+		for(int ty = fromTileRow; ty < toTileRow; ty++) {
+			int firstRow = ty << TILE_SHIFT;
+			int lastRow = Math.min(height, firstRow + (1 << TILE_SHIFT));
+			int runEnd = 0; // The end of the last run of active tiles that was given to the vector kernel.
+			int vectorEnd = 0; // The tiles before this one have already been computed by the vector kernel.
+			for(int w = 0; w < wordsPerRow; w++) {
+				int tile = ty * tilesX + w;
+				if(active[tile]) {
+					if(kernel != null && w >= runEnd) {
+						runEnd = w + 1;
+						while(runEnd < wordsPerRow && active[tile - w + runEnd]) {
+							runEnd++;
+						}
+						vectorEnd = kernel.stepTiles(this, ty, w, runEnd, cur, next, rule, trackAges);
+					}
+					if(w < vectorEnd) {
+						continue;
+					}
+					long mask = (w == wordsPerRow - 1) ? lastWordMask : -1L; // Cells past the right edge of the grid must always stay dead.
+					boolean tileChanged = false;
+					for(int y = firstRow; y < lastRow; y++) {
+						int index = rowStart(y) + w;
+						long alive = cur[index];
+						long result = nextWord(cur, index, table, counts) & mask;
+						next[index] = result;
+						tileChanged |= result != alive;
+						if(trackAges) {
+							recordBirths(y, w, result & ~alive);
+						}
+					}
+					changed[tile] = tileChanged;
+				}
+				// Tiles that are skipped do not change, and their live cells get older without anything being written.
+			}
+		}
+	}
+
+	/**
+	 * Computes the next state of the 64 cells in one word. The word must not be in the halo, so that all of its neighbours exist.
+	 * @param g The generation to read from.
+	 * @param index The index of the word in <code>g</code>.
+	 * @param table The lookup table of the rule to apply.
+	 * @param counts The neighbour counts that appear in the rule.
+	 * @return The next state of the 64 cells. Bits past the right edge of the grid are not cleared.
+	 */
+	private long nextWord(long[] g, int index, long[] table, int[] counts) {
+		long alive = g[index];
+
+		// The eight neighbours of each cell, lined up so that the neighbour of the cell in bit n is also in bit n.
+		// Shifting left by one moves the cell on the left (x - 1) into position, and shifting right moves the cell on the right (x + 1) into position.
+		// The bit that is shifted in comes from the neighbouring word, which is either a word of real cells or a word of the halo.
+		int up = index - stride;
+		int down = index + stride;
+		long n = g[up];
+		long nw = (n << 1) | (g[up - 1] >>> 63);
+		long ne = (n >>> 1) | (g[up + 1] << 63);
+		long s = g[down];
+		long sw = (s << 1) | (g[down - 1] >>> 63);
+		long se = (s >>> 1) | (g[down + 1] << 63);
+		long west = (alive << 1) | (g[index - 1] >>> 63);
+		long east = (alive >>> 1) | (g[index + 1] << 63);
+		return applyRule(nw, n, ne, west, alive, east, sw, s, se, table, counts);
+	}
+
+	/**
+	 * Computes the next state of 64 cells from their eight neighbours, which have already been lined up so that the neighbours of the cell in bit n are also in bit n.
+	 * This is shared with <code>SparseLifeEngine</code>, which lines up the neighbours from its own chunks.
+	 * @param nw The neighbours above and to the left.
+	 * @param n The neighbours above.
+	 * @param ne The neighbours above and to the right.
+	 * @param west The neighbours to the left.
+	 * @param alive The cells themselves.
+	 * @param east The neighbours to the right.
+	 * @param sw The neighbours below and to the left.
+	 * @param s The neighbours below.
+	 * @param se The neighbours below and to the right.
+	 * @param table The lookup table of the rule to apply.
+	 * @param counts The neighbour counts that appear in the rule.
+	 * @return The next state of the 64 cells.
+	 */
+	static long applyRule(long nw, long n, long ne, long west, long alive, long east, long sw, long s, long se, long[] table, int[] counts) {
+		// Add up the neighbours with full adders. The neighbour count of each cell ends up spread over four words (bit0 - bit3).
+		// Row above (0-3 neighbours).
+		long upSum = nw ^ n;
+		long upCarry = (nw & n) | (upSum & ne);
+		upSum ^= ne;
+		// Same row (0-2 neighbours).
+		long midSum = west ^ east;
+		long midCarry = west & east;
+		// Row below (0-3 neighbours).
+		long downSum = sw ^ s;
+		long downCarry = (sw & s) | (downSum & se);
+		downSum ^= se;
+		// Ones.
+		long bit0 = upSum ^ midSum;
+		long onesCarry = (upSum & midSum) | (bit0 & downSum);
+		bit0 ^= downSum;
+		// Twos.
+		long twos = upCarry ^ midCarry;
+		long twosCarry = (upCarry & midCarry) | (twos & downCarry);
+		twos ^= downCarry;
+		long bit1 = twos ^ onesCarry;
+		long fours = twos & onesCarry;
+		// Fours and eights.
+		long bit2 = twosCarry ^ fours;
+		long bit3 = twosCarry & fours;
+
+		// Apply the rules to every cell in the word.
+		// For each count, ((count bit) - 1) is 0 if the bit is set and -1 if it is not, so XOR-ing with it selects either bitN or ~bitN without branching.
+		long result = 0;
+		for(int i = 0; i < counts.length; i++) {
+			int count = counts[i];
+			long matches = (bit0 ^ ((count & 1) - 1L))
+					& (bit1 ^ ((count >>> 1 & 1) - 1L))
+					& (bit2 ^ ((count >>> 2 & 1) - 1L))
+					& (bit3 ^ ((count >>> 3 & 1) - 1L));
+			result |= matches & ((~alive & table[count]) | (alive & table[9 + count]));
+		}
+		return result;
+	}
+
+	/**
+	 * Records the generation that is being computed as the birth generation of every cell that is born in one word.
+	 * Nothing else is written: every other live cell simply gets one generation older when <code>generation</code> goes up.
+	 * Only the tile that the word is in is written to, so different tiles can record their births at the same time.
+	 * @param y The y-coordinate (row) of the word.
+	 * @param word The index of the word within the row.
+	 * @param born The cells in the word that are born in this generation (alive in the next generation, but not in the current one).
+	 */
+	void recordBirths(int y, int word, long born) {
+		if(born == 0) {
+			return;
+		}
+		int[] tileBirths = birthsOf((y >>> TILE_SHIFT) * tilesX + word);
+		int cell = cellInTile(0, y);
+		int next = generation + 1;
+		while(born != 0) {
+			tileBirths[cell + Long.numberOfTrailingZeros(born)] = next;
+			born &= born - 1; // Clear the lowest set bit, i.e. the cell whose birth was just recorded.
+		}
+	}
+
+	/**
+	 * Finds the tiles in a rectangle whose cells have changed since this was last called (or since the grid was created), and marks them in <code>tiles</code>.
+	 * This is how the display finds out which parts of the grid to redraw, so the rectangle is the part of the grid that is on screen. 
+	 * It works however the cells were changed (by generations, by edits or by clearing), and however many generations have passed, 
+	 * because the cells are compared with a copy of them that is taken at every call.
+	 * Only the tiles that have been touched since the last call are compared, so this costs very little when not much has changed, and nothing at all for tiles outside of the rectangle.
+	 * Ages are not compared: changes in age alone (e.g. cells getting older) are not reported.
+	 * @param tiles Set to true for every tile (indexed by ty * tilesX + tx) that has changed. Other entries are left as they are.
+	 * @param fromTileX The first column of tiles to look at.
+	 * @param fromTileY The first row of tiles to look at.
+	 * @param toTileX The column of tiles after the last one to look at.
+	 * @param toTileY The row of tiles after the last one to look at.
+	 * @return The number of tiles that have changed.
+	 */
+	public int takeChangedTiles(boolean[] tiles, int fromTileX, int fromTileY, int toTileX, int toTileY) {
+		int count = 0;
+		for(int ty = Math.max(0, fromTileY); ty < Math.min(tilesY, toTileY); ty++) {
+			int firstRow = ty << TILE_SHIFT;
+			int lastRow = Math.min(height, firstRow + (1 << TILE_SHIFT));
+			for(int tx = Math.max(0, fromTileX); tx < Math.min(tilesX, toTileX); tx++) {
+				int tile = ty * tilesX + tx;
+				if(!touched[tile] && reported[tile] != null) {
+					continue;
+				}
+				touched[tile] = false;
+				if(reported[tile] == null) {
+					reported[tile] = new long[1 << TILE_SHIFT]; // All dead, so any live cell in the tile counts as a change.
+				}
+				long[] copy = reported[tile];
+				boolean different = false;
+				for(int y = firstRow; y < lastRow; y++) {
+					long word = current[rowStart(y) + tx];
+					if(word != copy[y - firstRow]) {
+						copy[y - firstRow] = word;
+						different = true;
+					}
+				}
+				if(different) {
+					tiles[tile] = true;
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Brings the density pyramid up to date with the current generation, creating it if this is the first time that it is needed.
+	 * Only the tiles that have changed since the last call are counted again, along with the blocks above them in each level.
+	 * This must be called before reading the pyramid with <code>liveCells</code>.
+	 * @return True if any of the counts may have changed since the last call.
+	 */
+	public boolean updateDensity() {
+		if(blockCounts == null) {
+			createDensityPyramid();
+		}
+		if(staleCount == 0) {
+			return false;
+		}
+		for(int i = 0; i < staleCount; i++) {
+			int tile = staleTiles[i];
+			densityStale[tile] = false;
+			countBlocks(tile % tilesX, tile / tilesX);
+		}
+		// Each level is added up from the level below it, so the levels are done in order. A block that covers several stale tiles is added up once for each of them, which is cheaper than finding the duplicates.
+		for(int level = 1; level < levelCounts.length; level++) {
+			int shift = BLOCK_SHIFT + level;
+			int[] counts = levelCounts[level];
+			for(int i = 0; i < staleCount; i++) {
+				int tx = staleTiles[i] % tilesX;
+				int ty = staleTiles[i] / tilesX;
+				int lastColumn = Math.min(levelColumns[level] - 1, ((tx << 6) + 63) >> shift);
+				int lastRow = Math.min(levelRows[level] - 1, ((ty << TILE_SHIFT) + (1 << TILE_SHIFT) - 1) >> shift);
+				for(int by = (ty << TILE_SHIFT) >> shift; by <= lastRow; by++) {
+					for(int bx = (tx << 6) >> shift; bx <= lastColumn; bx++) {
+						counts[by * levelColumns[level] + bx] = countAt(level - 1, 2 * bx, 2 * by) + countAt(level - 1, 2 * bx + 1, 2 * by)
+								+ countAt(level - 1, 2 * bx, 2 * by + 1) + countAt(level - 1, 2 * bx + 1, 2 * by + 1);
+					}
+				}
+			}
+		}
+		staleCount = 0;
+		return true;
+	}
+
+	/**
+	 * Returns the number of live cells in a square block of the current generation. Blocks of 8 cells or more are read from the density pyramid,
+	 * so <code>updateDensity</code> must have been called since the cells last changed.
+	 * Parts of the block that lie outside of the grid are counted as dead.
+	 * @param shift The block is (1 &lt;&lt; shift) cells square. Must be no more than the number of levels in the density pyramid plus <code>BLOCK_SHIFT</code>.
+	 * @param column The column of the block. Its cells start at column (column &lt;&lt; shift) of the grid.
+	 * @param row The row of the block. Its cells start at row (row &lt;&lt; shift) of the grid.
+	 * @return The number of live cells in the block.
+	 */
+	public int liveCells(int shift, int column, int row) {
+		if(shift >= BLOCK_SHIFT) {
+			return countAt(shift - BLOCK_SHIFT, column, row);
+		}
+		// Blocks smaller than the pyramid's lie within one word, and are few enough rows to count directly.
+		int x = column << shift;
+		if(x >= width) {
+			return 0;
+		}
+		long mask = (1L << (1 << shift)) - 1;
+		int count = 0;
+		for(int y = row << shift; y < Math.min(height, (row + 1) << shift); y++) {
+			count += Long.bitCount(current[rowStart(y) + (x >>> 6)] >>> x & mask);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of live cells in a block of one level of the density pyramid, or 0 if the block lies outside of the grid.
+	 * @param level The level of the pyramid.
+	 * @param column The column of the block within the level.
+	 * @param row The row of the block within the level.
+	 * @return The number of live cells in the block.
+	 */
+	private int countAt(int level, int column, int row) {
+		if(column >= levelColumns[level] || row >= levelRows[level]) {
+			return 0;
+		}
+		int index = row * levelColumns[level] + column;
+		return level == 0 ? blockCounts[index] : levelCounts[level][index];
+	}
+
+	/**
+	 * Creates the density pyramid, with every tile marked as stale so that the next update counts the whole grid.
+	 */
+	private void createDensityPyramid() {
+		int levels = 1;
+		while((width - 1) >> (BLOCK_SHIFT + levels - 1) > 0 || (height - 1) >> (BLOCK_SHIFT + levels - 1) > 0) {
+			levels++; // Keep adding levels until one block covers the whole grid.
+		}
+		levelColumns = new int[levels];
+		levelRows = new int[levels];
+		levelCounts = new int[levels][];
+		for(int level = 0; level < levels; level++) {
+			int shift = BLOCK_SHIFT + level;
+			levelColumns[level] = ((width - 1) >> shift) + 1;
+			levelRows[level] = ((height - 1) >> shift) + 1;
+			if(level > 0) {
+				levelCounts[level] = new int[levelColumns[level] * levelRows[level]];
+			}
+		}
+		blockCounts = new byte[levelColumns[0] * levelRows[0]];
+		densityStale = new boolean[tilesX * tilesY];
+		staleTiles = new int[tilesX * tilesY];
+		for(int tile = 0; tile < staleTiles.length; tile++) {
+			markDensityStale(tile);
+		}
+	}
+
+	/**
+	 * Marks a tile as changed for the density pyramid, if the pyramid exists. Does nothing if the tile is already marked.
+	 * @param tile The index of the tile (ty * tilesX + tx).
+	 */
+	private void markDensityStale(int tile) {
+		if(blockCounts != null && !densityStale[tile]) {
+			densityStale[tile] = true;
+			staleTiles[staleCount++] = tile;
+		}
+	}
+
+	/**
+	 * Counts the live cells in each 8 x 8 block of one tile, i.e. the part of level 0 of the density pyramid that the tile covers.
+	 * Every byte of a word is one block's row, so the bytes of eight words are counted at once, and the counts for eight rows are added up without ever separating them.
+	 * @param tx The column of the tile.
+	 * @param ty The row of the tile.
+	 */
+	private void countBlocks(int tx, int ty) {
+		int columns = levelColumns[0];
+		int blocksInWord = Math.min(8, columns - (tx << 3)); // The last word of each row may have fewer than 8 blocks in the grid.
+		int lastRow = Math.min(height, (ty + 1) << TILE_SHIFT);
+		for(int firstRow = ty << TILE_SHIFT; firstRow < lastRow; firstRow += 1 << BLOCK_SHIFT) {
+			long sums = 0; // Eight byte-sized sums of up to 64, one for each block.
+			for(int y = firstRow; y < Math.min(lastRow, firstRow + (1 << BLOCK_SHIFT)); y++) {
+				long x = current[rowStart(y) + tx];
+				x -= (x >>> 1) & 0x5555555555555555L; // The number of live cells in each pair of bits,
+				x = (x & 0x3333333333333333L) + ((x >>> 2) & 0x3333333333333333L); // then in each 4 bits,
+				sums += (x + (x >>> 4)) & 0x0F0F0F0F0F0F0F0FL; // then in each byte.
+			}
+			int index = (firstRow >> BLOCK_SHIFT) * columns + (tx << 3);
+			for(int b = 0; b < blocksInWord; b++) {
+				blockCounts[index + b] = (byte) (sums >>> (b << 3));
+			}
+		}
+	}
+
+	/**
+	 * Works out which tiles need to be computed in this generation: every tile that changed in the last generation, along with the eight tiles around it.
+	 * With grid wrapping enabled, tiles on one edge of the grid are next to the tiles on the opposite edge.
+	 * Afterwards, <code>changed</code> is cleared, ready to record the changes made by this generation.
+	 * @param wrap Whether grid wrapping is enabled.
+	 */
+	private void findActiveTiles(boolean wrap) {
+		Arrays.fill(active, false);
+		for(int ty = 0; ty < tilesY; ty++) {
+			for(int tx = 0; tx < tilesX; tx++) {
+				if(!changed[ty * tilesX + tx]) {
+					continue;
+				}
+				for(int dy = -1; dy <= 1; dy++) {
+					int ny = ty + dy;
+					if(ny < 0 || ny >= tilesY) {
+						if(!wrap) {
+							continue;
+						}
+						ny = (ny + tilesY) % tilesY;
+					}
+					for(int dx = -1; dx <= 1; dx++) {
+						int nx = tx + dx;
+						if(nx < 0 || nx >= tilesX) {
+							if(!wrap) {
+								continue;
+							}
+							nx = (nx + tilesX) % tilesX;
+						}
+						active[ny * tilesX + nx] = true;
+					}
+				}
+			}
+		}
+		Arrays.fill(changed, false);
+	}
+
+	/**
+	 * Fills in the halo around a generation. With grid wrapping enabled, each ghost cell becomes a copy of the cell on the opposite edge of the grid,
+	 * so that the grid behaves like a torus. With grid wrapping disabled, every ghost cell is dead.
+	 * @param g The generation whose halo to fill in.
+	 * @param wrap Whether grid wrapping is enabled.
+	 */
+	private void refreshHalo(long[] g, boolean wrap) {
+		int rightWord = 1 + (width >>> 6); // The word (within a row) that holds column "width", i.e. the right halo.
+		int rightBit = width & 63;
+		for(int y = 0; y < height; y++) {
+			int row = (y + 1) * stride;
+			if(wrap) {
+				g[row] = g[row + 1 + (wordsPerRow - 1)] >>> lastBit << 63; // Column -1 is a copy of column (width - 1).
+				g[row + rightWord] = (g[row + rightWord] & ~(1L << rightBit)) | ((g[row + 1] & 1L) << rightBit); // Column "width" is a copy of column 0.
+			}
+			else {
+				g[row] = 0L;
+				g[row + rightWord] &= ~(1L << rightBit);
+			}
+		}
+		// The top and bottom rows of the halo are copies of the bottom and top rows of the grid (including their own halo, which fills in the corners).
+		if(wrap) {
+			System.arraycopy(g, height * stride, g, 0, stride);
+			System.arraycopy(g, stride, g, (height + 1) * stride, stride);
+		}
+		else {
+			Arrays.fill(g, 0, stride, 0L);
+			Arrays.fill(g, (height + 1) * stride, (height + 2) * stride, 0L);
+		}
+	}
+
+	/**
+	 * Clears column "width" (the right halo) of every row, when it shares a word with the last cells of the row.
+	 * @param g The generation to clear the right halo of.
+	 */
+	private void clearRightHalo(long[] g) {
+		long mask = ~(1L << (width & 63));
+		for(int y = 0; y < height; y++) {
+			g[rowStart(y) + wordsPerRow - 1] &= mask;
+		}
+	}
+
+	/**
+	 * Loads the vector kernel by name, so that this class can still be compiled and run without <code>jdk.incubator.vector</code>.
+	 * @return The kernel, or null if it was not compiled or the Vector API is not available.
+	 */
+	private static VectorKernel loadVectorKernel() {
+		try {
+			return (VectorKernel) Class.forName("visualisingCellularAutomata.VectorLifeKernel").getDeclaredConstructor().newInstance();
+		}
+		catch(ReflectiveOperationException | LinkageError e) {
+			// ClassNotFoundException if the kernel was not compiled, or NoClassDefFoundError if the module was not added at runtime. Either way, use the scalar code.
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the pool that parallel generations are computed on, creating it (with one thread per processor) if it does not exist yet.
+	 * @return The shared pool.
+	 */
+	private static synchronized ForkJoinPool getPool() {
+		if(pool == null) {
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		}
+		return pool;
+	}
+
+	/**
+	 * A band of tile rows that is computed as one task on the <code>ForkJoinPool</code>.
+	 * Bands that are more than one tile row tall are split in half, until every processor has a share of the work.
+	 */
+	private class Band extends RecursiveAction {
+		/** Auto-generated ID. */
+		private static final long serialVersionUID = 2896331875430915284L;
+		/** The first row of tiles in the band. */
+		private final int fromTileRow;
+		/** The row of tiles after the last one in the band. */
+		private final int toTileRow;
+		/** The current generation. */
+		private final long[] cur;
+		/** The next generation. */
+		private final long[] next;
+		/** The rule to apply. */
+		private final Rule rule;
+
+		/**
+		 * Creates a band. The arguments are the same as those of <code>stepTileRows</code>.
+		 * @param fromTileRow The first row of tiles in the band.
+		 * @param toTileRow The row of tiles after the last one in the band.
+		 * @param cur The current generation.
+		 * @param next The next generation.
+		 * @param rule The rule to apply.
+		 */
+		Band(int fromTileRow, int toTileRow, long[] cur, long[] next, Rule rule) {
+			this.fromTileRow = fromTileRow;
+			this.toTileRow = toTileRow;
+			this.cur = cur;
+			this.next = next;
+			this.rule = rule;
+		}
+
+		/**
+		 * Computes the band, or splits it in half and computes both halves at the same time.
+		 */
+		@Override
+		protected void compute() {
+			if(toTileRow - fromTileRow <= 1) {
+				stepTileRows(fromTileRow, toTileRow, cur, next, rule);
+			}
+			else {
+				int middle = (fromTileRow + toTileRow) >>> 1;
+				invokeAll(new Band(fromTileRow, middle, cur, next, rule),
+						new Band(middle, toTileRow, cur, next, rule));
+			}
+		}
+	}
+}
@@ -0,0 +1,456 @@
+package visualisingCellularAutomata;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The PatternFormat reads and writes patterns in the two formats that are most widely used by other Life programs and pattern collections:
+ * RLE (run length encoded, usually <code>.rle</code>) and Life 1.06 (a list of live cell coordinates, usually <code>.lif</code> or <code>.life</code>).
+ *
+ * In RLE, a header line gives the size of the pattern and its rules, e.g. "x = 3, y = 3, rule = B3/S23". The rows of the pattern follow, each as runs of
+ * dead cells ("b") and live cells ("o"), with the length of each run written before it (or left out, if it is 1). "$" ends a row, and "!" ends the pattern.
+ * Lines starting with "#" are comments.
+ * In Life 1.06, the first line is "#Life 1.06", and each line after it holds the x and y coordinates of one live cell, which may be negative.
+ *
+ * Patterns are read straight from a <code>ReadableByteChannel</code>, a buffer at a time, and each cell is stamped onto the automaton as soon as it has been read.
+ * Nothing is built up in memory (not even a line of text, apart from the header), so even very large patterns are read in one pass, in time proportional to the size of the file.
+ * A pattern is read in two steps: <code>open</code> reads the header, so that the size and rules of the pattern are known before it is placed,
+ * and then <code>stamp</code> reads the cells onto an automaton at any offset.
+ * @see visualisingCellularAutomata.SaveFormat
+ */
+public final class PatternFormat {
+	/** The longest line that is written to an RLE file, as recommended by the format. */
+	private static final int RLE_LINE_LENGTH = 70;
+	/** The size of the buffer that files are read and written through. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** True if the pattern is in Life 1.06 format, false if it is RLE. */
+	final boolean life106;
+	/** The width of the pattern, as given by its header. 0 if it is not known (Life 1.06 files do not give their size). */
+	final int width;
+	/** The height of the pattern, as given by its header. 0 if it is not known. */
+	final int height;
+	/** The rules given in the pattern's header, or null if it does not give them (or gives rules that are not lifelike). */
+	final Rule rule;
+
+	/** The channel that the pattern is read from. */
+	private final ReadableByteChannel in;
+	/** The bytes that have been read from the channel, but not used yet. */
+	private final ByteBuffer buffer;
+	/** The next byte of the file (which has been read, but not used yet), or -1 at the end of the file. */
+	private int next;
+
+	/**
+	 * This constructor reads the header of a pattern, leaving the channel at the start of its cells.
+	 * @param in The channel to read the pattern from.
+	 * @throws IOException If the channel can not be read.
+	 */
+	private PatternFormat(ReadableByteChannel in) throws IOException {
+		this.in = in;
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.flip(); // Empty, so that the first read fills it.
+		next = read();
+
+		boolean life106 = false;
+		int width = 0;
+		int height = 0;
+		Rule rule = null;
+		skipWhitespace();
+		while(next == '#' || next == 'x') {
+			String line = readLine().trim();
+			if(line.startsWith("#Life 1.06")) {
+				life106 = true;
+				break; // The cells start on the next line. Any comments among them are skipped while stamping.
+			}
+			else if(line.startsWith("x")) { // The RLE header, e.g. "x = 3, y = 3, rule = B3/S23".
+				for(String field : line.split(",")) {
+					int equals = field.indexOf('=');
+					if(equals < 0) {
+						continue;
+					}
+					String name = field.substring(0, equals).trim();
+					String value = field.substring(equals + 1).trim();
+					try {
+						if(name.equals("x")) {
+							width = Integer.parseInt(value);
+						}
+						else if(name.equals("y")) {
+							height = Integer.parseInt(value);
+						}
+						else if(name.equals("rule")) {
+							int colon = value.indexOf(':'); // Anything after a colon describes the shape of a bounded grid, which does not apply here.
+							rule = Rule.parse(colon < 0 ? value : value.substring(0, colon));
+						}
+					}
+					catch(IllegalArgumentException e) {
+						// An unreadable size is treated as unknown, and rules that are not lifelike (e.g. with more than two states) are ignored.
+					}
+				}
+				break; // The cells start on the next line.
+			}
+			skipWhitespace(); // A comment: carry on to the next line.
+		}
+		this.life106 = life106;
+		this.width = Math.max(0, width);
+		this.height = Math.max(0, height);
+		this.rule = rule;
+	}
+
+	/**
+	 * Starts reading a pattern from a channel, in either format. The header is read straight away, so that the pattern's size and rules can be checked before it is stamped.
+	 * @param in The channel to read the pattern from. It is not closed.
+	 * @return The pattern, ready to be stamped.
+	 * @throws IOException If the channel can not be read.
+	 */
+	public static PatternFormat open(ReadableByteChannel in) throws IOException {
+		return new PatternFormat(in);
+	}
+
+	/**
+	 * Reads the cells of the pattern, bringing each live cell to life on an automaton. Dead cells in the pattern leave the automaton as it is.
+	 * If the automaton is a bounded grid, cells that fall outside of it are skipped.
+	 * This can only be called once, as it reads the pattern to its end.
+	 * @param engine The automaton to stamp the pattern onto.
+	 * @param x The column of the automaton to put the pattern's column 0 at. For RLE, this is the left edge of the pattern.
+	 * @param y The row of the automaton to put the pattern's row 0 at. For RLE, this is the top edge of the pattern.
+	 * @return The number of live cells that were stamped.
+	 * @throws IOException If the channel can not be read, or the pattern is damaged.
+	 */
+	public long stamp(LifeEngine engine, long x, long y) throws IOException {
+		// Only a bounded grid has edges. The unbounded plane can hold any cell that fits in an int.
+		long minX = Integer.MIN_VALUE;
+		long minY = Integer.MIN_VALUE;
+		long maxX = Integer.MAX_VALUE;
+		long maxY = Integer.MAX_VALUE;
+		if(engine instanceof PackedLifeEngine) {
+			minX = 0;
+			minY = 0;
+			maxX = ((PackedLifeEngine) engine).width - 1;
+			maxY = ((PackedLifeEngine) engine).height - 1;
+		}
+		return life106 ? stampLife106(engine, x, y, minX, minY, maxX, maxY) : stampRle(engine, x, y, minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Reads the cells of an RLE pattern onto an automaton. See <code>stamp</code>.
+	 */
+	private long stampRle(LifeEngine engine, long x, long y, long minX, long minY, long maxX, long maxY) throws IOException {
+		long live = 0;
+		long column = x;
+		long row = y;
+		long count = 0; // The length of the run that is being read, or 0 if none has been given yet (meaning 1).
+		for(int c = next; c >= 0 && c != '!'; c = read()) {
+			if(c >= '0' && c <= '9') {
+				count = count * 10 + (c - '0');
+				if(count > Integer.MAX_VALUE) {
+					throw new IOException("The pattern is damaged: a run is too long.");
+				}
+			}
+			else if(c == 'b' || c == '.') { // A run of dead cells.
+				column += Math.max(1, count);
+				count = 0;
+			}
+			else if(c == '$') { // The end of a row (or of several, if some are empty).
+				row += Math.max(1, count);
+				column = x;
+				count = 0;
+			}
+			else if(c == 'o' || (c >= 'A' && c <= 'X')) { // A run of live cells. Letters are used for the live states of patterns with more than two states.
+				long length = Math.max(1, count);
+				if(row >= minY && row <= maxY) {
+					for(long i = Math.max(column, minX); i < Math.min(column + length, maxX + 1); i++) {
+						engine.set((int) i, (int) row, 1);
+						live++;
+					}
+				}
+				column += length;
+				count = 0;
+			}
+			else if(c == '#') { // A comment among the cells. Unusual, but allowed.
+				skipLine();
+			}
+			// Anything else (including whitespace and line breaks, which can appear anywhere) is ignored.
+		}
+		next = -1;
+		return live;
+	}
+
+	/**
+	 * Reads the cells of a Life 1.06 pattern onto an automaton. See <code>stamp</code>.
+	 */
+	private long stampLife106(LifeEngine engine, long x, long y, long minX, long minY, long maxX, long maxY) throws IOException {
+		long live = 0;
+		skipWhitespace();
+		while(next >= 0) {
+			if(next == '#') {
+				skipLine();
+			}
+			else {
+				long column = x + readInt();
+				long row = y + readInt();
+				if(column >= minX && column <= maxX && row >= minY && row <= maxY) {
+					engine.set((int) column, (int) row, 1);
+					live++;
+				}
+			}
+			skipWhitespace();
+		}
+		return live;
+	}
+
+	/**
+	 * Writes the live cells of a grid as an RLE pattern. Only the smallest rectangle that holds every live cell is written, and it becomes the pattern.
+	 * Each row is written straight from the grid's words, so the time taken depends on the number of runs of live cells rather than on the size of the grid.
+	 * @param out The channel to write to. It is not closed.
+	 * @param grid The grid to write.
+	 * @param rule The rules to write in the header.
+	 * @throws IOException If the channel can not be written to.
+	 */
+	public static void writeRle(WritableByteChannel out, PackedLifeEngine grid, Rule rule) throws IOException {
+		int[] bounds = liveBounds(grid);
+		Writer writer = new Writer(out);
+		int left = bounds[0];
+		int width = bounds[0] > bounds[2] ? 0 : bounds[2] - bounds[0] + 1;
+		int height = bounds[1] > bounds[3] ? 0 : bounds[3] - bounds[1] + 1;
+		writer.text("x = " + width + ", y = " + height + ", rule = " + rule + "\n");
+
+		int endsOfRows = 0; // Rows that have ended, but whose "$" has not been written yet. Empty rows are written together as one run.
+		for(int y = bounds[1]; y <= bounds[3]; y++) {
+			int start = grid.rowStart(y);
+			int column = left; // The first column that has not been written yet.
+			for(int w = left >>> 6; w < grid.wordsPerRow; w++) {
+				long word = grid.current[start + w];
+				if(w == column >>> 6) {
+					word &= -1L << (column & 63); // Leave out the cells that have been written already, as part of a run from an earlier word.
+				}
+				while(word != 0) {
+					// Find the next run of live cells in this word, and whether it carries on into the next word.
+					int first = (w << 6) + Long.numberOfTrailingZeros(word);
+					long ones = ~(word >>> Long.numberOfTrailingZeros(word)); // The run starts at bit 0 of this, as zeros.
+					int length = Long.numberOfTrailingZeros(ones);
+					if(length == 64 - (first & 63)) { // The run reaches the end of the word, so it may carry on.
+						int nextWord = w + 1;
+						while(nextWord < grid.wordsPerRow && grid.current[start + nextWord] == -1L) {
+							length += 64;
+							nextWord++;
+						}
+						if(nextWord < grid.wordsPerRow) {
+							length += Long.numberOfTrailingZeros(~grid.current[start + nextWord]);
+						}
+					}
+					if(endsOfRows > 0) {
+						writer.run(endsOfRows, '$');
+						endsOfRows = 0;
+					}
+					if(first > column) {
+						writer.run(first - column, 'b');
+					}
+					writer.run(length, 'o');
+					column = first + length;
+					// Carry on after the run, which may be in a later word.
+					if((column >>> 6) != w) {
+						w = (column >>> 6) - 1;
+						break;
+					}
+					word &= -1L << (column & 63);
+				}
+			}
+			endsOfRows++; // Dead cells at the end of a row are left out.
+		}
+		writer.run(1, '!');
+		writer.text("\n");
+		writer.flush();
+	}
+
+	/**
+	 * Writes the live cells of a grid as a Life 1.06 pattern, one cell per line. The coordinates are those of the grid, so the top left corner of the grid is (0, 0).
+	 * @param out The channel to write to. It is not closed.
+	 * @param grid The grid to write.
+	 * @throws IOException If the channel can not be written to.
+	 */
+	public static void writeLife106(WritableByteChannel out, PackedLifeEngine grid) throws IOException {
+		Writer writer = new Writer(out);
+		writer.text("#Life 1.06\n");
+		for(int y = 0; y < grid.height; y++) {
+			int start = grid.rowStart(y);
+			for(int w = 0; w < grid.wordsPerRow; w++) {
+				for(long word = grid.current[start + w]; word != 0; word &= word - 1) {
+					writer.text(((w << 6) + Long.numberOfTrailingZeros(word)) + " " + y + "\n");
+				}
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Finds the smallest rectangle that holds every live cell of a grid.
+	 * @param grid The grid to search.
+	 * @return The left column, top row, right column and bottom row of the rectangle. If there are no live cells, the left column is greater than the right.
+	 */
+	private static int[] liveBounds(PackedLifeEngine grid) {
+		int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1};
+		for(int y = 0; y < grid.height; y++) {
+			int start = grid.rowStart(y);
+			for(int w = 0; w < grid.wordsPerRow; w++) {
+				long word = grid.current[start + w];
+				if(word != 0) {
+					bounds[0] = Math.min(bounds[0], (w << 6) + Long.numberOfTrailingZeros(word));
+					bounds[2] = Math.max(bounds[2], (w << 6) + 63 - Long.numberOfLeadingZeros(word));
+					bounds[1] = Math.min(bounds[1], y);
+					bounds[3] = y;
+				}
+			}
+		}
+		if(bounds[2] < 0) {
+			bounds[0] = 0;
+			bounds[1] = 0;
+		}
+		return bounds;
+	}
+
+	/**
+	 * Returns the next byte of the file, reading more of it into the buffer if needed.
+	 * @return The byte (0-255), or -1 at the end of the file.
+	 * @throws IOException If the channel can not be read.
+	 */
+	private int read() throws IOException {
+		if(!buffer.hasRemaining()) {
+			buffer.clear();
+			int count;
+			do {
+				count = in.read(buffer);
+			} while(count == 0);
+			buffer.flip();
+			if(count < 0) {
+				return -1;
+			}
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	/**
+	 * Skips spaces, tabs and line breaks, leaving <code>next</code> at the first byte after them.
+	 * @throws IOException If the channel can not be read.
+	 */
+	private void skipWhitespace() throws IOException {
+		while(next == ' ' || next == '\t' || next == '\r' || next == '\n') {
+			next = read();
+		}
+	}
+
+	/**
+	 * Skips the rest of the current line, including its line break.
+	 * @throws IOException If the channel can not be read.
+	 */
+	private void skipLine() throws IOException {
+		while(next >= 0 && next != '\n') {
+			next = read();
+		}
+		next = read();
+	}
+
+	/**
+	 * Reads the rest of the current line as text. This is only used for the header, so lines of cells are never built up as strings.
+	 * @return The line, without its line break.
+	 * @throws IOException If the channel can not be read.
+	 */
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		while(next >= 0 && next != '\n') {
+			line.append((char) next);
+			next = read();
+		}
+		next = read();
+		return line.toString();
+	}
+
+	/**
+	 * Reads a whole number (which may be negative), skipping any spaces or tabs before it.
+	 * @return The number.
+	 * @throws IOException If the channel can not be read, or there is no number, or it is too large for an <code>int</code>.
+	 */
+	private long readInt() throws IOException {
+		while(next == ' ' || next == '\t') {
+			next = read();
+		}
+		boolean negative = next == '-';
+		if(negative || next == '+') {
+			next = read();
+		}
+		if(next < '0' || next > '9') {
+			throw new IOException("The pattern is damaged: expected a coordinate, but found " + (next < 0 ? "the end of the file." : "'" + (char) next + "'."));
+		}
+		long value = 0;
+		while(next >= '0' && next <= '9') {
+			value = value * 10 + (next - '0');
+			if(value > Integer.MAX_VALUE) {
+				throw new IOException("The pattern is damaged: a coordinate is too large.");
+			}
+			next = read();
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Writes text to a channel through a buffer, and keeps RLE lines within <code>RLE_LINE_LENGTH</code>.
+	 */
+	private static final class Writer {
+		/** The channel to write to. */
+		private final WritableByteChannel out;
+		/** The bytes waiting to be written. */
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		/** The length of the current line so far. */
+		private int lineLength = 0;
+
+		/**
+		 * @param out The channel to write to.
+		 */
+		Writer(WritableByteChannel out) {
+			this.out = out;
+		}
+
+		/**
+		 * Writes a run of cells (or of row ends), e.g. "12o", starting a new line first if it would not fit on the current one.
+		 * @param length The length of the run. A length of 1 is left out.
+		 * @param tag The kind of run: 'b' (dead), 'o' (live) or '$' (end of row). The '!' that ends the pattern is written as a run of 1.
+		 * @throws IOException If the channel can not be written to.
+		 */
+		void run(int length, char tag) throws IOException {
+			String run = length == 1 ? String.valueOf(tag) : length + String.valueOf(tag);
+			if(lineLength + run.length() > RLE_LINE_LENGTH) {
+				text("\n");
+			}
+			text(run);
+		}
+
+		/**
+		 * Writes text as ASCII.
+		 * @param text The text to write.
+		 * @throws IOException If the channel can not be written to.
+		 */
+		void text(String text) throws IOException {
+			byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+			if(buffer.remaining() < bytes.length) {
+				flush();
+			}
+			buffer.put(bytes);
+			int lineBreak = text.lastIndexOf('\n');
+			lineLength = lineBreak < 0 ? lineLength + text.length() : text.length() - lineBreak - 1;
+		}
+
+		/**
+		 * Writes out everything in the buffer.
+		 * @throws IOException If the channel can not be written to.
+		 */
+		void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package visualisingCellularAutomata;
+
+/**
+ * A Rule is the compiled form of a lifelike ruleset, such as B3/S23 (Conway's Game of Life).
+ * Rules are immutable: changing the rules of the automaton means creating a new Rule and replacing the old one as a whole.
+ * This means that a generation that is being computed always sees one complete ruleset, never half of an old one and half of a new one.
+ *
+ * The ruleset is stored as a lookup table indexed by (state * 9 + neighbours), so the next state of any cell can be found without any searching.
+ * Each entry is a full word of 64 copies of the result (-1L if the cell is alive in the next generation, 0 if it is dead),
+ * so that <code>PackedLifeEngine</code> can apply an entry to 64 cells at once with a single AND.
+ */
+public final class Rule {
+	/** The next state for every (state, neighbour count) pair, indexed by (state * 9 + neighbours). -1L means alive, 0 means dead. */
+	final long[] table = new long[18];
+	/** The neighbour counts that appear in the birth or survival rules, in increasing order. No other count can ever produce a live cell. */
+	final int[] counts;
+	/** The birth rule as a string of digits, e.g. "3". */
+	private final String birth;
+	/** The survival rule as a string of digits, e.g. "23". */
+	private final String survival;
+
+	/**
+	 * Compiles a ruleset from strings of neighbour counts. Duplicate digits are ignored.
+	 * @param birth The neighbour counts (digits 0-8) that cause a dead cell to become alive, e.g. "3". May be empty.
+	 * @param survival The neighbour counts (digits 0-8) that allow a live cell to stay alive, e.g. "23". May be empty.
+	 * @throws IllegalArgumentException If either string contains anything other than the digits 0-8.
+	 */
+	public Rule(String birth, String survival) {
+		int birthMask = toMask(birth);
+		int survivalMask = toMask(survival);
+		for(int n = 0; n <= 8; n++) {
+			table[n] = -((birthMask >>> n) & 1L); // Dead cells (state 0).
+			table[9 + n] = -((survivalMask >>> n) & 1L); // Live cells (state 1).
+		}
+		this.counts = new int[Integer.bitCount(birthMask | survivalMask)];
+		for(int n = 0, i = 0; n <= 8; n++) {
+			if(((birthMask | survivalMask) >>> n & 1) != 0) {
+				counts[i++] = n;
+			}
+		}
+		this.birth = fromMask(birthMask);
+		this.survival = fromMask(survivalMask);
+	}
+
+	/**
+	 * Compiles a ruleset written in the usual B/S notation, e.g. "B3/S23". This is the form that <code>toString</code> produces, and that save files store.
+	 * Upper and lower case letters are both accepted, and so is whitespace around the parts.
+	 * The older S/B notation used by some pattern files, which has no letters and gives the survival counts first (e.g. "23/3"), is also accepted.
+	 * @param notation The ruleset to compile.
+	 * @return The compiled ruleset.
+	 * @throws IllegalArgumentException If the string is not in B/S (or S/B) notation, or contains neighbour counts other than 0-8.
+	 */
+	public static Rule parse(String notation) {
+		String[] parts = notation.trim().split("\\s*/\\s*", -1);
+		if(parts.length == 2 && parts[0].matches("[Bb][0-9]*") && parts[1].matches("[Ss][0-9]*")) {
+			return new Rule(parts[0].substring(1), parts[1].substring(1));
+		}
+		if(parts.length == 2 && parts[0].matches("[0-9]*") && parts[1].matches("[0-9]*")) {
+			return new Rule(parts[1], parts[0]);
+		}
+		throw new IllegalArgumentException("Invalid rule \"" + notation + "\": expected B/S notation, e.g. B3/S23.");
+	}
+
+	/**
+	 * Compiles a ruleset from bit masks of neighbour counts, where bit n is set if a count of n is in the rule.
+	 * Every Life-like ruleset is one of the 2^18 pairs of 9-bit masks, so this is a quick way to go through all of them.
+	 * @param birthMask The neighbour counts that cause a dead cell to become alive (bits 0-8).
+	 * @param survivalMask The neighbour counts that allow a live cell to stay alive (bits 0-8).
+	 * @return The compiled ruleset.
+	 * @throws IllegalArgumentException If either mask has bits set above bit 8.
+	 */
+	public static Rule fromMasks(int birthMask, int survivalMask) {
+		if(((birthMask | survivalMask) & ~0x1FF) != 0) {
+			throw new IllegalArgumentException("Invalid rule masks " + birthMask + ", " + survivalMask + ": only bits 0-8 are allowed.");
+		}
+		return new Rule(fromMask(birthMask), fromMask(survivalMask));
+	}
+
+	/**
+	 * Looks up the next state of a single cell.
+	 * @param state The current state of the cell (0 or 1).
+	 * @param neighbours The number of live neighbours that the cell has (0-8).
+	 * @return The state of the cell in the next generation (0 or 1).
+	 */
+	public int nextState(int state, int neighbours) {
+		return (int) table[state * 9 + neighbours] & 1;
+	}
+
+	/**
+	 * @return The birth rule as a string of digits in increasing order, e.g. "3".
+	 */
+	public String getBirth() {
+		return birth;
+	}
+
+	/**
+	 * @return The survival rule as a string of digits in increasing order, e.g. "23".
+	 */
+	public String getSurvival() {
+		return survival;
+	}
+
+	/**
+	 * @return The rule in the usual B/S notation, e.g. "B3/S23".
+	 */
+	@Override
+	public String toString() {
+		return "B" + birth + "/S" + survival;
+	}
+
+	/**
+	 * Converts a string of digits into a bit mask, where bit n is set if the digit n appears in the string.
+	 * @param digits The string of digits to convert.
+	 * @return The bit mask.
+	 */
+	private static int toMask(String digits) {
+		int mask = 0;
+		for(int i = 0; i < digits.length(); i++) {
+			char c = digits.charAt(i);
+			if(c < '0' || c > '8') {
+				throw new IllegalArgumentException("Invalid neighbour count '" + c + "' in rule \"" + digits + "\": only 0-8 are allowed.");
+			}
+			mask |= 1 << (c - '0');
+		}
+		return mask;
+	}
+
+	/**
+	 * Converts a bit mask back into a string of digits in increasing order.
+	 * @param mask The bit mask to convert.
+	 * @return The string of digits.
+	 */
+	private static String fromMask(int mask) {
+		StringBuilder builder = new StringBuilder();
+		for(int n = 0; n <= 8; n++) {
+			if((mask >>> n & 1) != 0) {
+				builder.append(n);
+			}
+		}
+		return builder.toString();
+	}
+}
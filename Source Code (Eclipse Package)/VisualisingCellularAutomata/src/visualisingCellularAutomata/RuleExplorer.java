@@ -0,0 +1,487 @@
+package visualisingCellularAutomata;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The RuleExplorer runs random soups under many rulesets at once, without any window, and sorts each run into one of the outcomes below.
+ * It can go through any list of rules, up to all 2^18 Life-like rules, with any number of soups each. Every (rule, soup) pair is one run, and the runs
+ * are shared out between one worker thread per processor. Each worker has one small <code>Simulation</code> of its own, which it reuses for every run,
+ * so the memory used does not depend on the number of rules or generations. Results are written to a CSV file as each run finishes.
+ *
+ * Each run starts with a square soup of random cells in the middle of an empty grid that wraps around at its edges (see <code>Simulation.soup</code>). The soup only depends
+ * on its seed, so every rule sees the same soups, and any run can be repeated exactly. Runs end with one of these outcomes:
+ * <ul>
+ * <li><code>dies</code>: every cell died.</li>
+ * <li><code>stabilizes</code>: the grid stopped changing (a period of 1).</li>
+ * <li><code>oscillates</code>: the grid went back to a state that it was in before, and so repeats for ever with the period given.
+ * On a wrapped grid, this includes spaceships, which come back to where they started once they have gone all the way around.</li>
+ * <li><code>explodes</code>: the live cells spread far beyond the soup, filling more than a given fraction of the grid.</li>
+ * <li><code>chaotic</code>: none of the above happened within the given number of generations.</li>
+ * </ul>
+ * Repeats are found with Brent's cycle detection on a 64-bit hash of the grid, which takes one comparison per generation and no memory beyond two hashes,
+ * however long the period is. A repeat with a period of p that starts at generation g is found by generation 2 max(g, p) + p at the latest.
+ * If <code>findLifespans</code> is set, the soup is then run again from the start to find g itself (see <code>cycleStart</code>).
+ *
+ * Usage: <code>java visualisingCellularAutomata.RuleExplorer rules results.csv [options]</code>, where <code>rules</code> is "all" (every Life-like rule),
+ * a list of rules separated by commas (e.g. "B3/S23,B36/S23"), or a file with one rule per line. The options are:
+ * <ul>
+ * <li><code>-soups N</code>: the number of soups to run under each rule (default 4), with the seeds <code>seed</code> to <code>seed + N - 1</code>.</li>
+ * <li><code>-seed S</code>: the seed of the first soup (default 1).</li>
+ * <li><code>-size N</code>: the width and height of the grid (default 128).</li>
+ * <li><code>-soup N</code>: the width and height of the soup (default 32).</li>
+ * <li><code>-density D</code>: the fraction of the soup's cells that start alive (default 0.5).</li>
+ * <li><code>-generations N</code>: the most generations to run for (default 4000).</li>
+ * <li><code>-explode F</code>: the fraction of the grid that must be alive for a run to count as exploding (default 0.2).</li>
+ * <li><code>-threads N</code>: the number of worker threads (default: one per processor).</li>
+ * </ul>
+ * @see visualisingCellularAutomata.Simulation
+ * @see visualisingCellularAutomata.Ensemble
+ */
+public class RuleExplorer {
+	/** The outcomes that a run can end with, in the order that they are counted in. */
+	static final String[] OUTCOMES = {"dies", "stabilizes", "oscillates", "explodes", "chaotic"};
+	/** Index of the outcome "dies" in <code>OUTCOMES</code>. */
+	static final int DIES = 0;
+	/** Index of the outcome "stabilizes" in <code>OUTCOMES</code>. */
+	static final int STABILIZES = 1;
+	/** Index of the outcome "oscillates" in <code>OUTCOMES</code>. */
+	static final int OSCILLATES = 2;
+	/** Index of the outcome "explodes" in <code>OUTCOMES</code>. */
+	static final int EXPLODES = 3;
+	/** Index of the outcome "chaotic" in <code>OUTCOMES</code>. */
+	static final int CHAOTIC = 4;
+
+	/** The rules to explore, or null to explore every Life-like rule (see <code>ruleAt</code>). */
+	private final Rule[] rules;
+	/** The number of soups to run under each rule. */
+	private final int soups;
+	/** The seed of the first soup. */
+	final long firstSeed;
+	/** The width and height of the grid. */
+	private final int size;
+	/** The width and height of the soup. */
+	private final int soupSize;
+	/** The fraction of the soup's cells that start alive. */
+	private final double density;
+	/** The most generations to run for. */
+	private final int maxGenerations;
+	/** A run explodes once it has more live cells than this. */
+	private final long explodeAt;
+
+	/** Whether to find the generation that each repeat started in (at the cost of running the soup again), rather than only the generation that it was found in. */
+	boolean findLifespans = false;
+
+	/** The index of the next run to be taken by a worker. Run i is soup (i % soups) of rule (i / soups). */
+	private final AtomicLong nextRun = new AtomicLong();
+	/** The number of runs that have ended with each outcome. */
+	final AtomicLongArray outcomeCounts = new AtomicLongArray(OUTCOMES.length);
+	/** The total number of generations computed by every worker. */
+	final AtomicLong generationsComputed = new AtomicLong();
+	/** Where the results are written, or null if they are not written. Workers take turns to write to it, one line per run. */
+	Writer results;
+	/** The first error that a worker had while writing its results, after which every worker stops. */
+	private volatile IOException writeError;
+
+	/**
+	 * The result of one run.
+	 */
+	static final class Result {
+		/** How the run ended, as an index into <code>OUTCOMES</code>. */
+		final int outcome;
+		/** The generation that the run ended in, i.e. when its outcome was found (or the most generations, if it is chaotic). */
+		final int generation;
+		/** The generation that the outcome started in: when the last cell died, the grid exploded, or the repeat began. This is the same as
+		 * <code>generation</code> unless a repeat was found with <code>findLifespans</code> set. */
+		final int lifespan;
+		/** The period of the repeat, or 0 if there was none. */
+		final int period;
+		/** The number of live cells at the end of the run. */
+		final long population;
+
+		/**
+		 * This constructor records the result of a run.
+		 * @param outcome How the run ended.
+		 * @param generation The generation that the run ended in.
+		 * @param lifespan The generation that the outcome started in.
+		 * @param period The period of the repeat, or 0.
+		 * @param population The number of live cells at the end.
+		 */
+		Result(int outcome, int generation, int lifespan, int period, long population) {
+			this.outcome = outcome;
+			this.generation = generation;
+			this.lifespan = lifespan;
+			this.period = period;
+			this.population = population;
+		}
+	}
+
+	/**
+	 * This constructor sets up an exploration. Nothing is run until <code>run</code> is called.
+	 * @param rules The rules to explore, or null to explore every Life-like rule.
+	 * @param soups The number of soups to run under each rule.
+	 * @param firstSeed The seed of the first soup.
+	 * @param size The width and height of the grid.
+	 * @param soupSize The width and height of the soup. It is made smaller if it does not fit on the grid.
+	 * @param density The fraction of the soup's cells that start alive.
+	 * @param maxGenerations The most generations to run for.
+	 * @param explodeFraction The fraction of the grid that must be alive for a run to count as exploding.
+	 */
+	RuleExplorer(Rule[] rules, int soups, long firstSeed, int size, int soupSize, double density, int maxGenerations, double explodeFraction) {
+		this.rules = rules;
+		this.soups = soups;
+		this.firstSeed = firstSeed;
+		this.size = size;
+		this.soupSize = Math.min(soupSize, size);
+		this.density = density;
+		this.maxGenerations = maxGenerations;
+		this.explodeAt = (long) (explodeFraction * size * size);
+	}
+
+	/**
+	 * @return The number of rules being explored.
+	 */
+	long ruleCount() {
+		return rules != null ? rules.length : 1L << 18;
+	}
+
+	/**
+	 * Returns one of the rules being explored. When exploring every Life-like rule, the low 9 bits of the index are the birth counts and the high 9 bits are the survival counts.
+	 * @param index The index of the rule.
+	 * @return The rule.
+	 */
+	Rule ruleAt(long index) {
+		return rules != null ? rules[(int) index] : Rule.fromMasks((int) index & 0x1FF, (int) (index >>> 9));
+	}
+
+	/**
+	 * Runs every (rule, soup) pair, sharing them out between worker threads, and passes each result to <code>finished</code> as it comes in, which writes
+	 * a line of CSV to <code>out</code>. The lines come out in whatever order the runs finish in. This returns once every run has finished.
+	 * @param out Where to write the results, or null to not write them. A header line is written first. It is not closed.
+	 * @param threads The number of worker threads.
+	 * @throws IOException If the results can not be written.
+	 * @throws InterruptedException If this thread is interrupted while waiting for the workers.
+	 */
+	void run(Writer out, int threads) throws IOException, InterruptedException {
+		results = out;
+		if(results != null) {
+			results.write(header());
+		}
+		final long runs = ruleCount() * soups;
+		Thread[] workers = new Thread[threads];
+		for(int i = 0; i < threads; i++) {
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					Simulation simulation = new Simulation(size, size); // Reused for every run that this worker takes.
+					simulation.setAgeTracking(false); // Nobody looks at the ages.
+					Simulation replay = null;
+					if(findLifespans) {
+						replay = new Simulation(size, size);
+						replay.setAgeTracking(false);
+					}
+					long run;
+					while(writeError == null && (run = nextRun.getAndIncrement()) < runs) {
+						Rule rule = ruleAt(run / soups);
+						long seed = firstSeed + run % soups;
+						finished(run, rule, seed, explore(simulation, replay, rule, seed));
+					}
+				}
+			}, "Explorer " + i);
+			workers[i].start();
+		}
+		for(Thread worker : workers) {
+			worker.join();
+		}
+		if(writeError != null) {
+			throw writeError;
+		}
+		if(results != null) {
+			results.flush();
+		}
+	}
+
+	/**
+	 * @return The first line of the results, which names the columns.
+	 */
+	String header() {
+		return "rule,seed,outcome,generation,period,population\n";
+	}
+
+	/**
+	 * Called by a worker as each run finishes. This writes the result as a line of CSV.
+	 * @param run The index of the run.
+	 * @param rule The rule that it ran under.
+	 * @param seed The seed of its soup.
+	 * @param result How it ended.
+	 */
+	void finished(long run, Rule rule, long seed, Result result) {
+		if(results != null) {
+			report(rule + "," + seed + "," + OUTCOMES[result.outcome] + "," + result.generation + "," + result.period + "," + result.population + "\n");
+		}
+	}
+
+	/**
+	 * Runs one soup under one rule until its outcome is known (or it runs out of generations).
+	 * @param simulation The simulation to run it on. Whatever was in it is replaced.
+	 * @param replay A second simulation, the same size, to find the start of a repeat with (see <code>cycleStart</code>), or null to not find it.
+	 * @param rule The rule to run under.
+	 * @param seed The seed of the soup.
+	 * @return The result.
+	 */
+	Result explore(Simulation simulation, Simulation replay, Rule rule, long seed) {
+		start(simulation, rule, seed);
+
+		// Brent's cycle detection: the hash of the grid is compared with the one saved at the last power of two, and the saved one is moved forward to each power of two in turn.
+		PackedLifeEngine grid = simulation.grid;
+		long saved = hash(grid);
+		int power = 1;
+		int sinceSaved = 0;
+		int outcome = CHAOTIC;
+		int period = 0;
+		int generation = 0;
+		long population = 0;
+		while(generation < maxGenerations) {
+			simulation.step();
+			generation++;
+			population = grid.getPopulation();
+			if(population == 0) {
+				outcome = DIES;
+				break;
+			}
+			if(population > explodeAt) {
+				outcome = EXPLODES;
+				break;
+			}
+			long current = hash(grid);
+			sinceSaved++;
+			if(current == saved) {
+				period = sinceSaved;
+				outcome = period == 1 ? STABILIZES : OSCILLATES;
+				break;
+			}
+			if(sinceSaved == power) {
+				saved = current;
+				power <<= 1;
+				sinceSaved = 0;
+			}
+		}
+		outcomeCounts.incrementAndGet(outcome);
+		generationsComputed.addAndGet(generation);
+		int lifespan = generation;
+		if(replay != null && period > 0) {
+			lifespan = cycleStart(simulation, replay, rule, seed, period);
+		}
+		return new Result(outcome, generation, lifespan, period, population);
+	}
+
+	/**
+	 * Empties a simulation and puts a soup in the middle of it, ready for a run.
+	 * @param simulation The simulation.
+	 * @param rule The rule to run under.
+	 * @param seed The seed of the soup.
+	 */
+	private void start(Simulation simulation, Rule rule, long seed) {
+		simulation.clear();
+		simulation.setRule(rule);
+		simulation.setWrapping(true);
+		int offset = (size - soupSize) / 2;
+		simulation.soup(offset, offset, soupSize, soupSize, seed, density);
+	}
+
+	/**
+	 * Finds the first generation of a repeat whose period is known, by running the soup again on two simulations, one <code>period</code> generations ahead
+	 * of the other, until they are the same. This is the second half of Brent's algorithm: it takes (g + p) generations of one simulation and g of the other,
+	 * for a repeat with a period of p that starts at generation g, and no more memory than the detection itself.
+	 * @param simulation The simulation that found the repeat. Whatever is in it is replaced.
+	 * @param replay The second simulation.
+	 * @param rule The rule that the soup ran under.
+	 * @param seed The seed of the soup.
+	 * @param period The period of the repeat.
+	 * @return The generation that the repeat started in.
+	 */
+	private int cycleStart(Simulation simulation, Simulation replay, Rule rule, long seed, int period) {
+		start(simulation, rule, seed);
+		start(replay, rule, seed);
+		simulation.step(period);
+		int generation = 0;
+		while(hash(simulation.grid) != hash(replay.grid)) {
+			simulation.step();
+			replay.step();
+			generation++;
+		}
+		generationsComputed.addAndGet(period + 2L * generation);
+		return generation;
+	}
+
+	/**
+	 * Hashes the current generation of a grid, so that two generations can be compared without keeping a copy of either. Different generations
+	 * give the same hash with a chance of about 1 in 2^64.
+	 * @param grid The grid to hash.
+	 * @return The hash.
+	 */
+	private static long hash(PackedLifeEngine grid) {
+		long hash = 0;
+		for(int y = 0; y < grid.height; y++) {
+			int start = grid.rowStart(y);
+			for(int w = 0; w < grid.wordsPerRow; w++) {
+				hash = (hash + grid.current[start + w]) * 0x9E3779B97F4A7C15L; // Mix each word in, so that the hash depends on where each cell is.
+				hash ^= hash >>> 29;
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Writes one line of results. Only one worker writes at a time, so lines are never mixed up. If the results can not be written, every worker stops.
+	 * @param line The line to write.
+	 */
+	void report(String line) {
+		synchronized(results) {
+			try {
+				results.write(line);
+			}
+			catch(IOException e) {
+				if(writeError == null) {
+					writeError = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Explores rules from the command line (see above), and prints how many runs ended with each outcome.
+	 * The exit status is 1 if the arguments are wrong, and 2 if a file can not be read or written.
+	 * @param args The rules, the results file, and any options.
+	 */
+	public static void main(String[] args) {
+		if(args.length < 2) {
+			usage("");
+		}
+		Rule[] rules = null;
+		int soups = 4;
+		long seed = 1;
+		int size = 128;
+		int soupSize = 32;
+		double density = 0.5;
+		int generations = 4000;
+		double explode = 0.2;
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			if(!args[0].equals("all")) {
+				List<String> names = new ArrayList<String>();
+				Path file = Paths.get(args[0]);
+				if(!args[0].contains("/") || Files.isRegularFile(file)) { // Rules always contain a slash, but so can file names.
+					for(String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+						if(!line.trim().isEmpty()) {
+							names.add(line);
+						}
+					}
+				}
+				else {
+					for(String name : args[0].split(",")) {
+						names.add(name);
+					}
+				}
+				rules = new Rule[names.size()];
+				for(int i = 0; i < rules.length; i++) {
+					rules[i] = Rule.parse(names.get(i));
+				}
+			}
+			for(int i = 2; i < args.length; i++) {
+				String option = args[i];
+				String value = i + 1 < args.length ? args[++i] : null;
+				if(value == null) {
+					usage(option + " needs a value.");
+				}
+				else if(option.equals("-soups")) {
+					soups = Integer.parseInt(value);
+				}
+				else if(option.equals("-seed")) {
+					seed = Long.parseLong(value);
+				}
+				else if(option.equals("-size")) {
+					size = Integer.parseInt(value);
+				}
+				else if(option.equals("-soup")) {
+					soupSize = Integer.parseInt(value);
+				}
+				else if(option.equals("-density")) {
+					density = Double.parseDouble(value);
+					PackedLifeEngine.densityThreshold(density);
+				}
+				else if(option.equals("-generations")) {
+					generations = Integer.parseInt(value);
+				}
+				else if(option.equals("-explode")) {
+					explode = Double.parseDouble(value);
+				}
+				else if(option.equals("-threads")) {
+					threads = Integer.parseInt(value);
+				}
+				else {
+					usage("Unknown option " + option + ".");
+				}
+			}
+			if(soups < 1 || size < 1 || soupSize < 1 || generations < 0 || threads < 1) {
+				usage("Counts and sizes must be at least 1.");
+			}
+		}
+		catch(IllegalArgumentException e) { // Includes NumberFormatException.
+			usage(e.getMessage());
+		}
+		catch(IOException e) {
+			System.err.println("Could not read the rules: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+			System.exit(2);
+		}
+
+		RuleExplorer explorer = new RuleExplorer(rules, soups, seed, size, soupSize, density, generations, explode);
+		long start = System.nanoTime();
+		try(BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.US_ASCII)) {
+			explorer.run(out, threads);
+		}
+		catch(IOException e) {
+			System.err.println("Could not write the results: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+			System.exit(2);
+		}
+		catch(InterruptedException e) {
+			System.exit(2);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println("runs=" + explorer.ruleCount() * soups);
+		for(int i = 0; i < OUTCOMES.length; i++) {
+			System.out.println(OUTCOMES[i] + "=" + explorer.outcomeCounts.get(i));
+		}
+		System.out.println("generations=" + explorer.generationsComputed.get());
+		System.out.println("seconds=" + String.format("%.3f", seconds));
+		System.out.println("generationsPerSecond=" + String.format("%.1f", explorer.generationsComputed.get() / Math.max(seconds, 1e-9)));
+	}
+
+	/**
+	 * Prints what is wrong with the arguments (if anything) and how to use the explorer, then exits with a status of 1.
+	 * @param problem What is wrong with the arguments, or an empty string.
+	 */
+	private static void usage(String problem) {
+		if(problem != null && !problem.isEmpty()) {
+			System.err.println(problem);
+		}
+		System.err.println("Usage: java visualisingCellularAutomata.RuleExplorer (all | B3/S23,B36/S23,... | rules.txt) results.csv [options]");
+		System.err.println("  -soups N        soups to run under each rule (default 4)");
+		System.err.println("  -seed S         seed of the first soup (default 1)");
+		System.err.println("  -size N         width and height of the grid (default 128)");
+		System.err.println("  -soup N         width and height of the soup (default 32)");
+		System.err.println("  -density D      fraction of the soup that starts alive (default 0.5)");
+		System.err.println("  -generations N  most generations to run for (default 4000)");
+		System.err.println("  -explode F      fraction of the grid alive that counts as exploding (default 0.2)");
+		System.err.println("  -threads N      worker threads (default: one per processor)");
+		System.exit(1);
+	}
+}
@@ -0,0 +1,447 @@
+package visualisingCellularAutomata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The SaveFormat reads and writes saved automata. A save holds the size of the grid, the rules, whether the grid wraps, and the state and age of every live cell.
+ *
+ * Saves are binary, and laid out as follows (numbers are big-endian):
+ * <ul>
+ * <li>The magic number <code>MAGIC</code> ("CASV") and a version byte (<code>VERSION</code>).</li>
+ * <li>A flags byte: bit 0 is set if the grid wraps, and bit 1 is set if the rest of the file (after the header) is compressed with <code>Deflater</code>.</li>
+ * <li>The width and height of the grid, as <code>int</code>s.</li>
+ * <li>The rules in B/S notation, e.g. "B3/S23", as written by <code>DataOutputStream.writeUTF</code>.</li>
+ * <li>Then, for every row from top to bottom: the states of the row, bit-packed exactly as <code>PackedLifeEngine</code> stores them (64 cells per <code>long</code>,
+ * little-endian), followed by the ages of the live cells in the row from left to right. The ages are run-length encoded: each run is its length (as a varint,
+ * i.e. 7 bits per byte, lowest first, with the top bit set on every byte but the last) followed by the age (one unsigned byte). Dead cells have no age.</li>
+ * </ul>
+ * Storing one bit per cell, and nothing at all for the ages of dead cells, makes a save of a mostly empty grid a few hundred times smaller than the old text format,
+ * in which every cell was written out as "state;age,". Compression shrinks the runs of empty words further still.
+ * Keeping each row's ages next to its states means that a save can be read one row at a time, whatever the size of the grid.
+ *
+ * Saves in the old text format can still be loaded (<code>read</code> tells the two apart by the magic number), and <code>main</code> converts them to the new format.
+ * @see visualisingCellularAutomata.LifePanel#saveFile
+ * @see visualisingCellularAutomata.LifePanel#loadFile
+ */
+public final class SaveFormat {
+	/** The first four bytes of every save: "CASV" in ASCII. */
+	static final int MAGIC = 0x43415356;
+	/** The version of the format that this class writes. */
+	static final int VERSION = 1;
+	/** Flag bit: the grid wraps around at its edges. */
+	private static final int FLAG_WRAP = 1;
+	/** Flag bit: everything after the header is compressed. */
+	private static final int FLAG_DEFLATE = 2;
+
+	/** The number of columns in the saved grid. */
+	final int width;
+	/** The number of rows in the saved grid. */
+	final int height;
+	/** The rules stored in the save, or null if it is in the old text format (which does not store them). */
+	final Rule rule;
+	/** Whether the saved grid wraps around at its edges. Always true for the old text format, as wrapping was the default. */
+	final boolean wrap;
+
+	/**
+	 * This constructor records the header of a save that has been read.
+	 * @param width The number of columns in the saved grid.
+	 * @param height The number of rows in the saved grid.
+	 * @param rule The saved rules, or null if they were not saved.
+	 * @param wrap Whether the saved grid wraps.
+	 */
+	private SaveFormat(int width, int height, Rule rule, boolean wrap) {
+		this.width = width;
+		this.height = height;
+		this.rule = rule;
+		this.wrap = wrap;
+	}
+
+	/**
+	 * Writes a grid (its states and ages) to a stream in the binary format.
+	 * @param out The stream to write to. It is not closed, but anything buffered is flushed.
+	 * @param grid The grid to save.
+	 * @param rule The rules to store with it.
+	 * @param wrap Whether the grid wraps around at its edges.
+	 * @param compress If true, everything after the header is compressed with <code>Deflater</code>.
+	 * @throws IOException If the stream can not be written to.
+	 */
+	public static void write(OutputStream out, PackedLifeEngine grid, Rule rule, boolean wrap, boolean compress) throws IOException {
+		DataOutputStream header = new DataOutputStream(out);
+		header.writeInt(MAGIC);
+		header.writeByte(VERSION);
+		header.writeByte((wrap ? FLAG_WRAP : 0) | (compress ? FLAG_DEFLATE : 0));
+		header.writeInt(grid.width);
+		header.writeInt(grid.height);
+		header.writeUTF(rule.toString());
+		header.flush();
+
+		// The stream does not free a Deflater that it was given, so its native memory is freed here rather than whenever it is garbage collected.
+		Deflater zlib = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+		try {
+			DeflaterOutputStream deflater = null;
+			OutputStream body = out;
+			if(compress) {
+				deflater = new DeflaterOutputStream(out, zlib, 1 << 16);
+				body = deflater;
+			}
+			body = new BufferedOutputStream(body, 1 << 16);
+			ByteBuffer row = ByteBuffer.allocate(grid.wordsPerRow * 8).order(ByteOrder.LITTLE_ENDIAN);
+			for(int y = 0; y < grid.height; y++) {
+				int start = grid.rowStart(y);
+				row.clear();
+				row.asLongBuffer().put(grid.current, start, grid.wordsPerRow);
+				body.write(row.array());
+
+				// The ages of the live cells in this row, as runs of equal ages.
+				int runAge = -1;
+				int runLength = 0;
+				for(int w = 0; w < grid.wordsPerRow; w++) {
+					for(long word = grid.current[start + w]; word != 0; word &= word - 1) {
+						int cellAge = grid.ageOf((w << 6) + Long.numberOfTrailingZeros(word), y);
+						if(cellAge != runAge && runLength > 0) {
+							writeRun(body, runLength, runAge);
+							runLength = 0;
+						}
+						runAge = cellAge;
+						runLength++;
+					}
+				}
+				if(runLength > 0) {
+					writeRun(body, runLength, runAge);
+				}
+			}
+			body.flush();
+			if(deflater != null) {
+				deflater.finish(); // Writes out the end of the compressed data, without closing the stream underneath.
+				deflater.flush();
+			}
+		}
+		finally {
+			if(zlib != null) {
+				zlib.end();
+			}
+		}
+	}
+
+	/**
+	 * Saves a grid to a file (compressed), so that the file is always either the old save or the whole new one, even if the program stops part of the way through.
+	 * The save is written to a temporary file next to the target, forced onto the disk, and then renamed over the target in one step.
+	 * The temporary file is created like any other file (so its permissions follow the umask, rather than being private to the owner as with <code>Files.createTempFile</code>),
+	 * and if the target already exists, its permissions are copied across, so that the rename leaves them as they were.
+	 * @param target The file to save to.
+	 * @param grid The grid to save.
+	 * @param rule The rules to store with it.
+	 * @param wrap Whether the grid wraps around at its edges.
+	 * @return The size of the save in bytes.
+	 * @throws IOException If the file can not be written. The target is left as it was.
+	 */
+	public static long writeFile(Path target, PackedLifeEngine grid, Rule rule, boolean wrap) throws IOException {
+		Path directory = target.toAbsolutePath().getParent();
+		Path temporary;
+		FileChannel channel;
+		while(true) { // Another save to the same target could have picked the same name, so try again with a new one.
+			temporary = directory.resolve("." + target.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+			try {
+				channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+				break;
+			}
+			catch(FileAlreadyExistsException e) {
+			}
+		}
+		try {
+			long size;
+			try {
+				PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+				if(targetView != null && Files.exists(target)) {
+					Files.getFileAttributeView(temporary, PosixFileAttributeView.class).setPermissions(targetView.readAttributes().permissions());
+				}
+				write(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), grid, rule, wrap, true);
+				channel.force(true);
+				size = channel.size();
+			}
+			finally {
+				channel.close();
+			}
+			try {
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch(AtomicMoveNotSupportedException e) {
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING); // Some file systems can not rename atomically. This is the next best thing.
+			}
+			return size;
+		}
+		finally {
+			Files.deleteIfExists(temporary); // Only still there if the save failed.
+		}
+	}
+
+	/**
+	 * Reads a save into a grid, replacing everything that was in it. Both the binary format and the old text format are accepted.
+	 * If the save is larger than the grid, the cells outside of the grid are skipped. If it is smaller, the rest of the grid is left empty.
+	 * @param in The stream to read from. It is read to the end of the save, but not closed.
+	 * @param grid The grid to read into.
+	 * @return The header of the save, including its rules (if it has any).
+	 * @throws IOException If the stream can not be read, or the save is damaged or from a newer version of the program.
+	 */
+	public static SaveFormat read(InputStream in, PackedLifeEngine grid) throws IOException {
+		if(!in.markSupported()) {
+			in = new BufferedInputStream(in);
+		}
+		in.mark(4);
+		DataInputStream header = new DataInputStream(in);
+		int magic;
+		try {
+			magic = header.readInt();
+		}
+		catch(EOFException e) {
+			magic = 0; // Too short to be a binary save. An empty text save is an empty grid.
+		}
+		if(magic != MAGIC) {
+			in.reset();
+			return readText(in, grid);
+		}
+		int version = header.readUnsignedByte();
+		if(version > VERSION) {
+			throw new IOException("This save was made by a newer version of the program (format version " + version + ").");
+		}
+		int flags = header.readUnsignedByte();
+		int width = header.readInt();
+		int height = header.readInt();
+		if(width <= 0 || height <= 0) {
+			throw new IOException("The save is damaged: its grid is " + width + " x " + height + ".");
+		}
+		Rule rule;
+		try {
+			rule = Rule.parse(header.readUTF());
+		}
+		catch(IllegalArgumentException e) {
+			throw new IOException("The save is damaged: " + e.getMessage(), e);
+		}
+
+		// As with the Deflater in write, the stream does not free the Inflater, so it is freed here.
+		Inflater zlib = (flags & FLAG_DEFLATE) != 0 ? new Inflater() : null;
+		try {
+			InputStream body = in;
+			if(zlib != null) {
+				body = new InflaterInputStream(in, zlib, 1 << 16);
+			}
+			DataInputStream cells = new DataInputStream(new BufferedInputStream(body, 1 << 16));
+			grid.clear();
+			int wordsPerRow = (width + 63) >>> 6;
+			byte[] rowBytes = new byte[wordsPerRow * 8];
+			long[] words = new long[wordsPerRow];
+			for(int y = 0; y < height; y++) {
+				cells.readFully(rowBytes);
+				ByteBuffer.wrap(rowBytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(words);
+				boolean inGrid = y < grid.height;
+				if(inGrid) {
+					for(int w = 0; w < Math.min(wordsPerRow, grid.wordsPerRow); w++) {
+						grid.setWord(y, w, words[w]);
+					}
+				}
+
+				// Give the live cells of this row their ages, one run at a time. Cells outside of the grid still use up their part of a run.
+				int runLeft = 0;
+				int runAge = 0;
+				for(int w = 0; w < wordsPerRow; w++) {
+					for(long word = words[w]; word != 0; word &= word - 1) {
+						if(runLeft == 0) {
+							runLeft = readVarint(cells);
+							runAge = cells.readUnsignedByte();
+							if(runLeft <= 0) {
+								throw new IOException("The save is damaged: a run of ages is empty.");
+							}
+						}
+						runLeft--;
+						int x = (w << 6) + Long.numberOfTrailingZeros(word);
+						if(inGrid && x < grid.width) {
+							grid.setAgeOf(x, y, runAge);
+						}
+					}
+				}
+				if(runLeft != 0) {
+					throw new IOException("The save is damaged: a run of ages is longer than its row.");
+				}
+			}
+			return new SaveFormat(width, height, rule, (flags & FLAG_WRAP) != 0);
+		}
+		finally {
+			if(zlib != null) {
+				zlib.end();
+			}
+		}
+	}
+
+	/**
+	 * Reads just the header of a save: the size of its grid, and its rules and grid wrapping (if it has them), so that a grid of the right size can be made for it.
+	 * The old text format has no header, so the whole file is read through to find the number of columns (lines) and rows (cells per line).
+	 * @param file The save to read.
+	 * @return The header of the save.
+	 * @throws IOException If the file can not be read, or the header is damaged or from a newer version of the program.
+	 */
+	public static SaveFormat readHeader(Path file) throws IOException {
+		try(InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			in.mark(4);
+			DataInputStream header = new DataInputStream(in);
+			int magic;
+			try {
+				magic = header.readInt();
+			}
+			catch(EOFException e) {
+				magic = 0;
+			}
+			if(magic != MAGIC) {
+				in.reset();
+				BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+				String line;
+				int width = 0;
+				int height = 1;
+				while((line = reader.readLine()) != null) {
+					width++;
+					height = Math.max(height, line.split(",").length);
+				}
+				return new SaveFormat(Math.max(width, 1), height, null, true);
+			}
+			int version = header.readUnsignedByte();
+			if(version > VERSION) {
+				throw new IOException("This save was made by a newer version of the program (format version " + version + ").");
+			}
+			int flags = header.readUnsignedByte();
+			int width = header.readInt();
+			int height = header.readInt();
+			if(width <= 0 || height <= 0) {
+				throw new IOException("The save is damaged: its grid is " + width + " x " + height + ".");
+			}
+			try {
+				return new SaveFormat(width, height, Rule.parse(header.readUTF()), (flags & FLAG_WRAP) != 0);
+			}
+			catch(IllegalArgumentException e) {
+				throw new IOException("The save is damaged: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * Reads a save in the old text format into a grid, replacing everything that was in it.
+	 * In this format, each line holds one column of the grid (not one row), and each cell is written as "state;age", separated by commas.
+	 * @param in The stream to read from.
+	 * @param grid The grid to read into. Cells outside of it are skipped.
+	 * @return The size of the save. The old format does not store the rules, and always wraps.
+	 * @throws IOException If the stream can not be read, or a cell is not written as two numbers.
+	 */
+	private static SaveFormat readText(InputStream in, PackedLifeEngine grid) throws IOException {
+		grid.clear();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+		String line;
+		int x = 0;
+		int height = 0;
+		while((line = reader.readLine()) != null) {
+			String[] cells = line.split(","); // Cells are separated by commas.
+			height = Math.max(height, cells.length);
+			for(int y = 0; y < cells.length && x < grid.width && y < grid.height; y++) {
+				String cell = cells[y];
+				int split = cell.indexOf(';'); // State and age are separated by a semicolon, e.g. state = 1, age = 3 is written "1;3".
+				try {
+					if(Integer.parseInt(cell.substring(0, split).trim()) != 0) {
+						grid.set(x, y, 1);
+						grid.setAgeOf(x, y, Integer.parseInt(cell.substring(split + 1).trim()));
+					}
+				}
+				catch(RuntimeException e) { // A missing semicolon, or something other than a number.
+					throw new IOException("The save is damaged: cell (" + x + ", " + y + ") is \"" + cell + "\".", e);
+				}
+			}
+			x++;
+		}
+		return new SaveFormat(Math.max(x, 1), Math.max(height, 1), null, true);
+	}
+
+	/**
+	 * Writes a run of ages: its length as a varint, then the age.
+	 * @param out The stream to write to.
+	 * @param length The number of cells in the run (at least 1).
+	 * @param cellAge The age of every cell in the run (0-255).
+	 * @throws IOException If the stream can not be written to.
+	 */
+	private static void writeRun(OutputStream out, int length, int cellAge) throws IOException {
+		while(length >= 0x80) {
+			out.write(length & 0x7F | 0x80);
+			length >>>= 7;
+		}
+		out.write(length);
+		out.write(cellAge);
+	}
+
+	/**
+	 * Reads a varint (7 bits per byte, lowest first, with the top bit set on every byte but the last).
+	 * @param in The stream to read from.
+	 * @return The number that was read.
+	 * @throws IOException If the stream ends early, or the number is too large for an <code>int</code>.
+	 */
+	private static int readVarint(DataInputStream in) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if(b < 0x80) {
+				return value;
+			}
+		}
+		throw new IOException("The save is damaged: a run of ages is too long.");
+	}
+
+	/**
+	 * Converts saves in the old text format into the binary format. The rules are saved as Conway's Game of Life (B3/S23), as the old saves did not store them.
+	 * Usage: <code>java visualisingCellularAutomata.SaveFormat old_save.txt new_save.cas [...]</code>, with any number of pairs of files.
+	 * @param args Pairs of file names: the text save to read, then the binary save to write.
+	 * @throws IOException If a file can not be read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length == 0 || args.length % 2 != 0) {
+			System.err.println("Usage: java visualisingCellularAutomata.SaveFormat old_save.txt new_save.cas [old_save.txt new_save.cas ...]");
+			System.exit(1);
+		}
+		for(int i = 0; i < args.length; i += 2) {
+			// The size of the grid is not stored in the old format, so count the lines (columns) and cells per line (rows) first.
+			SaveFormat size = readHeader(Paths.get(args[i]));
+			int width = size.width;
+			int height = size.height;
+			PackedLifeEngine grid = new PackedLifeEngine(width, height);
+			try(InputStream in = new FileInputStream(args[i])) {
+				readText(in, grid);
+			}
+			try(OutputStream out = new BufferedOutputStream(new FileOutputStream(args[i + 1]))) {
+				write(out, grid, new Rule("3", "23"), true, true);
+			}
+			System.out.println(args[i] + " -> " + args[i + 1] + " (" + width + " x " + height + ")");
+		}
+	}
+}
@@ -0,0 +1,474 @@
+package visualisingCellularAutomata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * A Simulation is one automaton: its grid (or unbounded plane), its rules, whether it wraps, and how many generations it has been through.
+ * It holds no static state and has nothing to do with Swing, so any number of simulations (with different rules and sizes) can run side by side in one program,
+ * each on whichever thread is stepping it. <code>LifePanel</code> shows one simulation and drives it from its own thread; other programs can drive simulations however they like.
+ *
+ * A simulation is not thread-safe: it must only be used by one thread at a time. (<code>LifePanel</code> makes sure of this by doing everything to its simulation
+ * on the simulation thread, through <code>Command</code>s.) Only <code>isWrapping</code> may be called from any thread, so that a UI can show it.
+ * @see visualisingCellularAutomata.LifePanel
+ */
+public class Simulation {
+	/** The density of the soups made by <code>randomize()</code>. */
+	static final double DEFAULT_DENSITY = 0.3;
+	/** The number of columns in the grid. */
+	final int width;
+	/** The number of rows in the grid. */
+	final int height;
+	/** Stores the grid of cells (bit-packed states and the age of each cell). While the plane is unbounded, this is the part of the plane that is shown (see <code>refreshGrid</code>).
+	 * @see visualisingCellularAutomata.PackedLifeEngine */
+	PackedLifeEngine grid;
+	/** The unbounded plane, used instead of <code>grid</code> while the plane is unbounded. Null otherwise.
+	 * @see visualisingCellularAutomata.SparseLifeEngine */
+	SparseLifeEngine sparse;
+	/** The engine that is edited and stepped: either <code>grid</code> itself, or <code>sparse</code> if the plane is unbounded. */
+	LifeEngine engine;
+	/** Fast-forwards the grid by huge numbers of generations at once. Created the first time that it is needed, and kept so that its remembered results can be reused.
+	 * @see visualisingCellularAutomata.HashLifeEngine */
+	private HashLifeEngine hashLife;
+	/** The birth and survival rules of the automaton. Default is Conway's Game of Life. */
+	Rule rule = new Rule("3", "23");
+	/** Whether the grid wraps around at its edges. Volatile so that a UI can show it while the simulation runs. */
+	private volatile boolean wrap = true;
+	/** Whether generations are computed on every processor at once. The results are the same either way. */
+	private boolean parallel = false;
+	/** Whether the ages of cells are kept up to date. They are only needed to show the heatmap (and to save them), so leaving them out saves some work. */
+	private boolean trackAges = true;
+	/** The number of generations computed since the simulation was created, whichever engine computed them. Fast-forwards are not counted. This may overflow. */
+	int generationCount = 0;
+
+	/**
+	 * This constructor creates a simulation of an empty grid (all cells dead) with Conway's Game of Life rules, wrapping around at its edges.
+	 * @param width The number of columns in the grid.
+	 * @param height The number of rows in the grid.
+	 */
+	public Simulation(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.grid = new PackedLifeEngine(width, height);
+		this.engine = grid;
+	}
+
+	/**
+	 * Creates a simulation with a grid the same size as a save, and loads the save into it (see <code>load</code>).
+	 * @param file The save to load.
+	 * @return The simulation.
+	 * @throws IOException If the file can not be read, or the save is damaged.
+	 */
+	public static Simulation open(Path file) throws IOException {
+		SaveFormat header = SaveFormat.readHeader(file);
+		Simulation simulation = new Simulation(header.width, header.height);
+		simulation.load(file);
+		return simulation;
+	}
+
+	/**
+	 * @return The rules of the automaton.
+	 */
+	public Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * Changes the rules. The new rules are used from the next generation onwards.
+	 * @param rule The new rules.
+	 */
+	public void setRule(Rule rule) {
+		this.rule = rule;
+	}
+
+	/**
+	 * @return True if the grid wraps around at its edges. This may be called from any thread.
+	 */
+	public boolean isWrapping() {
+		return wrap;
+	}
+
+	/**
+	 * Turns grid wrapping on or off. This has no effect on the unbounded plane, which has no edges.
+	 * @param wrap True to wrap around at the edges of the grid.
+	 */
+	public void setWrapping(boolean wrap) {
+		this.wrap = wrap;
+	}
+
+	/**
+	 * Chooses whether generations are computed on every processor at once (for large grids), or on the calling thread.
+	 * When many simulations run side by side, each is better off on one thread.
+	 * @param parallel True to compute generations in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Turns age tracking on or off, on the grid and the unbounded plane alike. While it is off, ages are not kept up to date, and are reported as 0.
+	 * When it is turned back on, every cell that is alive at that point starts with an age of 0.
+	 * @param trackAges True to track ages.
+	 */
+	public void setAgeTracking(boolean trackAges) {
+		this.trackAges = trackAges;
+		grid.setAgeTracking(trackAges);
+		if(sparse != null) {
+			sparse.setAgeTracking(trackAges);
+		}
+	}
+
+	/**
+	 * @return True if the automaton is on the unbounded plane, rather than the bounded grid.
+	 */
+	public boolean isUnbounded() {
+		return engine == sparse;
+	}
+
+	/**
+	 * Moves the automaton between the bounded grid and the unbounded plane.
+	 * The cells in the grid are copied onto the plane (with the grid at its top left corner), and when going back, the part of the plane that the grid covers is copied back.
+	 * Anything outside of the grid is lost at that point.
+	 * @param unbounded True to move onto the unbounded plane, false to move back onto the grid.
+	 */
+	public void setUnbounded(boolean unbounded) {
+		if(unbounded == isUnbounded()) {
+			return;
+		}
+		if(unbounded) {
+			sparse = new SparseLifeEngine();
+			sparse.setAgeTracking(trackAges);
+			sparse.load(grid);
+			engine = sparse;
+		}
+		else {
+			sparse.copyTo(grid);
+			engine = grid;
+			sparse = null; // Free the plane.
+		}
+	}
+
+	/**
+	 * Creates the next generation.
+	 * First, check live cells against survival rules - if one applies, then the live cell will stay alive.
+	 * Second, check dead cells against birth rules - if one applies, then the dead cell becomes alive.
+	 * If no rules apply, then a live cell dies and a dead cell remains dead.
+	 * This forms all possible rulesets of lifelike cellular automata.
+	 * The rules are applied (and ages are updated) 64 cells at a time by <code>PackedLifeEngine</code>, or by <code>SparseLifeEngine</code> if the plane is unbounded.
+	 * Rules with B0 would bring the whole of an unbounded plane to life, so the automaton stands still instead until the rules are changed or the plane is bounded again
+	 * (see <code>canStep</code>).
+	 * @return True if a generation was created, or false if the automaton can not move.
+	 * @see visualisingCellularAutomata.PackedLifeEngine#step
+	 * @see visualisingCellularAutomata.SparseLifeEngine#step
+	 */
+	public boolean step() {
+		if(!canStep()) {
+			return false;
+		}
+		grid.setParallel(parallel);
+		grid.setAgeTracking(trackAges);
+		engine.step(rule, wrap); // The new generation is swapped in, rather than copied.
+		generationCount++;
+		return true;
+	}
+
+	/**
+	 * Creates the next few generations, one after another.
+	 * @param generations The number of generations to create.
+	 * @return The number of generations created, which is fewer than asked for only if the automaton can not move (see <code>canStep</code>).
+	 */
+	public long step(long generations) {
+		for(long i = 0; i < generations; i++) {
+			if(!step()) {
+				return i;
+			}
+		}
+		return generations;
+	}
+
+	/**
+	 * Tells whether <code>step</code> can create a new generation. It can not if the plane is unbounded and the rules contain B0, which would bring the whole plane to life.
+	 * @return True if the automaton can move.
+	 */
+	public boolean canStep() {
+		return !(engine == sparse && rule.nextState(0, 0) == 1);
+	}
+
+	/**
+	 * Jumps forward by 2^<code>exponent</code> generations at once, using HashLife.
+	 * HashLife has no edges, so a wrapping grid (a torus) can not be fast-forwarded: the result would be a state that stepping never reaches. Instead, the grid must not wrap,
+	 * in which case it is treated as a window onto an unbounded plane for the jump, and any cells that leave the grid are lost when the result is copied back.
+	 * All ages are reset, since HashLife does not track them.
+	 * If the plane is unbounded, the whole plane is fast-forwarded (not just the part of it that the grid covers), and nothing is lost.
+	 * @param exponent The size of the jump, as a power of two.
+	 * @throws IllegalArgumentException If the grid wraps, the rules contain B0 (which HashLife can not compute), or the exponent is out of range. The automaton is left as it was.
+	 * @see visualisingCellularAutomata.HashLifeEngine
+	 */
+	public void fastForward(int exponent) {
+		if(engine == grid && wrap) {
+			throw new IllegalArgumentException("Fast-forward does not support grid wrapping. Disable wrapping, or move onto the unbounded plane.");
+		}
+		if(hashLife == null) {
+			hashLife = new HashLifeEngine(rule);
+		}
+		else {
+			hashLife.setRule(rule);
+		}
+		if(engine == sparse) {
+			hashLife.load(sparse);
+			hashLife.step(exponent);
+			hashLife.copyTo(sparse);
+		}
+		else {
+			hashLife.load(grid);
+			hashLife.step(exponent);
+			hashLife.copyTo(grid);
+		}
+	}
+
+	/**
+	 * Kills every cell. The ages of all cells are also reset.
+	 */
+	public void clear() {
+		engine.clear();
+	}
+
+	/**
+	 * Replaces the automaton with a random state, in which about 30% of the cells of the grid are alive, all with an age of 0. A new seed is used each time.
+	 * A value of 0.3 was chosen, as 0.5 ended up with patterns that were far too dense.
+	 * @return The seed that was used, so that the same soup can be made again with <code>randomize(seed, DEFAULT_DENSITY)</code>.
+	 */
+	public long randomize() {
+		long seed = System.nanoTime();
+		randomize(seed, DEFAULT_DENSITY);
+		return seed;
+	}
+
+	/**
+	 * Replaces the automaton with a random soup that covers the grid. The same seed and density always give the same soup, so a run can be repeated exactly from its seed.
+	 * @param seed The seed of the soup.
+	 * @param density The chance of each cell being alive (0-1).
+	 * @throws IllegalArgumentException If the density is not between 0 and 1.
+	 */
+	public void randomize(long seed, double density) {
+		PackedLifeEngine.densityThreshold(density); // Checked before anything is cleared.
+		clear();
+		soup(0, 0, width, height, seed, density);
+	}
+
+	/**
+	 * Fills a rectangle of the grid with a random soup, in which each cell is alive with a chance of <code>density</code>. Every cell in the rectangle is replaced, and the
+	 * rest of the automaton is not changed. Cells that come to life have an age of 0. The soup only depends on its seed, density and size, not on where it is put.
+	 * @param x The column of the left edge of the soup.
+	 * @param y The row of the top edge of the soup.
+	 * @param soupWidth The width of the soup.
+	 * @param soupHeight The height of the soup.
+	 * @param seed The seed of the soup.
+	 * @param density The chance of each cell being alive (0-1). It is rounded to a multiple of 1/65536.
+	 * @throws IllegalArgumentException If the density is not between 0 and 1.
+	 * @throws ArrayIndexOutOfBoundsException If the plane is bounded and the soup does not lie within the grid.
+	 * @see visualisingCellularAutomata.PackedLifeEngine#randomize
+	 */
+	public void soup(int x, int y, int soupWidth, int soupHeight, long seed, double density) {
+		SplittableRandom random = new SplittableRandom(seed);
+		if(engine == grid) {
+			grid.randomize(x, y, soupWidth, soupHeight, density, random);
+			return;
+		}
+		int threshold = PackedLifeEngine.densityThreshold(density);
+		if(soupWidth <= 0 || soupHeight <= 0) {
+			return;
+		}
+		// The unbounded plane has no words to fill, so the same rows of bits are set one cell at a time.
+		long[] chunks = new long[(soupWidth + 63) >>> 6];
+		for(int j = 0; j < soupHeight; j++) {
+			PackedLifeEngine.randomRow(random, threshold, chunks, soupWidth);
+			for(int i = 0; i < soupWidth; i++) {
+				engine.set(x + i, y + j, (int) (chunks[i >>> 6] >>> i) & 1);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of live cells in the automaton (on the whole plane, if it is unbounded).
+	 */
+	public long getPopulation() {
+		return engine == sparse ? sparse.getPopulation() : grid.getPopulation();
+	}
+
+	/**
+	 * @return The number of generations computed since the simulation was created. Fast-forwards are not counted.
+	 */
+	public int getGenerationCount() {
+		return generationCount;
+	}
+
+	/**
+	 * Returns the state of a cell.
+	 * @param x The column of the cell.
+	 * @param y The row of the cell.
+	 * @return 1 if the cell is alive, 0 if it is dead.
+	 * @throws ArrayIndexOutOfBoundsException If the plane is bounded and (x, y) lies outside of the grid.
+	 */
+	public int get(int x, int y) {
+		return engine.get(x, y);
+	}
+
+	/**
+	 * Sets the state of a cell. The age of a cell that was already alive is not changed.
+	 * @param x The column of the cell.
+	 * @param y The row of the cell.
+	 * @param state The new state of the cell. Any non-zero value makes the cell alive.
+	 * @throws ArrayIndexOutOfBoundsException If the plane is bounded and (x, y) lies outside of the grid.
+	 */
+	public void set(int x, int y, int state) {
+		engine.set(x, y, state);
+	}
+
+	/**
+	 * Brings the grid fully up to date with the unbounded plane (if the plane is unbounded), so that it can be read as the automaton.
+	 */
+	void syncGrid() {
+		if(engine == sparse) {
+			sparse.copyTo(grid);
+		}
+	}
+
+	/**
+	 * Brings the grid up to date with the unbounded plane (if the plane is unbounded) for display. Only the chunks of the plane that are occupied are copied, which is quicker than
+	 * <code>syncGrid</code>, but the grid's births are not brought up to date.
+	 */
+	void refreshGrid() {
+		if(engine == sparse) {
+			sparse.refresh(grid);
+		}
+	}
+
+	/**
+	 * Takes a copy of the grid (the cells and their ages), which stays the same however the simulation changes afterwards, e.g. to save it on another thread.
+	 * If the plane is unbounded, only the part of it that the grid covers is copied.
+	 * @return The copy.
+	 * @see visualisingCellularAutomata.PackedLifeEngine#snapshot
+	 */
+	public PackedLifeEngine snapshot() {
+		syncGrid();
+		return grid.snapshot();
+	}
+
+	/**
+	 * Replaces the grid with another of the same size, e.g. one that a save has been loaded into, along with the rules and grid wrapping of the save (if it has them).
+	 * If the plane is unbounded, the plane is replaced with the new grid.
+	 * @param loaded The new grid. It is used as it is, not copied.
+	 * @param save The header of the save that was loaded into the grid, or null to keep the current rules and grid wrapping.
+	 * @throws IllegalArgumentException If the new grid is not the same size as the old one.
+	 */
+	public void replace(PackedLifeEngine loaded, SaveFormat save) {
+		if(loaded.width != width || loaded.height != height) {
+			throw new IllegalArgumentException("The grid is " + loaded.width + " x " + loaded.height + ", but the simulation is " + width + " x " + height + ".");
+		}
+		grid = loaded;
+		if(save != null && save.rule != null) {
+			rule = save.rule;
+			wrap = save.wrap;
+		}
+		if(engine == sparse) {
+			sparse.load(grid);
+		}
+		else {
+			engine = grid;
+		}
+	}
+
+	/**
+	 * Saves the automaton (with its rules and grid wrapping) to a file, replacing the file in one step once the save is complete.
+	 * This is done on the calling thread. If the plane is unbounded, only the part of it that the grid covers is saved.
+	 * @param file The file to save to.
+	 * @return The size of the save in bytes.
+	 * @throws IOException If the file can not be written. It is left as it was.
+	 * @see visualisingCellularAutomata.SaveFormat#writeFile
+	 */
+	public long save(Path file) throws IOException {
+		syncGrid();
+		return SaveFormat.writeFile(file, grid, rule, wrap);
+	}
+
+	/**
+	 * Loads a save (in either format) into a new grid, and replaces the automaton with it (see <code>replace</code>). If the save can not be read, the automaton is left as it was.
+	 * This is done on the calling thread.
+	 * @param file The save to load.
+	 * @return The header of the save.
+	 * @throws IOException If the file can not be read, or the save is damaged.
+	 */
+	public SaveFormat load(Path file) throws IOException {
+		PackedLifeEngine loaded = new PackedLifeEngine(width, height);
+		SaveFormat save;
+		try(InputStream in = Files.newInputStream(file)) {
+			save = SaveFormat.read(in, loaded);
+		}
+		replace(loaded, save);
+		return save;
+	}
+
+	/**
+	 * Reads a pattern (RLE or Life 1.06) and stamps it onto the automaton, leaving the rest of the automaton as it is. If the pattern gives its rules, they replace the current ones.
+	 * @param in The channel to read the pattern from. It is not closed.
+	 * @param centreX The column to centre the pattern on. Life 1.06 patterns do not give their size, so their cell (0, 0) is put here instead.
+	 * @param centreY The row to centre the pattern on.
+	 * @return The number of live cells that were stamped.
+	 * @throws IOException If the channel can not be read, or the pattern is damaged.
+	 * @see visualisingCellularAutomata.PatternFormat
+	 */
+	public long importPattern(ReadableByteChannel in, int centreX, int centreY) throws IOException {
+		PatternFormat pattern = PatternFormat.open(in);
+		long live = pattern.stamp(engine, centreX - pattern.width / 2, centreY - pattern.height / 2);
+		if(pattern.rule != null) {
+			rule = pattern.rule;
+		}
+		return live;
+	}
+
+	/**
+	 * Stamps the live cells of another plane onto the automaton (e.g. a pattern that has been read into it), leaving the rest of the automaton as it is.
+	 * If the plane is bounded, cells that fall outside of the grid are skipped.
+	 * @param cells The cells to stamp.
+	 * @param x The column of the automaton to put the plane's cell (0, 0) at.
+	 * @param y The row of the automaton to put the plane's cell (0, 0) at.
+	 * @return The number of live cells that were stamped.
+	 */
+	public long paste(SparseLifeEngine cells, int x, int y) {
+		long minX = engine == grid ? 0 : Integer.MIN_VALUE;
+		long minY = engine == grid ? 0 : Integer.MIN_VALUE;
+		long maxX = engine == grid ? width - 1 : Integer.MAX_VALUE;
+		long maxY = engine == grid ? height - 1 : Integer.MAX_VALUE;
+		long live = 0;
+		for(SparseLifeEngine.Chunk chunk : cells.occupiedChunks()) {
+			for(int row = 0; row < SparseLifeEngine.CHUNK_SIZE; row++) {
+				long cellY = (long) y + ((long) chunk.cy << SparseLifeEngine.CHUNK_SHIFT) + row;
+				for(long bits = chunk.rows[row]; bits != 0 && cellY >= minY && cellY <= maxY; bits &= bits - 1) {
+					long cellX = (long) x + ((long) chunk.cx << SparseLifeEngine.CHUNK_SHIFT) + Long.numberOfTrailingZeros(bits);
+					if(cellX >= minX && cellX <= maxX) {
+						engine.set((int) cellX, (int) cellY, 1);
+						live++;
+					}
+				}
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * Writes the live cells (with the rules) as an RLE pattern. If the plane is unbounded, only the part of it that the grid covers is written.
+	 * @param out The channel to write to. It is not closed.
+	 * @throws IOException If the channel can not be written to.
+	 * @see visualisingCellularAutomata.PatternFormat#writeRle
+	 */
+	public void exportRle(WritableByteChannel out) throws IOException {
+		syncGrid();
+		PatternFormat.writeRle(out, grid, rule);
+	}
+}
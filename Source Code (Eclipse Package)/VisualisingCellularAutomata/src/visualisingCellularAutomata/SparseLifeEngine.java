@@ -0,0 +1,646 @@
+package visualisingCellularAutomata;
+
+import java.util.Arrays;
+
+/**
+ * The SparseLifeEngine simulates an unbounded plane, so patterns such as gliders and spaceships can fly forever instead of wrapping around or being lost at an edge.
+ *
+ * The plane is divided into chunks of 64x64 cells, and only chunks that contain live cells are stored. Each row of a chunk is a single <code>long</code> word,
+ * laid out in the same way as a word of <code>PackedLifeEngine</code>, and each generation is computed 64 cells at a time with the same full adders.
+ * Chunks are kept in a hash map keyed by their chunk coordinates packed into a single <code>long</code>, using open addressing on primitive arrays,
+ * so looking up a chunk does not box its key or allocate anything.
+ *
+ * Chunks are created when a pattern grows into them, and freed once they have been empty for a whole generation, so memory use follows the live population
+ * rather than the area that the pattern has covered. As with the tiles of <code>PackedLifeEngine</code>, only chunks that changed in the last generation
+ * (and the chunks around them) are computed.
+ *
+ * Ages are kept in the same way as in <code>PackedLifeEngine</code>: each chunk remembers the generation that each of its cells was born in, so a generation
+ * only writes to the cells that are born in it, and chunks that are skipped cost nothing. Age tracking can be turned off in the same way, too.
+ *
+ * Each chunk is aligned with the words of a <code>PackedLifeEngine</code> whose top left corner is at (0, 0), so <code>load</code>, <code>copyTo</code> and <code>refresh</code>
+ * move whole words between the two. Rules with B0 are not supported, because they would make the whole infinite plane come alive.
+ * @see visualisingCellularAutomata.PackedLifeEngine
+ */
+public class SparseLifeEngine implements LifeEngine {
+	/** Chunks are (1 &lt;&lt; CHUNK_SHIFT) = 64 cells wide and tall, so that each row of a chunk is exactly one word. */
+	static final int CHUNK_SHIFT = 6;
+	/** The number of cells along each side of a chunk. */
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+	/**
+	 * A 64x64 square of cells. Bit x of <code>rows[y]</code> holds the state of the cell at (cx * 64 + x, cy * 64 + y).
+	 */
+	static final class Chunk {
+		/** The x-coordinate of the chunk, in chunks. */
+		final int cx;
+		/** The y-coordinate of the chunk, in chunks. */
+		final int cy;
+		/** The current generation of the chunk. */
+		long[] rows = new long[CHUNK_SIZE];
+		/** The previous generation of the chunk. This is overwritten by the next generation, and then the two are swapped. */
+		long[] nextRows = new long[CHUNK_SIZE];
+		/** The generation that each cell was born in, in row-major order, or null if no births have been recorded in the chunk. 
+		 * Only meaningful for live cells. Use <code>ageOf</code> to read a cell's age. */
+		int[] births;
+		/** Whether the chunk changed in the last generation, or was edited since. */
+		boolean changed = true;
+		/** Whether the chunk contains any live cells. */
+		boolean occupied = false;
+		/** The generation that this chunk was last added to the list of chunks to compute, so that it is never added twice. */
+		long activeGeneration = -1;
+
+		/**
+		 * Creates an empty chunk.
+		 * @param cx The x-coordinate of the chunk, in chunks.
+		 * @param cy The y-coordinate of the chunk, in chunks.
+		 */
+		Chunk(int cx, int cy) {
+			this.cx = cx;
+			this.cy = cy;
+		}
+	}
+
+	/** The keys of the chunk map (see <code>key</code>). Only meaningful where <code>chunks</code> is not null. */
+	private long[] keys;
+	/** The chunks in the map. Null entries are empty slots. The length is always a power of two. */
+	private Chunk[] chunks;
+	/** The number of chunks in the map. */
+	private int count;
+
+	/** The rule that the last generation was computed with. If the rule changes, every chunk has to be computed again. */
+	private Rule lastRule;
+	/** The number of generations computed so far, used to mark the chunks that are being computed, and to work out ages from births.
+	 * Births are stored as ints, and differences between them are taken with int arithmetic, so they may safely overflow. */
+	private long generation = 0;
+	/** Ages are only known from this generation onwards: no age can be more than (generation - ageEpoch). This is moved forward when age tracking is turned back on. */
+	private int ageEpoch = -255;
+	/** If true, births are recorded, so ages are known. If false, ages are not kept up to date, and are reported as 0. */
+	private boolean ageTracking = true;
+	/** The chunks to compute in the generation that is being computed. Only used inside <code>step</code>. */
+	private Chunk[] active = new Chunk[64];
+	/** The number of entries in <code>active</code>. */
+	private int activeCount;
+	/** The keys of the chunks whose cells were last copied into a grid by <code>load</code>, <code>copyTo</code> or <code>refresh</code>. */
+	private long[] shownKeys = new long[64];
+	/** The number of entries in <code>shownKeys</code>. */
+	private int shownCount = 0;
+
+	/** The words to the left of each row of the chunk being computed, including the rows above and below it. Only bit 63 is used. */
+	private final long[] westColumn = new long[CHUNK_SIZE + 2];
+	/** The rows of the chunk being computed, with the row above it and the row below it. */
+	private final long[] middleColumn = new long[CHUNK_SIZE + 2];
+	/** The words to the right of each row of the chunk being computed, including the rows above and below it. Only bit 0 is used. */
+	private final long[] eastColumn = new long[CHUNK_SIZE + 2];
+
+	/**
+	 * Creates an empty plane.
+	 */
+	public SparseLifeEngine() {
+		clear();
+	}
+
+	/**
+	 * Returns the state of a cell in the current generation.
+	 * @param x The x-coordinate (column) of the cell, which may be negative.
+	 * @param y The y-coordinate (row) of the cell, which may be negative.
+	 * @return 1 if the cell is alive, 0 if it is dead.
+	 */
+	public int get(int x, int y) {
+		Chunk chunk = find(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+		if(chunk == null) {
+			return 0;
+		}
+		return (int) (chunk.rows[y & (CHUNK_SIZE - 1)] >>> x) & 1; // Long shift distances are taken modulo 64, which is the column within the chunk.
+	}
+
+	/**
+	 * Returns the number of generations that a cell has survived for.
+	 * @param x The x-coordinate (column) of the cell, which may be negative.
+	 * @param y The y-coordinate (row) of the cell, which may be negative.
+	 * @return The age of the cell (0-255). Always 0 for a dead cell.
+	 */
+	public int getAge(int x, int y) {
+		Chunk chunk = find(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+		if(chunk == null) {
+			return 0;
+		}
+		return get(x, y) * ageOf(chunk, (y & (CHUNK_SIZE - 1)) << CHUNK_SHIFT | (x & (CHUNK_SIZE - 1)));
+	}
+
+	/**
+	 * Works out the age of a cell from the generation that it was born in. The cell is assumed to be alive.
+	 * A cell in a chunk with no recorded births is as old as <code>ageEpoch</code> allows.
+	 * @param chunk The chunk that holds the cell.
+	 * @param cell The index of the cell in the chunk, in row-major order.
+	 * @return The age of the cell (0-255), or 0 if age tracking is turned off.
+	 */
+	private int ageOf(Chunk chunk, int cell) {
+		if(!ageTracking) {
+			return 0;
+		}
+		int now = (int) generation;
+		int cellAge = now - ageEpoch;
+		if(chunk.births != null) {
+			cellAge = Math.min(now - chunk.births[cell], cellAge);
+		}
+		return (cellAge < 0 || cellAge > 255) ? 255 : cellAge; // A negative age can only come from a cell so old that the difference overflowed.
+	}
+
+	/**
+	 * Returns the births of a chunk, creating them if no births have been recorded in it yet.
+	 * The cells in a new array are treated as 255 generations old, which is the same as not knowing when they were born.
+	 * @param chunk The chunk.
+	 * @return The chunk's array of births.
+	 */
+	private int[] birthsOf(Chunk chunk) {
+		if(chunk.births == null) {
+			chunk.births = new int[CHUNK_SIZE * CHUNK_SIZE];
+			Arrays.fill(chunk.births, (int) generation - 255);
+		}
+		return chunk.births;
+	}
+
+	/**
+	 * Sets the age of a cell in the current generation. The age of a dead cell does not matter, so it may be left as it was.
+	 * @param x The x-coordinate (column) of the cell, which may be negative.
+	 * @param y The y-coordinate (row) of the cell, which may be negative.
+	 * @param cellAge The new age of the cell. Ages above 255 are stored as 255.
+	 */
+	public void setAge(int x, int y, int cellAge) {
+		Chunk chunk = find(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+		if(chunk != null) { // If there is no chunk, the cell is dead and its age does not matter.
+			birthsOf(chunk)[(y & (CHUNK_SIZE - 1)) << CHUNK_SHIFT | (x & (CHUNK_SIZE - 1))] = (int) generation - Math.min(255, cellAge);
+		}
+	}
+
+	/**
+	 * Sets the state of a cell in the current generation. The age of a cell that was already alive is not changed.
+	 * The cell's chunk is created if it is brought to life, and marked as changed so that it is computed in the next generation.
+	 * @param x The x-coordinate (column) of the cell, which may be negative.
+	 * @param y The y-coordinate (row) of the cell, which may be negative.
+	 * @param state The new state of the cell. Any non-zero value makes the cell alive.
+	 */
+	public void set(int x, int y, int state) {
+		int cx = x >> CHUNK_SHIFT;
+		int cy = y >> CHUNK_SHIFT;
+		int row = y & (CHUNK_SIZE - 1);
+		int column = x & (CHUNK_SIZE - 1);
+		Chunk chunk;
+		if(state != 0) {
+			chunk = findOrCreate(cx, cy);
+			if((chunk.rows[row] >>> column & 1) == 0) {
+				birthsOf(chunk)[row << CHUNK_SHIFT | column] = (int) generation; // A cell that is brought to life starts with an age of 0, just like a cell that is born.
+			}
+			chunk.rows[row] |= 1L << column;
+			chunk.occupied = true;
+		}
+		else {
+			chunk = find(cx, cy);
+			if(chunk == null || (chunk.rows[row] >>> column & 1) == 0) {
+				return; // Already dead.
+			}
+			chunk.rows[row] &= ~(1L << column);
+			// Killing a cell on the edge of a chunk lowers the neighbour counts of the cells in the next chunk, which can cause births there (e.g. from 4 to 3).
+			// Make sure that chunk exists, so that it is computed.
+			for(int dy = (row == 0 ? -1 : 0); dy <= (row == CHUNK_SIZE - 1 ? 1 : 0); dy++) {
+				for(int dx = (column == 0 ? -1 : 0); dx <= (column == CHUNK_SIZE - 1 ? 1 : 0); dx++) {
+					findOrCreate(cx + dx, cy + dy);
+				}
+			}
+		}
+		chunk.changed = true;
+	}
+
+	/**
+	 * Kills every cell on the plane and resets every age to 0. Every chunk is freed.
+	 */
+	public void clear() {
+		keys = new long[64];
+		chunks = new Chunk[64];
+		count = 0;
+	}
+
+	/**
+	 * Turns age tracking on or off. While it is off, births are not recorded, so each generation does a little less work, and every age is reported as 0.
+	 * When it is turned back on, the births that were missed can not be trusted, so every cell that is alive at that point starts with an age of 0.
+	 * Nothing is rebuilt straight away: ages are worked out from the births whenever they are read.
+	 * @param tracking True to track ages.
+	 */
+	public void setAgeTracking(boolean tracking) {
+		if(tracking && !ageTracking) {
+			ageEpoch = (int) generation;
+		}
+		ageTracking = tracking;
+	}
+
+	/**
+	 * Computes the next generation of the plane.
+	 * Every chunk that changed in the last generation is computed, along with the chunks around it. A missing chunk next to a changed chunk is only created
+	 * if the changed chunk has (or just had) live cells on the edge that they share, as no other cells can cause births in it.
+	 * Chunks that have been empty for a whole generation are then freed.
+	 * @param rule The compiled ruleset to apply.
+	 * @param wrap Ignored, as the plane has no edges.
+	 * @throws IllegalArgumentException If the rule contains B0.
+	 */
+	public void step(Rule rule, boolean wrap) {
+		if(rule.nextState(0, 0) == 1) {
+			throw new IllegalArgumentException("The unbounded plane can not simulate " + rule + ": rules with B0 fill the infinite empty space with live cells.");
+		}
+		boolean all = rule != lastRule; // A different rule can change any chunk.
+		lastRule = rule;
+		generation++;
+
+		// Gather the changed chunks first, since creating their neighbours changes the map.
+		Chunk[] changedChunks = new Chunk[count];
+		int changedCount = 0;
+		for(Chunk chunk : chunks) {
+			if(chunk != null && (all || chunk.changed)) {
+				changedChunks[changedCount++] = chunk;
+			}
+		}
+		activeCount = 0;
+		for(int i = 0; i < changedCount; i++) {
+			Chunk chunk = changedChunks[i];
+			long top = chunk.rows[0] | chunk.nextRows[0]; // nextRows still holds the generation before this one, which also matters (see above).
+			long bottom = chunk.rows[CHUNK_SIZE - 1] | chunk.nextRows[CHUNK_SIZE - 1];
+			long any = 0;
+			for(int y = 0; y < CHUNK_SIZE; y++) {
+				any |= chunk.rows[y] | chunk.nextRows[y];
+			}
+			for(int dy = -1; dy <= 1; dy++) {
+				long edge = dy < 0 ? top : (dy > 0 ? bottom : any);
+				for(int dx = -1; dx <= 1; dx++) {
+					Chunk neighbour = (dx == 0 && dy == 0) ? chunk : find(chunk.cx + dx, chunk.cy + dy);
+					if(neighbour == null) {
+						long columns = dx < 0 ? 1L : (dx > 0 ? 1L << 63 : -1L);
+						if((edge & columns) == 0) {
+							continue;
+						}
+						neighbour = findOrCreate(chunk.cx + dx, chunk.cy + dy);
+					}
+					if(neighbour.activeGeneration != generation) {
+						neighbour.activeGeneration = generation;
+						if(activeCount == active.length) {
+							active = Arrays.copyOf(active, activeCount * 2);
+						}
+						active[activeCount++] = neighbour;
+					}
+				}
+			}
+		}
+
+		// Compute the active chunks. Each one only reads the current generation of itself and its neighbours, and writes its own next generation.
+		long[] table = rule.table;
+		int[] counts = rule.counts;
+		for(int i = 0; i < activeCount; i++) {
+			computeChunk(active[i], table, counts);
+		}
+		// Chunks that were skipped stay the same, and their live cells get older without anything being written.
+
+		// Swap in the new generation, and free chunks that were empty before and after this generation.
+		for(int i = 0; i < activeCount; i++) {
+			Chunk chunk = active[i];
+			long[] swap = chunk.rows;
+			chunk.rows = chunk.nextRows;
+			chunk.nextRows = swap;
+			if(!chunk.occupied && !chunk.changed) {
+				remove(chunk.cx, chunk.cy);
+			}
+			active[i] = null;
+		}
+		if(chunks.length > 64 && count < chunks.length >>> 3) {
+			rehash(chunks.length >>> 1); // Give memory back once the population has shrunk.
+		}
+	}
+
+	/**
+	 * Computes the next generation of one chunk into its <code>nextRows</code>, and records its births, <code>changed</code> and <code>occupied</code>.
+	 * The eight chunks around it provide the neighbours of its edge cells; missing chunks are all dead.
+	 * @param chunk The chunk to compute.
+	 * @param table The lookup table of the rule to apply.
+	 * @param counts The neighbour counts that appear in the rule.
+	 */
+	private void computeChunk(Chunk chunk, long[] table, int[] counts) {
+		int last = CHUNK_SIZE - 1;
+		Chunk north = find(chunk.cx, chunk.cy - 1);
+		Chunk south = find(chunk.cx, chunk.cy + 1);
+		Chunk west = find(chunk.cx - 1, chunk.cy);
+		Chunk east = find(chunk.cx + 1, chunk.cy);
+		Chunk northWest = find(chunk.cx - 1, chunk.cy - 1);
+		Chunk northEast = find(chunk.cx + 1, chunk.cy - 1);
+		Chunk southWest = find(chunk.cx - 1, chunk.cy + 1);
+		Chunk southEast = find(chunk.cx + 1, chunk.cy + 1);
+
+		// Line up three columns of words (left, middle, right) with a row above and below, like the halo of PackedLifeEngine.
+		middleColumn[0] = north == null ? 0L : north.rows[last];
+		middleColumn[CHUNK_SIZE + 1] = south == null ? 0L : south.rows[0];
+		System.arraycopy(chunk.rows, 0, middleColumn, 1, CHUNK_SIZE);
+		westColumn[0] = northWest == null ? 0L : northWest.rows[last];
+		westColumn[CHUNK_SIZE + 1] = southWest == null ? 0L : southWest.rows[0];
+		fillColumn(westColumn, west);
+		eastColumn[0] = northEast == null ? 0L : northEast.rows[last];
+		eastColumn[CHUNK_SIZE + 1] = southEast == null ? 0L : southEast.rows[0];
+		fillColumn(eastColumn, east);
+
+		boolean changed = false;
+		long population = 0;
+		for(int y = 0; y < CHUNK_SIZE; y++) {
+			long n = middleColumn[y];
+			long alive = middleColumn[y + 1];
+			long s = middleColumn[y + 2];
+			long result = PackedLifeEngine.applyRule(
+					(n << 1) | (westColumn[y] >>> 63), n, (n >>> 1) | (eastColumn[y] << 63),
+					(alive << 1) | (westColumn[y + 1] >>> 63), alive, (alive >>> 1) | (eastColumn[y + 1] << 63),
+					(s << 1) | (westColumn[y + 2] >>> 63), s, (s >>> 1) | (eastColumn[y + 2] << 63),
+					table, counts);
+			chunk.nextRows[y] = result;
+			changed |= result != alive;
+			population |= result;
+			if(ageTracking) {
+				recordBirths(chunk, y, result & ~alive);
+			}
+		}
+		chunk.changed = changed;
+		chunk.occupied = population != 0;
+	}
+
+	/**
+	 * Records the generation that is being computed as the birth of each cell that is born in one row of a chunk. Cells that survive are not written to.
+	 * @param chunk The chunk.
+	 * @param y The row of the chunk.
+	 * @param born The cells of the row that are born in this generation.
+	 */
+	private void recordBirths(Chunk chunk, int y, long born) {
+		if(born == 0) {
+			return;
+		}
+		int[] births = birthsOf(chunk);
+		int cell = y << CHUNK_SHIFT;
+		int next = (int) generation; // The generation counter was already moved on to the generation that is being computed.
+		for(; born != 0; born &= born - 1) { // Clear the lowest set bit, i.e. the cell whose birth was just written.
+			births[cell + Long.numberOfTrailingZeros(born)] = next;
+		}
+	}
+
+	/**
+	 * Copies the rows of a chunk into rows 1-64 of a column, or fills them with dead cells if there is no chunk.
+	 * @param column The column to fill.
+	 * @param chunk The chunk to copy, which may be null.
+	 */
+	private static void fillColumn(long[] column, Chunk chunk) {
+		if(chunk == null) {
+			Arrays.fill(column, 1, CHUNK_SIZE + 1, 0L);
+		}
+		else {
+			System.arraycopy(chunk.rows, 0, column, 1, CHUNK_SIZE);
+		}
+	}
+
+	/**
+	 * Replaces the plane with the cells (and ages) of a grid. The grid's top left cell becomes (0, 0).
+	 * @param grid The grid to copy.
+	 */
+	public void load(PackedLifeEngine grid) {
+		clear();
+		shownCount = 0;
+		for(int y = 0; y < grid.height; y++) {
+			for(int w = 0; w < grid.wordsPerRow; w++) {
+				long bits = grid.current[grid.rowStart(y) + w];
+				if(bits == 0) {
+					continue;
+				}
+				Chunk chunk = findOrCreate(w, y >> CHUNK_SHIFT);
+				int row = y & (CHUNK_SIZE - 1);
+				if(!chunk.occupied) {
+					remember(chunk); // The grid already shows this chunk.
+				}
+				chunk.rows[row] = bits;
+				chunk.occupied = true;
+				if(!ageTracking) {
+					continue; // Every age is reported as 0 anyway.
+				}
+				int[] births = birthsOf(chunk);
+				for(long left = bits; left != 0; left &= left - 1) {
+					int bit = Long.numberOfTrailingZeros(left);
+					births[row << CHUNK_SHIFT | bit] = (int) generation - grid.ageOf((w << 6) + bit, y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the part of the plane from (0, 0) to (width - 1, height - 1) into a grid, replacing everything that was in the grid.
+	 * Live cells outside of the grid are not copied, but they stay in the plane.
+	 * @param grid The grid to copy into.
+	 */
+	public void copyTo(PackedLifeEngine grid) {
+		grid.clear();
+		shownCount = 0;
+		refresh(grid);
+	}
+
+	/**
+	 * Brings a grid up to date with the part of the plane from (0, 0) to (width - 1, height - 1), in the same way as <code>copyTo</code>, but without clearing the grid first.
+	 * This is for displaying the plane: only the chunks that are occupied now, and the chunks that were copied into the grid last time, are written,
+	 * so it takes time in proportion to the live population rather than to the size of the grid.
+	 * The grid must not have been changed by anything else since it was last copied into (by <code>load</code>, <code>copyTo</code> or this method), 
+	 * and its previous generation is not kept up to date, so it must be copied into with <code>copyTo</code> before it is stepped.
+	 * @param grid The grid to copy into.
+	 */
+	public void refresh(PackedLifeEngine grid) {
+		// Empty the chunks that were copied last time, but have died or been freed since.
+		for(int i = 0; i < shownCount; i++) {
+			int cx = (int) (shownKeys[i] >> 32);
+			int cy = (int) shownKeys[i];
+			Chunk chunk = find(cx, cy);
+			if(chunk == null || !chunk.occupied) {
+				for(int row = 0; row < CHUNK_SIZE && (cy << CHUNK_SHIFT) + row < grid.height; row++) {
+					grid.setWord((cy << CHUNK_SHIFT) + row, cx, 0L);
+				}
+			}
+		}
+		shownCount = 0;
+		
+		for(Chunk chunk : chunks) {
+			if(chunk == null || !chunk.occupied || chunk.cx < 0 || chunk.cx >= grid.wordsPerRow || chunk.cy < 0 || chunk.cy << CHUNK_SHIFT >= grid.height) {
+				continue;
+			}
+			remember(chunk);
+			int firstRow = chunk.cy << CHUNK_SHIFT;
+			for(int row = 0; row < CHUNK_SIZE && firstRow + row < grid.height; row++) {
+				grid.setWord(firstRow + row, chunk.cx, chunk.rows[row]);
+				if(!ageTracking) {
+					continue; // The grid does not track ages either, so there are none to copy.
+				}
+				for(long left = chunk.rows[row]; left != 0; left &= left - 1) {
+					int x = (chunk.cx << 6) + Long.numberOfTrailingZeros(left);
+					if(x < grid.width) {
+						grid.setAgeOf(x, firstRow + row, ageOf(chunk, row << CHUNK_SHIFT | (x & (CHUNK_SIZE - 1))));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a chunk to <code>shownKeys</code>, so that the next <code>refresh</code> empties it in the grid if it has died by then.
+	 * @param chunk The chunk that has been copied into a grid.
+	 */
+	private void remember(Chunk chunk) {
+		if(shownCount == shownKeys.length) {
+			shownKeys = Arrays.copyOf(shownKeys, shownCount * 2);
+		}
+		shownKeys[shownCount++] = key(chunk.cx, chunk.cy);
+	}
+
+	/**
+	 * Lists the chunks that contain live cells, e.g. so that <code>HashLifeEngine</code> can copy the whole plane. The chunks must not be changed.
+	 * @return The occupied chunks, in no particular order.
+	 */
+	Chunk[] occupiedChunks() {
+		Chunk[] occupied = new Chunk[count];
+		int found = 0;
+		for(Chunk chunk : chunks) {
+			if(chunk != null && chunk.occupied) {
+				occupied[found++] = chunk;
+			}
+		}
+		return Arrays.copyOf(occupied, found);
+	}
+
+	/**
+	 * @return The number of live cells on the whole plane.
+	 */
+	public long getPopulation() {
+		long population = 0;
+		for(Chunk chunk : chunks) {
+			if(chunk != null) {
+				for(long row : chunk.rows) {
+					population += Long.bitCount(row);
+				}
+			}
+		}
+		return population;
+	}
+
+	/**
+	 * @return The number of chunks that are currently stored.
+	 */
+	public int getChunkCount() {
+		return count;
+	}
+
+	/**
+	 * Packs the coordinates of a chunk into a single key.
+	 * @param cx The x-coordinate of the chunk.
+	 * @param cy The y-coordinate of the chunk.
+	 * @return The key.
+	 */
+	private static long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the first slot to look in for a key. The key is scrambled so that neighbouring chunks do not crowd into neighbouring slots.
+	 * @param key The key.
+	 * @param length The length of the map, a power of two.
+	 * @return The slot.
+	 */
+	private static int slot(long key, int length) {
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.numberOfTrailingZeros(length)));
+	}
+
+	/**
+	 * Looks up a chunk.
+	 * @param cx The x-coordinate of the chunk.
+	 * @param cy The y-coordinate of the chunk.
+	 * @return The chunk, or null if it is not stored (i.e. all of its cells are dead).
+	 */
+	private Chunk find(int cx, int cy) {
+		long key = key(cx, cy);
+		int mask = chunks.length - 1;
+		for(int i = slot(key, chunks.length); chunks[i] != null; i = (i + 1) & mask) {
+			if(keys[i] == key) {
+				return chunks[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Looks up a chunk, creating an empty one if it is not stored.
+	 * @param cx The x-coordinate of the chunk.
+	 * @param cy The y-coordinate of the chunk.
+	 * @return The chunk.
+	 */
+	private Chunk findOrCreate(int cx, int cy) {
+		Chunk chunk = find(cx, cy);
+		if(chunk != null) {
+			return chunk;
+		}
+		if(count + 1 > chunks.length - (chunks.length >>> 2)) {
+			rehash(chunks.length << 1);
+		}
+		chunk = new Chunk(cx, cy);
+		long key = key(cx, cy);
+		int mask = chunks.length - 1;
+		int i = slot(key, chunks.length);
+		while(chunks[i] != null) {
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		chunks[i] = chunk;
+		count++;
+		return chunk;
+	}
+
+	/**
+	 * Removes a chunk from the map. Later chunks in the same run of slots are shifted back, so that lookups never stop early at the hole.
+	 * @param cx The x-coordinate of the chunk.
+	 * @param cy The y-coordinate of the chunk.
+	 */
+	private void remove(int cx, int cy) {
+		long key = key(cx, cy);
+		int mask = chunks.length - 1;
+		int hole = slot(key, chunks.length);
+		while(chunks[hole] != null && keys[hole] != key) {
+			hole = (hole + 1) & mask;
+		}
+		if(chunks[hole] == null) {
+			return;
+		}
+		count--;
+		for(int i = (hole + 1) & mask; chunks[i] != null; i = (i + 1) & mask) {
+			int home = slot(keys[i], chunks.length);
+			// The chunk in slot i can move into the hole if its home slot is not between the hole and i (going around the end of the array if needed).
+			if(((i - home) & mask) >= ((i - hole) & mask)) {
+				keys[hole] = keys[i];
+				chunks[hole] = chunks[i];
+				hole = i;
+			}
+		}
+		chunks[hole] = null;
+	}
+
+	/**
+	 * Moves every chunk into a map of a different length.
+	 * @param length The new length, which must be a power of two.
+	 */
+	private void rehash(int length) {
+		long[] oldKeys = keys;
+		Chunk[] oldChunks = chunks;
+		keys = new long[length];
+		chunks = new Chunk[length];
+		int mask = length - 1;
+		for(int j = 0; j < oldChunks.length; j++) {
+			if(oldChunks[j] != null) {
+				int i = slot(oldKeys[j], length);
+				while(chunks[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				chunks[i] = oldChunks[j];
+			}
+		}
+	}
+}
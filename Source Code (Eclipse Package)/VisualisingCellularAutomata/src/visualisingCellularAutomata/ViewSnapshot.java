@@ -0,0 +1,71 @@
+package visualisingCellularAutomata;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+
+/**
+ * A ViewSnapshot is one frame of the part of the grid that is in view, drawn by the simulation thread and then painted onto the screen by the Swing thread.
+ * <code>LifePanel</code> keeps three of them (triple buffering): one that the simulation thread is drawing into, one that has been handed over and is waiting to be painted,
+ * and one that is on the screen. They are swapped through an <code>AtomicReference</code>, so neither thread ever waits for the other, and a snapshot is never
+ * drawn into while it is being painted.
+ *
+ * Everything that is needed to paint a snapshot (and to work out which cell is under the mouse) is stored in it, as the view may have moved on by the time that it is painted.
+ * @see visualisingCellularAutomata.LifePanel
+ */
+final class ViewSnapshot {
+	/** The cells in view, with one pixel per cell (or per block of cells, when zoomed out below one pixel per cell). It is scaled up by <code>pixelSize</code> when it is painted. */
+	final BufferedImage cells;
+	/** The pixels of <code>cells</code> (one palette index each, in row-major order), which the cells are written into directly. */
+	final byte[] pixels;
+	/** The number of pixels in each row of <code>cells</code>. */
+	final int scanline;
+	/** The background and grid lines to paint beneath the cells. This is shared between snapshots, and is replaced rather than changed when the view is zoomed. */
+	BufferedImage gridLines;
+	/** The number of columns of <code>cells</code> that hold cells. The rest of each row is not painted. */
+	int columns = 0;
+	/** The number of rows of <code>cells</code> that hold cells. The rest of the rows are not painted. */
+	int rows = 0;
+	/** The size in pixels of each cell (or block of cells). */
+	int pixelSize = 1;
+	/** Each pixel of <code>cells</code> shows a block of (1 &lt;&lt; cellShift) cells square. 0 unless zoomed out below one pixel per cell. */
+	int cellShift = 0;
+	/** The column of the grid at the left edge of the view. */
+	int viewX = 0;
+	/** The row of the grid at the top edge of the view. */
+	int viewY = 0;
+	/** True from when the snapshot is handed over until the Swing thread takes it to paint it. */
+	boolean fresh = false;
+
+	/**
+	 * This constructor creates an empty snapshot, which paints as nothing but its grid lines.
+	 * @param width The width of the view in pixels.
+	 * @param height The height of the view in pixels.
+	 * @param palette The colours of the cells.
+	 * @param gridLines The background and grid lines.
+	 */
+	ViewSnapshot(int width, int height, IndexColorModel palette, BufferedImage gridLines) {
+		this.cells = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, palette);
+		this.pixels = ((DataBufferByte) cells.getRaster().getDataBuffer()).getData();
+		this.scanline = width;
+		this.gridLines = gridLines;
+	}
+
+	/**
+	 * Returns the column of the grid under a point of the snapshot. When zoomed out below one pixel per cell, this is the first column of the pixel's block.
+	 * @param x The x-coordinate of the point (in pixels).
+	 * @return The column of the grid.
+	 */
+	int columnAt(int x) {
+		return viewX + (x / pixelSize << cellShift);
+	}
+
+	/**
+	 * Returns the row of the grid under a point of the snapshot. When zoomed out below one pixel per cell, this is the first row of the pixel's block.
+	 * @param y The y-coordinate of the point (in pixels).
+	 * @return The row of the grid.
+	 */
+	int rowAt(int y) {
+		return viewY + (y / pixelSize << cellShift);
+	}
+}